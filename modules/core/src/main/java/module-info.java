@@ -17,5 +17,8 @@
  * under the License.
  */
 module org.apache.accumulo.access.core {
+  requires static java.management;
+  requires static jdk.jfr;
+
   exports org.apache.accumulo.access;
 }
@@ -18,9 +18,14 @@
  */
 package org.apache.accumulo.access;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.accumulo.access.impl.BuilderImpl;
@@ -46,6 +51,36 @@ public interface Access {
      */
     Builder authorizationValidator(AuthorizationValidator validator);
 
+    /**
+     * Limit the length of the expressions accepted by this access instance. The length of an
+     * expression passed as a string is the number of chars, for an expression passed as UTF-8 bytes
+     * it is the number of bytes. Longer expressions are not valid and are rejected before they are
+     * parsed. If not set there is no limit.
+     *
+     * @throws IllegalArgumentException when the limit is negative
+     */
+    Builder maxExpressionLength(int maxLength);
+
+    /**
+     * Limit how deeply parentheses may be nested in the expressions accepted by this access
+     * instance. An expression without parentheses has a depth of zero and {@code (A|B)&C} has a
+     * depth of one. Deeper expressions are not valid. If not set there is no limit. Parsing and
+     * evaluating expressions does not recurse, so deeply nested expressions do not need a limit to
+     * be handled safely, however limiting the depth and length bounds the work done for a single
+     * expression.
+     *
+     * @throws IllegalArgumentException when the limit is negative
+     */
+    Builder maxExpressionDepth(int maxDepth);
+
+    /**
+     * Report what this access instance and everything created by it does to the given metrics. If
+     * not set then {@link AccessMetrics#NONE} is used.
+     *
+     * @see JmxAccessMetrics
+     */
+    Builder metrics(AccessMetrics metrics);
+
     Access build();
   }
 
@@ -85,6 +120,86 @@ public interface Access {
   void validateExpression(String expression)
       throws InvalidAccessExpressionException, InvalidAuthorizationException;
 
+  /**
+   * Quickly validates that an access expression stored as UTF-8 bytes is properly formed. The
+   * expression is validated without decoding it to a String. Quoted authorizations that contain
+   * non-ASCII characters are only decoded if the {@link AuthorizationValidator} inspects them.
+   *
+   * @param expression an array containing a UTF-8 encoded access expression
+   * @param offset the index of the first byte of the expression in the array
+   * @param length the number of bytes in the expression
+   * @throws InvalidAccessExpressionException if the given expression is not valid. The index of the
+   *         error is a byte offset relative to the offset argument.
+   * @throws InvalidAuthorizationException if the expression contains an invalid authorization
+   * @throws IndexOutOfBoundsException when the offset and length are not within the array
+   * @throws NullPointerException when the expression is null
+   */
+  void validateExpression(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException, InvalidAuthorizationException;
+
+  /**
+   * Checks that an access expression is properly formed without throwing an exception when it is
+   * not. The outcome is recorded in the given result, which can be reused for any number of checks.
+   * Creating an exception with a message and a stack trace for each expression that is not valid is
+   * expensive, so when many expressions are expected to not be valid this is much faster than
+   * {@link #validateExpression(String)}. For example the following counts the expressions that are
+   * not valid.
+   *
+   * <pre>
+   *     {@code
+   * Access access = Access.builder().build();
+   * ValidationResult result = access.newValidationResult();
+   * int invalid = 0;
+   * for (String expression : expressions) {
+   *   if (!access.check(expression, result)) {
+   *     invalid++;
+   *   }
+   * }
+   * }
+   * </pre>
+   *
+   * <p>
+   * Exceptions thrown by the {@link AuthorizationValidator} are not caught.
+   *
+   * @param expression a potential access expression
+   * @param result where the outcome of the check is recorded
+   * @return true if the expression is valid, the same as {@link ValidationResult#isValid()}
+   * @throws NullPointerException when any argument is null
+   * @see InvalidAccessExpressionException#InvalidAccessExpressionException(String, String, int,
+   *      boolean)
+   */
+  boolean check(String expression, ValidationResult result);
+
+  /**
+   * Checks that an access expression stored as UTF-8 bytes is properly formed without throwing an
+   * exception when it is not. The index recorded in the result is a byte offset relative to the
+   * offset argument.
+   *
+   * @param expression an array containing a UTF-8 encoded access expression
+   * @param offset the index of the first byte of the expression in the array
+   * @param length the number of bytes in the expression
+   * @param result where the outcome of the check is recorded
+   * @return true if the expression is valid, the same as {@link ValidationResult#isValid()}
+   * @throws IndexOutOfBoundsException when the offset and length are not within the array
+   * @throws NullPointerException when the expression or result is null
+   * @see #check(String, ValidationResult)
+   */
+  boolean check(byte[] expression, int offset, int length, ValidationResult result);
+
+  /**
+   * Checks that an access expression is properly formed, returning a new result. Use
+   * {@link #check(String, ValidationResult)} to reuse a result when checking many expressions.
+   *
+   * @throws NullPointerException when the argument is null
+   */
+  ValidationResult check(String expression);
+
+  /**
+   * Creates a result that can be passed to {@link #check(String, ValidationResult)}. A result is
+   * not thread-safe, so each thread checking expressions needs its own.
+   */
+  ValidationResult newValidationResult();
+
   /**
    * Validates an access expression and returns an immutable object with a parse tree. Creating the
    * parse tree is expensive relative to calling {@link #newExpression(String)} or
@@ -101,6 +216,20 @@ public interface Access {
   ParsedAccessExpression newParsedExpression(String expression)
       throws InvalidAccessExpressionException, InvalidAuthorizationException;
 
+  /**
+   * Validates an access expression and compiles it into an immutable object that can be evaluated
+   * quickly and repeatedly using {@link AccessEvaluator#canAccess(CompiledAccessExpression)}.
+   * Evaluating a compiled expression does not tokenize or validate it again, so for expressions
+   * that are evaluated many times the cost of compiling is quickly recovered.
+   *
+   * @throws InvalidAccessExpressionException if the given expression is not valid
+   * @throws InvalidAuthorizationException when the expression contains an authorization that is not
+   *         valid
+   * @throws NullPointerException when the argument is null
+   */
+  CompiledAccessExpression compile(String expression)
+      throws InvalidAccessExpressionException, InvalidAuthorizationException;
+
   /**
    * Validates an access expression and finds all authorizations in it passing them to the
    * authorizationConsumer. For example, for the expression {@code (A&B)|(A&C)|(A&D)}, this method
@@ -148,6 +277,20 @@ public interface Access {
    */
   AccessEvaluator newEvaluator(Set<String> authorizations);
 
+  /**
+   * Creates an AccessEvaluator from an Authorizations object that looks up authorizations using a
+   * trie of their characters. Authorizations are looked up as the expression is tokenized, by
+   * comparing them to the parts of authorizations in the set that do not branch, without hashing
+   * them. An authorization that does not start like any in the set is known to be missing without
+   * comparing all of it. This is faster than {@link #newEvaluator(Set)} for long authorizations
+   * that share prefixes, like {@code org.unit.project:role/level}. The trie uses more memory when
+   * the authorizations use many distinct characters.
+   *
+   * @param authorizations auths to use in the AccessEvaluator
+   * @return AccessEvaluator object
+   */
+  AccessEvaluator newTrieEvaluator(Set<String> authorizations);
+
   /**
    * Creates an AccessEvaluator from an Authorizer
    *
@@ -157,6 +300,73 @@ public interface Access {
    */
   AccessEvaluator newEvaluator(Predicate<String> authorizer);
 
+  /**
+   * Creates an AccessEvaluator from an Authorizer that accepts a CharSequence. Evaluators created
+   * by {@link #newEvaluator(Predicate)} create a String for each authorization seen during
+   * evaluation, this evaluator does not. If the authorizer can check a CharSequence without
+   * creating a String, then evaluating an expression will not allocate any objects.
+   *
+   * <p>
+   * The CharSequence passed to the authorizer is only valid during the call to the authorizer and
+   * may be reused afterward, so the authorizer must not keep a reference to it. Call
+   * {@code toString()} to get an authorization that can be kept.
+   *
+   * @param authorizer used to determine whether the provided authorization seen during the
+   *        evaluation of an access expression is authorized
+   * @return AccessEvaluator object
+   */
+  AccessEvaluator newCharSequenceEvaluator(Predicate<CharSequence> authorizer);
+
+  /**
+   * Creates an AccessEvaluator from an Authorizer that remembers the decision of the authorizer for
+   * each distinct authorization for the lifetime of the evaluator. This is useful when the
+   * authorizer is expensive to call, for example when it calls a remote service, because the same
+   * authorizations are seen over and over in different expressions. Looking up an authorization in
+   * the cache does not create a String. Decisions for expressions stored as UTF-8 bytes are kept in
+   * a separate cache of the same capacity, so their bytes are never decoded to look them up.
+   *
+   * @param authorizer used to determine whether the provided authorization seen during the
+   *        evaluation of an access expression is authorized
+   * @param capacity the maximum number of authorization decisions to keep in the cache
+   * @throws IllegalArgumentException when capacity is not positive
+   * @throws NullPointerException when the authorizer is null
+   */
+  CachingAccessEvaluator newMemoizingEvaluator(Predicate<String> authorizer, int capacity);
+
+  /**
+   * Creates an AccessEvaluator from an Authorizer that remembers the decision of the authorizer for
+   * each distinct authorization for the given amount of time, after which the authorizer is called
+   * again. Use this when the decisions of the authorizer can change.
+   *
+   * @param authorizer used to determine whether the provided authorization seen during the
+   *        evaluation of an access expression is authorized
+   * @param capacity the maximum number of authorization decisions to keep in the cache
+   * @param timeToLive how long to remember a decision of the authorizer
+   * @throws IllegalArgumentException when capacity or timeToLive is not positive
+   * @throws NullPointerException when the authorizer or timeToLive is null
+   * @see #newMemoizingEvaluator(Predicate, int)
+   */
+  CachingAccessEvaluator newMemoizingEvaluator(Predicate<String> authorizer, int capacity,
+      Duration timeToLive);
+
+  /**
+   * Creates a BulkAccessEvaluator that decides authorizations using an asynchronous authorizer that
+   * is given many authorizations at once. The authorizer is passed the distinct authorizations of a
+   * batch of expressions and returns a future that completes with the subset of them that are
+   * authorized.
+   *
+   * <p>
+   * Expressions are evaluated on the given executor once the authorizer responds. An executor that
+   * creates a virtual thread per task works well for evaluating many batches concurrently on Java
+   * 21 and later.
+   *
+   * @param bulkAuthorizer returns the subset of the given authorizations that are authorized
+   * @param executor used to evaluate expressions once the authorizer responds
+   * @throws NullPointerException when any argument is null
+   */
+  BulkAccessEvaluator newBulkEvaluator(
+      Function<Set<String>,CompletableFuture<Set<String>>> bulkAuthorizer, Executor executor);
+
   /**
    * Creates an AccessEvaluator from multiple sets of authorizations. Each expression will be
    * evaluated independently against each set of authorizations and will only be deemed accessible
@@ -206,4 +416,85 @@ public interface Access {
    * </table>
    */
   AccessEvaluator newEvaluator(Collection<Set<String>> authorizationSets);
+
+  /**
+   * Creates an AccessEvaluator that caches the results of the given evaluator. Data usually has far
+   * fewer distinct access expressions than entries, so when scanning data the same expressions are
+   * evaluated over and over. In this case caching avoids repeatedly parsing and evaluating the same
+   * expression. For example the following would use a cache that remembers up to 1000 expressions.
+   *
+   * <pre>
+   *     {@code
+   * Access access = Access.builder().build();
+   * AccessEvaluator evaluator = access.newCachingEvaluator(access.newEvaluator(auths), 1000);
+   * }
+   * </pre>
+   *
+   * <p>
+   * Caching is only correct when the given evaluator always returns the same result for the same
+   * expression. Evaluators created from a set of authorizations always do, evaluators created from
+   * a {@link Predicate} only do if the predicate always returns the same value for an
+   * authorization.
+   *
+   * @param evaluator the evaluator to use when an expression is not in the cache
+   * @param capacity the maximum number of expression results to keep in the cache
+   * @throws IllegalArgumentException when capacity is not positive
+   * @throws NullPointerException when the evaluator is null
+   */
+  CachingAccessEvaluator newCachingEvaluator(AccessEvaluator evaluator, int capacity);
+
+  /**
+   * Creates an evaluator that samples the expressions the given evaluator evaluates, to find the
+   * expressions that are evaluated most often and the ones that take the most time. For example the
+   * following would sample one in a hundred evaluations and keep the top hundred expressions.
+   *
+   * <pre>
+   *     {@code
+   * Access access = Access.builder().build();
+   * var evaluator = access.newSamplingEvaluator(access.newEvaluator(auths), 100, 100);
+   * // evaluate expressions using the evaluator, then
+   * evaluator.getMostExpensive().forEach(System.out::println);
+   * }
+   * </pre>
+   *
+   * @param evaluator the evaluator that evaluates expressions
+   * @param capacity the maximum number of expressions to keep for each ranking
+   * @param sampleInterval the average number of evaluations per sampled evaluation, 1 samples every
+   *        evaluation
+   * @throws IllegalArgumentException when capacity or sampleInterval is not positive
+   * @throws NullPointerException when the evaluator is null
+   */
+  SamplingAccessEvaluator newSamplingEvaluator(AccessEvaluator evaluator, int capacity,
+      int sampleInterval);
+
+  /**
+   * Creates an empty dictionary that assigns small integer ids to authorizations. Evaluators
+   * created by the dictionary store their authorizations as a bitset, which uses much less memory
+   * than a set of strings and allows {@link CompiledAccessExpression}s to be evaluated using bit
+   * tests. For example the following would create an evaluator per user that all share a single
+   * dictionary.
+   *
+   * <pre>
+   *     {@code
+   * Access access = Access.builder().build();
+   * AuthorizationDictionary dictionary = access.newAuthorizationDictionary();
+   * Map<String,AccessEvaluator> evaluators = new HashMap<>();
+   * userAuths.forEach((user, auths) -> evaluators.put(user, dictionary.newEvaluator(auths)));
+   * }
+   * </pre>
+   */
+  AuthorizationDictionary newAuthorizationDictionary();
+
+  /**
+   * Creates a GroupAccessEvaluator that finds which of the given sets of authorizations can access
+   * an expression. Each expression is parsed once regardless of how many sets of authorizations
+   * there are.
+   *
+   * @param authorizationSets the sets of authorizations, the index of a set in this list is its
+   *        index in the bit sets returned by the evaluator
+   * @throws InvalidAuthorizationException when any authorization is not valid
+   * @throws NullPointerException when the argument is null
+   */
+  GroupAccessEvaluator newGroupEvaluator(List<Set<String>> authorizationSets)
+      throws InvalidAuthorizationException;
 }
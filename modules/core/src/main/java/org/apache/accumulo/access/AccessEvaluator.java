@@ -19,7 +19,9 @@
 package org.apache.accumulo.access;
 
 import org.apache.accumulo.access.impl.AccessEvaluatorImpl;
+import org.apache.accumulo.access.impl.DictionaryAccessEvaluatorImpl;
 import org.apache.accumulo.access.impl.MultiAccessEvaluatorImpl;
+import org.apache.accumulo.access.impl.TrieAccessEvaluatorImpl;
 
 /**
  * This class is used to decide if an entity with a given set of authorizations can access
@@ -42,7 +44,8 @@ import org.apache.accumulo.access.impl.MultiAccessEvaluatorImpl;
  * recommended to cache the results of these evaluations. Caching is only safe under the assumption
  * that for an AccessEvaluator instance, evaluating the same expression multiple times will always
  * yield the same result. When considering caching, any environmental factors that might change this
- * assumption may need to be mitigated.
+ * assumption may need to be mitigated. {@link Access#newCachingEvaluator(AccessEvaluator, int)} can
+ * be used to add a bounded cache to any evaluator.
  *
  * <p>
  * Instances of this class are thread-safe.
@@ -53,7 +56,9 @@ import org.apache.accumulo.access.impl.MultiAccessEvaluatorImpl;
  * @see <a href="https://github.com/apache/accumulo-access">Accumulo Access Documentation</a>
  * @since 1.0.0
  */
-public sealed interface AccessEvaluator permits AccessEvaluatorImpl, MultiAccessEvaluatorImpl {
+public sealed interface AccessEvaluator
+    permits AccessEvaluatorImpl, MultiAccessEvaluatorImpl, CachingAccessEvaluator,
+    DictionaryAccessEvaluatorImpl, TrieAccessEvaluatorImpl, SamplingAccessEvaluator {
 
   /**
    * Evaluates an expression.
@@ -66,14 +71,53 @@ public sealed interface AccessEvaluator permits AccessEvaluatorImpl, MultiAccess
   boolean canAccess(String accessExpression) throws InvalidAccessExpressionException;
 
   /**
-   * Evaluates an expression.
+   * Evaluates an expression. The expression is evaluated using its compiled form, see
+   * {@link AccessExpression#compile()}, so the expression is only tokenized the first time it is
+   * evaluated and the {@link AuthorizationValidator} is never called.
    *
    * @param accessExpression previously validated access expression
    * @return true if the expression is visible using the authorizations supplied at creation, false
    *         otherwise
    */
   default boolean canAccess(AccessExpression accessExpression) {
-    return canAccess(accessExpression.getExpression());
+    return canAccess(accessExpression.compile());
   }
 
+  /**
+   * Evaluates an expression stored as UTF-8 bytes. The expression is evaluated without decoding it
+   * to a String. Quoted authorizations that contain non-ASCII characters are only decoded if the
+   * {@link AuthorizationValidator} inspects them or if this evaluator was created from a
+   * {@link java.util.function.Predicate}.
+   *
+   * @param expression an array containing a UTF-8 encoded access expression
+   * @param offset the index of the first byte of the expression in the array
+   * @param length the number of bytes in the expression
+   * @return true if the expression is visible using the authorizations supplied at creation, false
+   *         otherwise
+   * @throws InvalidAccessExpressionException when the expression is not valid
+   * @throws IndexOutOfBoundsException when the offset and length are not within the array
+   */
+  boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException;
+
+  /**
+   * Evaluates an expression stored as UTF-8 bytes.
+   *
+   * @see #canAccess(byte[], int, int)
+   */
+  default boolean canAccess(byte[] expression) throws InvalidAccessExpressionException {
+    return canAccess(expression, 0, expression.length);
+  }
+
+  /**
+   * Evaluates a compiled expression. Compiled expressions are not tokenized or validated again, so
+   * this is the fastest way to evaluate an expression that is seen many times.
+   *
+   * @param compiledExpression previously compiled access expression
+   * @return true if the expression is visible using the authorizations supplied at creation, false
+   *         otherwise
+   * @see Access#compile(String)
+   */
+  boolean canAccess(CompiledAccessExpression compiledExpression);
+
 }
@@ -51,6 +51,16 @@ public sealed abstract class AccessExpression implements Serializable
    */
   public abstract ParsedAccessExpression parse();
 
+  /**
+   * Compiles the access expression into a form that can be evaluated quickly and repeatedly. This
+   * access expression is already known to be valid, so compiling it does not call the
+   * {@link AuthorizationValidator}. The expression is compiled the first time this method is called
+   * and subsequent calls return the same object.
+   *
+   * @see Access#compile(String)
+   */
+  public abstract CompiledAccessExpression compile();
+
   @Override
   public boolean equals(Object o) {
     return this == o
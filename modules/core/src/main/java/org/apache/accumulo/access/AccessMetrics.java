@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * Receives events from an {@link Access} instance and everything created by it, for example to
+ * count how many expressions are evaluated. Set using
+ * {@link Access.Builder#metrics(AccessMetrics)}. All methods do nothing by default, so an
+ * implementation only needs to override the events it is interested in. {@link JmxAccessMetrics}
+ * counts all events and publishes them using JMX.
+ *
+ * <p>
+ * These methods are called by the thread that is parsing or evaluating an expression, while it is
+ * doing so. Implementations must be thread-safe and should be fast, ideally only incrementing
+ * counters that do not contend with each other, like {@link java.util.concurrent.atomic.LongAdder}.
+ * Implementations should not throw exceptions.
+ *
+ * @since 1.0.0
+ */
+public interface AccessMetrics {
+
+  /**
+   * Does nothing. This is used when metrics are not set, and it does not add any overhead.
+   */
+  AccessMetrics NONE = new AccessMetrics() {};
+
+  /**
+   * Called when an expression was evaluated by an evaluator. Once the result of part of an
+   * expression is known, its remaining authorizations are only validated and are not looked up, so
+   * the number of lookups can be less than the number of authorizations.
+   *
+   * @param accessible the result of the evaluation
+   * @param authorizations the number of authorizations in the expression, an authorization that
+   *        appears more than once is counted each time
+   * @param lookups the number of authorizations that were looked up
+   */
+  default void expressionEvaluated(boolean accessible, int authorizations, int lookups) {}
+
+  /**
+   * Called when a valid expression was validated, parsed, compiled, checked, or had its
+   * authorizations found. Expressions that are parsed to be evaluated are only reported to
+   * {@link #expressionEvaluated(boolean, int, int)}.
+   *
+   * @param authorizations the number of authorizations in the expression, an authorization that
+   *        appears more than once is counted each time
+   */
+  default void expressionParsed(int authorizations) {}
+
+  /**
+   * Called when an expression was not valid.
+   *
+   * @param reason why the expression is not valid
+   */
+  default void expressionRejected(ErrorKind reason) {}
+
+  /**
+   * Called when a buffer that is reused to parse expressions grew to parse a long expression.
+   * Buffers are kept by each thread that parses expressions, one that grows larger than a small
+   * size is dropped after the expression is parsed.
+   *
+   * @param capacity the new capacity of the buffer
+   */
+  default void bufferGrown(int capacity) {}
+}
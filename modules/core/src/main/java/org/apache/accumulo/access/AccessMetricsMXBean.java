@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.util.Map;
+
+/**
+ * The metrics of an {@link Access} instance that {@link JmxAccessMetrics} publishes using JMX. The
+ * counts start at zero when the metrics are created and cover everything created by the access
+ * instances that use the metrics.
+ *
+ * @since 1.0.0
+ */
+public interface AccessMetricsMXBean {
+
+  /**
+   * @return the number of expressions that were evaluated
+   */
+  long getEvaluatedExpressions();
+
+  /**
+   * @return the number of evaluated expressions that could be accessed
+   */
+  long getAccessibleExpressions();
+
+  /**
+   * @return the number of valid expressions that were parsed without being evaluated
+   */
+  long getParsedExpressions();
+
+  /**
+   * @return the number of expressions that were not valid
+   */
+  long getRejectedExpressions();
+
+  /**
+   * @return the number of expressions that were not valid for each
+   *         {@link ValidationResult.ErrorKind}
+   */
+  Map<String,Long> getRejectedExpressionsByReason();
+
+  /**
+   * @return the number of authorizations in all evaluated expressions
+   */
+  long getEvaluatedAuthorizations();
+
+  /**
+   * @return the number of authorizations that were looked up while evaluating expressions
+   */
+  long getAuthorizationLookups();
+
+  /**
+   * @return the fraction of the authorizations in evaluated expressions that were not looked up
+   *         because the result was already known
+   */
+  double getShortCircuitRate();
+
+  /**
+   * @return the average number of authorizations in the valid expressions that were evaluated or
+   *         parsed
+   */
+  double getAverageAuthorizationsPerExpression();
+
+  /**
+   * @return the number of times a buffer that is reused to parse expressions grew
+   */
+  long getBufferGrowths();
+
+  /**
+   * @return the largest capacity a buffer that is reused to parse expressions grew to
+   */
+  long getLargestBufferCapacity();
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.util.Set;
+
+import org.apache.accumulo.access.impl.AuthorizationDictionaryImpl;
+
+/**
+ * Maps authorizations to small dense integer ids. Evaluators created by a dictionary store their
+ * authorizations as a bitset of ids instead of a set of strings. When such an evaluator evaluates a
+ * {@link CompiledAccessExpression}, the authorizations in the expression are looked up in the
+ * dictionary once and after that each authorization is checked using a single bit test. This makes
+ * the evaluators small and fast when there are many of them that share a closed vocabulary of
+ * authorizations, for example one evaluator per user.
+ *
+ * <p>
+ * Ids are never removed or reused, so the dictionary grows as new authorizations are added.
+ * Authorizations that are only seen in expressions are never added to the dictionary.
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @see Access#newAuthorizationDictionary()
+ * @since 1.0.0
+ */
+public sealed interface AuthorizationDictionary permits AuthorizationDictionaryImpl {
+
+  /**
+   * Adds an authorization to the dictionary if it is not already present.
+   *
+   * @param authorization an unquoted authorization
+   * @return the id of the authorization
+   * @throws InvalidAuthorizationException when the authorization is not valid
+   * @throws NullPointerException when the argument is null
+   */
+  int add(String authorization) throws InvalidAuthorizationException;
+
+  /**
+   * @param authorization an unquoted authorization
+   * @return the id of the authorization or -1 if it is not in the dictionary
+   * @throws NullPointerException when the argument is null
+   */
+  int getId(String authorization);
+
+  /**
+   * @return the number of authorizations in the dictionary
+   */
+  int size();
+
+  /**
+   * Creates an AccessEvaluator that stores the given authorizations as a bitset of ids from this
+   * dictionary. Any of the authorizations not already in the dictionary are added to it.
+   *
+   * @param authorizations auths to use in the AccessEvaluator
+   * @throws InvalidAuthorizationException when any authorization is not valid
+   * @return AccessEvaluator object
+   */
+  AccessEvaluator newEvaluator(Set<String> authorizations) throws InvalidAuthorizationException;
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.accumulo.access.impl.BulkAccessEvaluatorImpl;
+
+/**
+ * Evaluates batches of access expressions using an authorizer that decides many authorizations in a
+ * single asynchronous call. This is useful when the authorizer is a remote service, where calling
+ * it once per authorization would be too slow. All of the distinct authorizations in a batch of
+ * expressions are sent to the authorizer in one call, and once it responds the expressions are
+ * evaluated locally.
+ *
+ * <p>
+ * For example the following would evaluate two expressions with a single call to a remote service.
+ *
+ * <pre>
+ * {@code
+ * Access access = Access.builder().build();
+ * BulkAccessEvaluator evaluator =
+ *     access.newBulkEvaluator(auths -> remoteService.authorizedSubset(user, auths), executor);
+ * evaluator.canAccess(List.of("A&B", "A|C"), Duration.ofSeconds(2))
+ *     .thenAccept(results -> System.out.println(results));
+ * }
+ * </pre>
+ *
+ * <p>
+ * Instances of this class are thread-safe and many batches can be evaluated concurrently.
+ *
+ * @see Access#newBulkEvaluator(java.util.function.Function, java.util.concurrent.Executor)
+ * @since 1.0.0
+ */
+public sealed interface BulkAccessEvaluator permits BulkAccessEvaluatorImpl {
+
+  /**
+   * Evaluates an expression.
+   *
+   * @param accessExpression for this parameter a valid access expression is expected.
+   * @return a future that completes with true if the expression is visible using the authorizations
+   *         returned by the authorizer, false otherwise. The future completes exceptionally if the
+   *         authorizer fails.
+   * @throws InvalidAccessExpressionException when the expression is not valid
+   */
+  CompletableFuture<Boolean> canAccess(String accessExpression)
+      throws InvalidAccessExpressionException;
+
+  /**
+   * Evaluates a batch of expressions making at most one call to the authorizer.
+   *
+   * @param accessExpressions valid access expressions
+   * @return a future that completes with the result of each expression, in the same order as the
+   *         expressions. The future completes exceptionally if the authorizer fails.
+   * @throws InvalidAccessExpressionException when any expression is not valid. Expressions are
+   *         validated before the authorizer is called.
+   */
+  CompletableFuture<List<Boolean>> canAccess(List<String> accessExpressions)
+      throws InvalidAccessExpressionException;
+
+  /**
+   * Evaluates a batch of expressions making at most one call to the authorizer, giving up when the
+   * authorizer does not respond in time.
+   *
+   * @param accessExpressions valid access expressions
+   * @param timeout the maximum amount of time to wait for the authorizer
+   * @return a future that completes with the result of each expression, in the same order as the
+   *         expressions. The future completes exceptionally with a
+   *         {@link java.util.concurrent.TimeoutException} if the authorizer does not respond before
+   *         the timeout, in which case the future returned by the authorizer is cancelled.
+   * @throws InvalidAccessExpressionException when any expression is not valid
+   */
+  CompletableFuture<List<Boolean>> canAccess(List<String> accessExpressions, Duration timeout)
+      throws InvalidAccessExpressionException;
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.impl.CachingAccessEvaluatorImpl;
+import org.apache.accumulo.access.impl.MemoizingAccessEvaluatorImpl;
+
+/**
+ * An {@link AccessEvaluator} that remembers the results of previous evaluations in a bounded cache.
+ * This is useful when a small number of distinct expressions are evaluated many times, which is
+ * common when scanning data. Since this type is an {@link AccessEvaluator} it can be used anywhere
+ * an evaluator is used.
+ *
+ * <p>
+ * Evaluators created by {@link Access#newMemoizingEvaluator(Predicate, int)} cache the decision of
+ * an authorizer for each authorization instead of the result of each expression. For these
+ * evaluators the hit count is the number of calls to the authorizer that were avoided.
+ *
+ * <p>
+ * When the cache is full, entries that have not been used recently are evicted using the CLOCK
+ * algorithm. Looking up an entry in the cache does not acquire any locks, only adding an entry to
+ * the cache does.
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @see Access#newCachingEvaluator(AccessEvaluator, int)
+ * @since 1.0.0
+ */
+public sealed interface CachingAccessEvaluator extends AccessEvaluator
+    permits CachingAccessEvaluatorImpl, MemoizingAccessEvaluatorImpl {
+
+  /**
+   * @return the maximum number of results this evaluator will cache
+   */
+  int getCapacity();
+
+  /**
+   * @return the number of evaluations or authorizer calls that were answered using the cache
+   */
+  long getHitCount();
+
+  /**
+   * @return the number of evaluations or authorizer calls that were not found in the cache
+   */
+  long getMissCount();
+}
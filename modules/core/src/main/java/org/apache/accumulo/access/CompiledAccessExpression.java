@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.apache.accumulo.access.impl.CompiledAccessExpressionImpl;
+
+/**
+ * An immutable, validated access expression that was compiled into a form that is fast to evaluate.
+ * Evaluating a compiled expression using
+ * {@link AccessEvaluator#canAccess(CompiledAccessExpression)} does not tokenize, parse, or validate
+ * the expression. This makes compiling worthwhile when the same expression is evaluated many times,
+ * for example when a small set of expressions is seen over and over while scanning data.
+ *
+ * <p>
+ * To create an instance of this class call {@link Access#compile(String)} or
+ * {@link AccessExpression#compile()}.
+ *
+ * @since 1.0.0
+ */
+public sealed abstract class CompiledAccessExpression implements Serializable
+    permits CompiledAccessExpressionImpl {
+
+  private static final long serialVersionUID = 1L;
+
+  protected CompiledAccessExpression() {}
+
+  /**
+   * Get the expression as a String.
+   *
+   * @return the expression that was compiled to create this object.
+   */
+  public abstract String getExpression();
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof CompiledAccessExpression c
+        && Objects.equals(getExpression(), c.getExpression()));
+  }
+
+  @Override
+  public int hashCode() {
+    return getExpression().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return getExpression();
+  }
+}
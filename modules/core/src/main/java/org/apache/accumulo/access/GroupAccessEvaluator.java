@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.accumulo.access.impl.GroupAccessEvaluatorImpl;
+
+/**
+ * Decides which of many sets of authorizations can access an access expression. This is useful when
+ * the same data must be checked for many entities, for example when deciding which users should be
+ * notified about a new record. Rather than evaluating an expression once per set of authorizations,
+ * an expression is parsed once and evaluated for all sets at the same time.
+ *
+ * <p>
+ * For example the following code would print {@code {0, 2}} and then {@code {1, 2}}.
+ *
+ * <pre>
+ * {@code
+ * Access access = Access.builder().build();
+ * var evaluator = access.newGroupEvaluator(List.of(Set.of("A"), Set.of("B"), Set.of("A", "B")));
+ * System.out.println(evaluator.whoCanAccess("A"));
+ * System.out.println(evaluator.whoCanAccess("B|(A&B)"));
+ * }
+ * </pre>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @see Access#newGroupEvaluator(List)
+ * @since 1.0.0
+ */
+public sealed interface GroupAccessEvaluator permits GroupAccessEvaluatorImpl {
+
+  /**
+   * @return the number of sets of authorizations this evaluator was created with
+   */
+  int size();
+
+  /**
+   * Evaluates an expression for every set of authorizations.
+   *
+   * @param accessExpression for this parameter a valid access expression is expected.
+   * @return a bit set where bit {@code i} is set when the set of authorizations at index {@code i}
+   *         in the list given at creation can access the expression
+   * @throws InvalidAccessExpressionException when the expression is not valid
+   * @throws NullPointerException when the argument is null
+   */
+  BitSet whoCanAccess(String accessExpression) throws InvalidAccessExpressionException;
+
+  /**
+   * Evaluates many expressions for every set of authorizations. The expressions are validated one
+   * at a time and then evaluated in blocks of expressions and blocks of authorization sets using
+   * multiple threads. This is much faster than calling {@link #whoCanAccess(String)} for each
+   * expression when there are many expressions and many sets of authorizations.
+   *
+   * @param accessExpressions valid access expressions
+   * @return a bit set for each expression, in the same order as the expressions. See
+   *         {@link #whoCanAccess(String)}.
+   * @throws InvalidAccessExpressionException when any expression is not valid
+   * @throws NullPointerException when the argument or any expression is null
+   */
+  List<BitSet> whoCanAccess(List<String> accessExpressions) throws InvalidAccessExpressionException;
+}
@@ -29,16 +29,43 @@ public final class InvalidAccessExpressionException extends IllegalArgumentExcep
 
   private static final long serialVersionUID = 1L;
 
-  private final PatternSyntaxException delegate;
+  private final String desc;
+  private final String pattern;
+  private final int index;
+  // false while the super constructor runs, so the stack trace is filled in by this constructor
+  private final boolean writableStackTrace;
 
   public InvalidAccessExpressionException(String desc, String badarg, int index) {
+    this(desc, badarg, index, true);
+  }
+
+  /**
+   * Creates an exception that does not have a stack trace when writableStackTrace is false. Filling
+   * in the stack trace is the most expensive part of creating an exception, so callers that create
+   * many of these exceptions and never look at their stack trace can avoid that cost.
+   *
+   * @since 1.0.0
+   */
+  public InvalidAccessExpressionException(String desc, String badarg, int index,
+      boolean writableStackTrace) {
     super();
-    delegate = new PatternSyntaxException(desc, badarg, index);
+    this.desc = desc;
+    this.pattern = badarg;
+    this.index = index;
+    this.writableStackTrace = writableStackTrace;
+    if (writableStackTrace) {
+      super.fillInStackTrace();
+    }
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return writableStackTrace ? super.fillInStackTrace() : this;
   }
 
   @Override
   public String getMessage() {
-    return delegate.getMessage();
+    return new PatternSyntaxException(desc, pattern, index).getMessage();
   }
 
   /**
@@ -48,7 +75,7 @@ public final class InvalidAccessExpressionException extends IllegalArgumentExcep
    *         known
    */
   public int getIndex() {
-    return delegate.getIndex();
+    return index;
   }
 
   /**
@@ -57,7 +84,7 @@ public final class InvalidAccessExpressionException extends IllegalArgumentExcep
    * @return The description of the error
    */
   public String getDescription() {
-    return delegate.getDescription();
+    return desc;
   }
 
   /**
@@ -66,7 +93,7 @@ public final class InvalidAccessExpressionException extends IllegalArgumentExcep
    * @return The erroneous pattern
    */
   public String getPattern() {
-    return delegate.getPattern();
+    return pattern;
   }
 
 }
@@ -29,6 +29,8 @@ public class InvalidAuthorizationException extends IllegalArgumentException {
 
   private final String auth;
   private final String reason;
+  // false while the super constructor runs, so the stack trace is filled in by this constructor
+  private final boolean writableStackTrace;
 
   public static InvalidAuthorizationException emptyString() {
     return new InvalidAuthorizationException("", "empty string");
@@ -51,8 +53,34 @@ public class InvalidAuthorizationException extends IllegalArgumentException {
   }
 
   private InvalidAuthorizationException(CharSequence auth, String reason) {
+    this(auth, reason, true);
+  }
+
+  /**
+   * Creates an exception that does not have a stack trace when writableStackTrace is false. Filling
+   * in the stack trace is the most expensive part of creating an exception, so callers that create
+   * many of these exceptions and never look at their stack trace can avoid that cost.
+   *
+   * @param auth the authorization that is not valid
+   * @param reason why the authorization is not valid
+   * @since 1.0.0
+   */
+  // filling in the stack trace only records the call stack, it does not use any subclass state
+  @SuppressWarnings("this-escape")
+  public InvalidAuthorizationException(CharSequence auth, String reason,
+      boolean writableStackTrace) {
+    super();
     this.auth = auth.toString();
     this.reason = reason;
+    this.writableStackTrace = writableStackTrace;
+    if (writableStackTrace) {
+      super.fillInStackTrace();
+    }
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return writableStackTrace ? super.fillInStackTrace() : this;
   }
 
   @Override
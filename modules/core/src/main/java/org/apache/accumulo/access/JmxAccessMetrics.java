@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import org.apache.accumulo.access.impl.JmxAccessMetricsImpl;
+import org.apache.accumulo.access.impl.OptionalModules;
+
+/**
+ * Metrics that count events using striped counters, so that threads counting at the same time do
+ * not contend, and publish them as an {@link AccessMetricsMXBean} in the platform MBean server. Use
+ * a separate instance for each {@link Access} instance to publish the metrics of each one.
+ *
+ * <pre>
+ * {@code
+ * var metrics = JmxAccessMetrics.register("ingest");
+ * var access = Access.builder().metrics(metrics).build();
+ * }
+ * </pre>
+ *
+ * <p>
+ * JMX is optional for this library, so an application that uses these metrics must include the
+ * java.management module in its runtime.
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @since 1.0.0
+ */
+public sealed interface JmxAccessMetrics extends AccessMetrics, AccessMetricsMXBean, AutoCloseable
+    permits JmxAccessMetricsImpl {
+
+  /**
+   * Creates metrics and registers them in the platform MBean server with the object name
+   * {@code org.apache.accumulo.access:type=AccessMetrics,name=<name>}.
+   *
+   * @param name identifies the metrics, must not be used by other registered metrics
+   * @throws IllegalArgumentException when the name is not valid in an object name
+   * @throws IllegalStateException when the metrics can not be registered, for example because the
+   *         name is already in use or the java.management module is not present
+   */
+  static JmxAccessMetrics register(String name) {
+    // check before loading the implementation, which can not be loaded without JMX
+    OptionalModules.require("java.management", "JMX metrics");
+    return JmxAccessMetricsImpl.register(name);
+  }
+
+  /**
+   * @return the name the metrics were registered with
+   */
+  String getName();
+
+  /**
+   * Unregisters the metrics from the platform MBean server. The metrics can still be used and
+   * continue counting. Closing metrics that are already closed does nothing.
+   */
+  @Override
+  void close();
+}
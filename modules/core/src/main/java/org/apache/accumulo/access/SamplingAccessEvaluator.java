@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import java.util.List;
+
+import org.apache.accumulo.access.impl.SamplingAccessEvaluatorImpl;
+
+/**
+ * An {@link AccessEvaluator} that samples the expressions it evaluates to find the ones that are
+ * evaluated most often and the ones that take the most time to evaluate. This is useful for finding
+ * the expressions that dominate the time spent evaluating in production, for example to decide
+ * which expressions to compile or how large a cache to use. Since this type is an
+ * {@link AccessEvaluator} it can be used anywhere an evaluator is used.
+ *
+ * <p>
+ * On average one in {@link #getSampleInterval()} evaluations is sampled, chosen at random, and all
+ * other evaluations only pay for drawing a random number. Sampled expressions are counted using the
+ * Space-Saving algorithm, which keeps at most {@link #getCapacity()} expressions for each ranking
+ * no matter how many distinct expressions are seen. An expression that is evaluated often enough is
+ * always kept. When an expression is not kept, an expression that was seen less is replaced and the
+ * new expression inherits its count, so counts may be overestimated by at most
+ * {@link Sample#getError()}. Counts and times are scaled by the sample interval to estimate the
+ * totals of all evaluations.
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ *
+ * @see Access#newSamplingEvaluator(AccessEvaluator, int, int)
+ * @since 1.0.0
+ */
+public sealed interface SamplingAccessEvaluator extends AccessEvaluator
+    permits SamplingAccessEvaluatorImpl {
+
+  /**
+   * An estimate of how often an expression was evaluated and how long it took. Instances of this
+   * class are immutable snapshots.
+   */
+  sealed interface Sample permits SamplingAccessEvaluatorImpl.SampleImpl {
+
+    /**
+     * @return the sampled expression
+     */
+    String getExpression();
+
+    /**
+     * @return the estimated number of times the expression was evaluated
+     */
+    long getCount();
+
+    /**
+     * @return the estimated number of nanoseconds spent evaluating the expression
+     */
+    long getNanos();
+
+    /**
+     * @return the most the value the sample was ranked by, its count or its time, may be
+     *         overestimated
+     */
+    long getError();
+  }
+
+  /**
+   * @return the maximum number of expressions kept for each ranking
+   */
+  int getCapacity();
+
+  /**
+   * @return the average number of evaluations per sampled evaluation
+   */
+  int getSampleInterval();
+
+  /**
+   * @return a snapshot of the expressions that were evaluated most often, most frequent first
+   */
+  List<Sample> getMostFrequent();
+
+  /**
+   * @return a snapshot of the expressions that took the most time to evaluate in total, most
+   *         expensive first
+   */
+  List<Sample> getMostExpensive();
+
+  /**
+   * Forgets all samples, for example to start a new measurement period.
+   */
+  void reset();
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access;
+
+import org.apache.accumulo.access.impl.ValidationResultImpl;
+
+/**
+ * The result of checking an access expression using {@link Access#check(String, ValidationResult)}.
+ * Checking an expression does not throw an exception or allocate any objects when the expression is
+ * not valid, the reason it is not valid is recorded in this object instead. This makes checking
+ * much faster than {@link Access#validateExpression(String)} when many expressions are not valid.
+ * The same result object can be reused to check any number of expressions, each check overwrites
+ * the result of the previous one.
+ *
+ * <p>
+ * Instances of this class are not thread-safe.
+ *
+ * @see Access#newValidationResult()
+ * @since 1.0.0
+ */
+public sealed interface ValidationResult permits ValidationResultImpl {
+
+  /**
+   * The reasons an access expression may not be valid.
+   */
+  enum ErrorKind {
+    /**
+     * The expression ended where a closing parenthesis or an authorization was expected.
+     */
+    UNEXPECTED_END,
+    /**
+     * A character was seen where it is not allowed, for example a character that is not allowed in
+     * an unquoted authorization or an authorization that is not followed by an operator.
+     */
+    UNEXPECTED_CHARACTER,
+    /**
+     * The {@code &} and {@code |} operators were used in the same expression without parentheses.
+     */
+    MIXED_OPERATORS,
+    /**
+     * A quoted authorization is missing its closing quote.
+     */
+    UNCLOSED_QUOTE,
+    /**
+     * A backslash in a quoted authorization is not followed by a quote or backslash.
+     */
+    INVALID_ESCAPE,
+    /**
+     * A quoted authorization is empty.
+     */
+    EMPTY_QUOTED_AUTHORIZATION,
+    /**
+     * An authorization was rejected by the {@link AuthorizationValidator}.
+     */
+    INVALID_AUTHORIZATION,
+    /**
+     * The expression is longer than the maximum length set using
+     * {@link Access.Builder#maxExpressionLength(int)}. The index is the maximum length.
+     */
+    MAX_LENGTH_EXCEEDED,
+    /**
+     * Parentheses are nested deeper than the maximum depth set using
+     * {@link Access.Builder#maxExpressionDepth(int)}. The index is the parenthesis that exceeded
+     * the depth.
+     */
+    MAX_DEPTH_EXCEEDED
+  }
+
+  /**
+   * @return true if the last expression checked was valid
+   */
+  boolean isValid();
+
+  /**
+   * @return the reason the last expression checked was not valid, or null if it was valid
+   */
+  ErrorKind getErrorKind();
+
+  /**
+   * @return the index in the last expression checked where the error was found, or {@code -1} if it
+   *         was valid. For expressions checked as UTF-8 bytes this is a byte offset relative to the
+   *         start of the expression. For {@link ErrorKind#INVALID_AUTHORIZATION} this is the index
+   *         of the start of the authorization, including its opening quote if it is quoted.
+   */
+  int getIndex();
+}
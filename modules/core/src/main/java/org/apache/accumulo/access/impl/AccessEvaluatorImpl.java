@@ -18,43 +18,80 @@
  */
 package org.apache.accumulo.access.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.apache.accumulo.access.AccessEvaluator;
 import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CompiledAccessExpression;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
 
 public final class AccessEvaluatorImpl implements AccessEvaluator {
 
   private final Predicate<CharSequence> authorizedPredicate;
   private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+  // only set when created from a set of authorizations
+  private final AuthorizationSet authorizationSet;
+  // Used to look up authorizations from expressions stored as UTF-8 bytes. When created from a set
+  // of authorizations this is lazily created the first time it is needed, as most evaluators will
+  // never see an expression stored as bytes.
+  private final AtomicReference<Predicate<BytesWrapper>> bytesAuthorizedPredicate =
+      new AtomicReference<>();
 
   /**
    * Create an AccessEvaluatorImpl using an Authorizer object
    */
-  AccessEvaluatorImpl(Predicate<String> authorizationChecker,
-      AuthorizationValidator authorizationValidator) {
-    this.authorizedPredicate = auth -> authorizationChecker.test(auth.toString());
+  AccessEvaluatorImpl(Predicate<CharSequence> authorizationChecker,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    this(authorizationChecker, authorizationChecker::test, authorizationValidator, options);
+  }
+
+  /**
+   * Create an AccessEvaluatorImpl using an Authorizer object and a separate one for authorizations
+   * from expressions stored as UTF-8 bytes, so that the bytes do not have to be decoded
+   */
+  AccessEvaluatorImpl(Predicate<CharSequence> authorizationChecker,
+      Predicate<BytesWrapper> bytesAuthorizationChecker,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    this.authorizedPredicate = authorizationChecker;
     this.authorizationValidator = authorizationValidator;
+    this.options = options;
+    this.authorizationSet = null;
+    this.bytesAuthorizedPredicate.set(bytesAuthorizationChecker);
   }
 
   /**
    * Create an AccessEvaluatorImpl using a collection of authorizations
    */
   AccessEvaluatorImpl(Set<String> authorizations, Consumer<String> authArgumentValidator,
-      AuthorizationValidator authorizationValidator) {
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
 
-    final Set<CharsWrapper> wrappedAuths = new HashSet<>(authorizations.size());
-    authorizations.forEach(authArgumentValidator
-        .andThen(auth -> wrappedAuths.add(new CharsWrapper(auth.toCharArray()))));
+    authorizations.forEach(authArgumentValidator);
+    final AuthorizationSet authorizationSet = AuthorizationSet.of(authorizations);
 
-    this.authorizedPredicate =
-        auth -> auth instanceof CharsWrapper wrapped ? wrappedAuths.contains(wrapped)
-            : wrappedAuths.contains(new CharsWrapper(auth.toString().toCharArray()));
+    this.authorizedPredicate = authorizationSet::contains;
     this.authorizationValidator = authorizationValidator;
+    this.options = options;
+    this.authorizationSet = authorizationSet;
+  }
+
+  private Predicate<BytesWrapper> getBytesAuthorizedPredicate() {
+    var predicate = bytesAuthorizedPredicate.get();
+    if (predicate == null) {
+      final Set<BytesWrapper> utf8Auths = new HashSet<>(authorizationSet.size());
+      authorizationSet.forEach(auth -> utf8Auths.add(new BytesWrapper(auth.getBytes(UTF_8))));
+      bytesAuthorizedPredicate.compareAndSet(null, utf8Auths::contains);
+      // must get() again in case another thread won w/ the compare and set
+      predicate = bytesAuthorizedPredicate.get();
+    }
+    return predicate;
   }
 
   @Override
@@ -62,18 +99,30 @@ public final class AccessEvaluatorImpl implements AccessEvaluator {
     return evaluate(expression);
   }
 
-  boolean evaluate(String accessExpression) throws InvalidAccessExpressionException {
-    var charsWrapper = ParserEvaluator.lookupWrappers.get();
-    Predicate<Tokenizer.AuthorizationToken> atp = authToken -> authorizedPredicate
-        .test(ParserEvaluator.validateAuth(authorizationValidator, authToken, charsWrapper));
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    return ((CompiledAccessExpressionImpl) compiledExpression).evaluate(authorizedPredicate,
+        options);
+  }
 
-    // This is used once the expression is known to always be true or false. For this case only need
-    // to validate authorizations, do not need to look them up in a set.
-    Predicate<Tokenizer.AuthorizationToken> shortCircuit = authToken -> {
-      ParserEvaluator.validateAuth(authorizationValidator, authToken, charsWrapper);
-      return true;
-    };
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    Objects.checkFromIndexSize(offset, length, expression.length);
+    var bytesAuthorized = getBytesAuthorizedPredicate();
+    try (var context = ParseContext.acquire()) {
+      var lookup = context.bytesLookup.set(authorizationValidator, bytesAuthorized);
+      return ParserEvaluator.evaluate(context.tokenizer(expression, offset, length, options),
+          lookup, lookup.shortCircuit, options);
+    }
+  }
 
-    return ParserEvaluator.parseAccessExpression(accessExpression, atp, shortCircuit);
+  boolean evaluate(String accessExpression) throws InvalidAccessExpressionException {
+    // The lookup is reused by the context, so evaluating an expression does not allocate.
+    try (var context = ParseContext.acquire()) {
+      var lookup = context.charsLookup.set(authorizationValidator, authorizedPredicate);
+      return ParserEvaluator.evaluate(context.tokenizer(accessExpression, options), lookup,
+          lookup.shortCircuit, options);
+    }
   }
 }
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events for finding expressions that are slow to evaluate or not valid, and
+ * evaluators that are slow to create. The events record the shape of an expression but never the
+ * expression or its authorizations, as those may be sensitive.
+ *
+ * <p>
+ * When no recording is running, or an event is disabled, creating and committing an event does
+ * nothing. The JIT compiler can only remove an event that it does not see escape, which depends on
+ * how the evaluating method is inlined, so an evaluation event is not created at all unless it is
+ * enabled. The threshold of the evaluation event is configured like any other JFR setting, for
+ * example {@code -XX:StartFlightRecording:org.apache.accumulo.access.Evaluation#threshold=100us}.
+ *
+ * <p>
+ * The jdk.jfr module is optional, a runtime image may not include it. The event classes are in
+ * {@link Jfr}, which is only loaded when the module is present and readable, otherwise events are
+ * {@code null} and reporting them does nothing. Callers only see events as objects, so they never
+ * load a JFR class either.
+ */
+final class AccessEvents {
+
+  static final String CATEGORY = "Accumulo Access";
+
+  private static final boolean ENABLED = OptionalModules.isPresent("jdk.jfr");
+
+  private AccessEvents() {}
+
+  static void validationFailed(ErrorKind reason, int length) {
+    if (ENABLED) {
+      Jfr.validationFailed(reason, length);
+    }
+  }
+
+  /**
+   * Begins an evaluation event, call this before evaluating an expression.
+   *
+   * @return the event to pass to {@link #evaluated}, or {@code null} when JFR is not present or the
+   *         event is not enabled
+   */
+  static Object beginEvaluation() {
+    return ENABLED ? Jfr.beginEvaluation() : null;
+  }
+
+  /**
+   * Commits an evaluation event that was begun before the expression was evaluated, when it took
+   * longer than the threshold.
+   */
+  static void evaluated(Object event, boolean compiled, boolean accessible, int length, int depth,
+      int authorizations, int lookups) {
+    if (event != null) {
+      Jfr.evaluated(event, compiled, accessible, length, depth, authorizations, lookups);
+    }
+  }
+
+  /**
+   * Begins an evaluator creation event, call this before creating an evaluator.
+   *
+   * @return the event to pass to {@link #created}, or {@code null} when JFR is not present
+   */
+  static Object beginCreation() {
+    return ENABLED ? Jfr.beginCreation() : null;
+  }
+
+  /**
+   * Commits an evaluator creation event that was begun before the evaluator was created.
+   *
+   * @return the evaluator
+   */
+  static <T> T created(Object event, T evaluator, int authorizations) {
+    if (event != null) {
+      Jfr.created(event, evaluator, authorizations);
+    }
+    return evaluator;
+  }
+
+  /**
+   * Holds the event classes, so that they are only loaded once JFR is known to be present.
+   */
+  private static final class Jfr {
+
+    private Jfr() {}
+
+    @Name("org.apache.accumulo.access.Evaluation")
+    @Label("Access Expression Evaluation")
+    @Category(CATEGORY)
+    @Description("An access expression that took longer than the threshold to evaluate")
+    @Threshold("1 ms")
+    static final class Evaluation extends Event {
+      @Label("Expression Length")
+      @Description("The length of the expression in chars, or in bytes for UTF-8 expressions")
+      int length;
+
+      @Label("Depth")
+      @Description("How deeply parentheses are nested")
+      int depth;
+
+      @Label("Authorizations")
+      @Description("The number of authorization tokens in the expression")
+      int authorizations;
+
+      @Label("Lookups")
+      @Description("The number of authorizations that were not short circuited")
+      int lookups;
+
+      @Label("Accessible")
+      boolean accessible;
+
+      @Label("Compiled")
+      boolean compiled;
+    }
+
+    @Name("org.apache.accumulo.access.ValidationFailure")
+    @Label("Access Expression Validation Failure")
+    @Category(CATEGORY)
+    @Description("An access expression that is not valid")
+    static final class ValidationFailure extends Event {
+      @Label("Reason")
+      String reason;
+
+      @Label("Expression Length")
+      @Description("The length of the expression in chars, or in bytes for UTF-8 expressions")
+      int length;
+    }
+
+    @Name("org.apache.accumulo.access.EvaluatorCreation")
+    @Label("Access Evaluator Creation")
+    @Category(CATEGORY)
+    @Description("An evaluator that was created from authorizations")
+    @StackTrace(false)
+    static final class EvaluatorCreation extends Event {
+      @Label("Evaluator")
+      String evaluator;
+
+      @Label("Authorizations")
+      @Description("The number of authorizations, or of sets of authorizations")
+      int authorizations;
+    }
+
+    static void validationFailed(ErrorKind reason, int length) {
+      var event = new ValidationFailure();
+      if (event.shouldCommit()) {
+        event.reason = reason.name();
+        event.length = length;
+        event.commit();
+      }
+    }
+
+    private static final EventType EVALUATION = EventType.getEventType(Evaluation.class);
+
+    static Object beginEvaluation() {
+      if (!EVALUATION.isEnabled()) {
+        return null;
+      }
+      var event = new Evaluation();
+      event.begin();
+      return event;
+    }
+
+    static void evaluated(Object begun, boolean compiled, boolean accessible, int length, int depth,
+        int authorizations, int lookups) {
+      var event = (Evaluation) begun;
+      event.end();
+      if (event.shouldCommit()) {
+        event.compiled = compiled;
+        event.accessible = accessible;
+        event.length = length;
+        event.depth = depth;
+        event.authorizations = authorizations;
+        event.lookups = lookups;
+        event.commit();
+      }
+    }
+
+    static Object beginCreation() {
+      var event = new EvaluatorCreation();
+      event.begin();
+      return event;
+    }
+
+    static void created(Object begun, Object evaluator, int authorizations) {
+      var event = (EvaluatorCreation) begun;
+      event.end();
+      if (event.shouldCommit()) {
+        event.evaluator = evaluator.getClass().getSimpleName();
+        event.authorizations = authorizations;
+        event.commit();
+      }
+    }
+  }
+}
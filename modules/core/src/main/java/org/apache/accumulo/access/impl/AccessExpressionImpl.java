@@ -21,6 +21,7 @@ package org.apache.accumulo.access.impl;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.accumulo.access.AccessExpression;
+import org.apache.accumulo.access.CompiledAccessExpression;
 import org.apache.accumulo.access.ParsedAccessExpression;
 
 public final class AccessExpressionImpl extends AccessExpression {
@@ -30,6 +31,7 @@ public final class AccessExpressionImpl extends AccessExpression {
 
   private final String expression;
   private final AtomicReference<ParsedAccessExpression> parseTreeRef = new AtomicReference<>();
+  private final AtomicReference<CompiledAccessExpression> compiledRef = new AtomicReference<>();
 
   AccessExpressionImpl(String expression) {
     this.expression = expression;
@@ -46,8 +48,8 @@ public final class AccessExpressionImpl extends AccessExpression {
     if (parseTree == null) {
       // This expression authorizations were already validated, so can pass a lambda that always
       // returns true
-      parseTreeRef.compareAndSet(null,
-          ParsedAccessExpressionImpl.parseExpression(expression, (auth, quoting) -> true));
+      parseTreeRef.compareAndSet(null, ParsedAccessExpressionImpl.parseExpression(expression,
+          (auth, quoting) -> true, ParseOptions.NONE));
       // must get() again in case another thread won w/ the compare and set, this ensures this
       // method always returns the exact same object
       parseTree = parseTreeRef.get();
@@ -55,4 +57,19 @@ public final class AccessExpressionImpl extends AccessExpression {
     return parseTree;
   }
 
+  @Override
+  public CompiledAccessExpression compile() {
+    CompiledAccessExpression compiled = compiledRef.get();
+    if (compiled == null) {
+      // This expression authorizations were already validated, so can pass a lambda that always
+      // returns true
+      compiledRef.compareAndSet(null, CompiledAccessExpressionImpl.compile(expression,
+          (auth, quoting) -> true, ParseOptions.NONE));
+      // must get() again in case another thread won w/ the compare and set, this ensures this
+      // method always returns the exact same object
+      compiled = compiledRef.get();
+    }
+    return compiled;
+  }
+
 }
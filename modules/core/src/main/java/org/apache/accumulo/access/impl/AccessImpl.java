@@ -20,24 +20,36 @@ package org.apache.accumulo.access.impl;
 
 import static org.apache.accumulo.access.AuthorizationValidator.AuthorizationCharacters.ANY;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.accumulo.access.Access;
 import org.apache.accumulo.access.AccessEvaluator;
 import org.apache.accumulo.access.AccessExpression;
+import org.apache.accumulo.access.AuthorizationDictionary;
 import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.BulkAccessEvaluator;
+import org.apache.accumulo.access.CachingAccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.GroupAccessEvaluator;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
 import org.apache.accumulo.access.InvalidAuthorizationException;
 import org.apache.accumulo.access.ParsedAccessExpression;
+import org.apache.accumulo.access.SamplingAccessEvaluator;
+import org.apache.accumulo.access.ValidationResult;
 
 public class AccessImpl implements Access {
 
   private final AuthorizationValidator authValidator;
+  private final ParseOptions options;
 
   private void validateAuthArgument(CharSequence auth) {
     if (auth.isEmpty()) {
@@ -48,8 +60,9 @@ public class AccessImpl implements Access {
     }
   }
 
-  public AccessImpl(AuthorizationValidator authValidator) {
+  public AccessImpl(AuthorizationValidator authValidator, ParseOptions options) {
     this.authValidator = Objects.requireNonNull(authValidator);
+    this.options = Objects.requireNonNull(options);
   }
 
   @Override
@@ -63,13 +76,18 @@ public class AccessImpl implements Access {
 
   @Override
   public ParsedAccessExpression newParsedExpression(String expression) {
-    return ParsedAccessExpressionImpl.parseExpression(expression, authValidator);
+    return ParsedAccessExpressionImpl.parseExpression(expression, authValidator, options);
+  }
+
+  @Override
+  public CompiledAccessExpression compile(String expression) {
+    return CompiledAccessExpressionImpl.compile(expression, authValidator, options);
   }
 
   @Override
   public void findAuthorizations(String expression, Consumer<String> authorizationConsumer)
       throws InvalidAccessExpressionException {
-    ParserEvaluator.findAuthorizations(expression, authorizationConsumer, authValidator);
+    ParserEvaluator.findAuthorizations(expression, authorizationConsumer, authValidator, options);
   }
 
   @Override
@@ -106,23 +124,121 @@ public class AccessImpl implements Access {
 
   @Override
   public void validateExpression(String expression) throws InvalidAccessExpressionException {
-    ParserEvaluator.validate(expression, authValidator);
+    ParserEvaluator.validate(expression, authValidator, options);
+  }
+
+  @Override
+  public void validateExpression(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    Objects.checkFromIndexSize(offset, length, expression.length);
+    ParserEvaluator.validate(expression, offset, length, authValidator, options);
+  }
+
+  @Override
+  public boolean check(String expression, ValidationResult result) {
+    Objects.requireNonNull(expression);
+    return ParserEvaluator.check(expression, authValidator, options, (ValidationResultImpl) result);
+  }
+
+  @Override
+  public boolean check(byte[] expression, int offset, int length, ValidationResult result) {
+    Objects.checkFromIndexSize(offset, length, expression.length);
+    Objects.requireNonNull(result);
+    return ParserEvaluator.check(expression, offset, length, authValidator, options,
+        (ValidationResultImpl) result);
+  }
+
+  @Override
+  public ValidationResult check(String expression) {
+    var result = newValidationResult();
+    check(expression, result);
+    return result;
+  }
+
+  @Override
+  public ValidationResult newValidationResult() {
+    return new ValidationResultImpl();
   }
 
   @Override
   public AccessEvaluator newEvaluator(Set<String> authorizations) {
-    return new AccessEvaluatorImpl(authorizations, this::validateAuthArgument, authValidator);
+    var event = AccessEvents.beginCreation();
+    return AccessEvents.created(event,
+        new AccessEvaluatorImpl(authorizations, this::validateAuthArgument, authValidator, options),
+        authorizations.size());
+  }
+
+  @Override
+  public AccessEvaluator newTrieEvaluator(Set<String> authorizations) {
+    var event = AccessEvents.beginCreation();
+    return AccessEvents.created(event, new TrieAccessEvaluatorImpl(authorizations,
+        this::validateAuthArgument, authValidator, options), authorizations.size());
   }
 
   @Override
   public AccessEvaluator newEvaluator(Predicate<String> authorizer) {
-    return new AccessEvaluatorImpl(authorizer, authValidator);
+    Objects.requireNonNull(authorizer);
+    return new AccessEvaluatorImpl(auth -> authorizer.test(auth.toString()), authValidator,
+        options);
+  }
+
+  @Override
+  public AccessEvaluator newCharSequenceEvaluator(Predicate<CharSequence> authorizer) {
+    return new AccessEvaluatorImpl(Objects.requireNonNull(authorizer), authValidator, options);
+  }
+
+  @Override
+  public CachingAccessEvaluator newMemoizingEvaluator(Predicate<String> authorizer, int capacity) {
+    return new MemoizingAccessEvaluatorImpl(Objects.requireNonNull(authorizer), capacity, 0,
+        authValidator, options);
+  }
+
+  @Override
+  public CachingAccessEvaluator newMemoizingEvaluator(Predicate<String> authorizer, int capacity,
+      Duration timeToLive) {
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException("Time to live must be positive : " + timeToLive);
+    }
+    // durations longer than about 292 years can not be represented in nanoseconds
+    long ttlNanos = timeToLive.compareTo(Duration.ofNanos(Long.MAX_VALUE)) > 0 ? Long.MAX_VALUE
+        : timeToLive.toNanos();
+    return new MemoizingAccessEvaluatorImpl(Objects.requireNonNull(authorizer), capacity, ttlNanos,
+        authValidator, options);
+  }
+
+  @Override
+  public BulkAccessEvaluator newBulkEvaluator(
+      Function<Set<String>,CompletableFuture<Set<String>>> bulkAuthorizer, Executor executor) {
+    return new BulkAccessEvaluatorImpl(bulkAuthorizer, executor, authValidator, options);
   }
 
   @Override
   public AccessEvaluator newEvaluator(Collection<Set<String>> authorizationSets) {
-    var evaluators = new ArrayList<AccessEvaluator>(authorizationSets.size());
-    authorizationSets.forEach(set -> evaluators.add(newEvaluator(set)));
-    return new MultiAccessEvaluatorImpl(evaluators);
+    var event = AccessEvents.beginCreation();
+    return AccessEvents.created(event, new MultiAccessEvaluatorImpl(authorizationSets,
+        this::validateAuthArgument, authValidator, options), authorizationSets.size());
+  }
+
+  @Override
+  public CachingAccessEvaluator newCachingEvaluator(AccessEvaluator evaluator, int capacity) {
+    return new CachingAccessEvaluatorImpl(evaluator, capacity);
+  }
+
+  @Override
+  public SamplingAccessEvaluator newSamplingEvaluator(AccessEvaluator evaluator, int capacity,
+      int sampleInterval) {
+    return new SamplingAccessEvaluatorImpl(evaluator, capacity, sampleInterval);
+  }
+
+  @Override
+  public AuthorizationDictionary newAuthorizationDictionary() {
+    return new AuthorizationDictionaryImpl(this::validateAuthArgument, authValidator, options);
+  }
+
+  @Override
+  public GroupAccessEvaluator newGroupEvaluator(List<Set<String>> authorizationSets) {
+    var event = AccessEvents.beginCreation();
+    return AccessEvents.created(event, new GroupAccessEvaluatorImpl(authorizationSets,
+        this::validateAuthArgument, authValidator, options), authorizationSets.size());
   }
 }
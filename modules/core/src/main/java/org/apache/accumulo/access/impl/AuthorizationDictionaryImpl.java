@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.AuthorizationDictionary;
+import org.apache.accumulo.access.AuthorizationValidator;
+
+public final class AuthorizationDictionaryImpl implements AuthorizationDictionary {
+
+  private final Consumer<String> authArgumentValidator;
+  private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+  // Lookups are done with wrappers that can be reused, so that looking up an authorization seen in
+  // an expression does not allocate. Both maps are only changed while holding the lock on this.
+  private final Map<CharsWrapper,Integer> ids = new ConcurrentHashMap<>();
+  private final Map<BytesWrapper,Integer> utf8Ids = new ConcurrentHashMap<>();
+  private volatile int size = 0;
+
+  AuthorizationDictionaryImpl(Consumer<String> authArgumentValidator,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    this.authArgumentValidator = authArgumentValidator;
+    this.authorizationValidator = authorizationValidator;
+    this.options = options;
+  }
+
+  @Override
+  public int add(String authorization) {
+    var id = ids.get(new CharsWrapper(authorization));
+    if (id != null) {
+      return id;
+    }
+    authArgumentValidator.accept(authorization);
+    synchronized (this) {
+      var wrapped = new CharsWrapper(authorization);
+      id = ids.get(wrapped);
+      if (id == null) {
+        id = size;
+        utf8Ids.put(new BytesWrapper(authorization.getBytes(UTF_8)), id);
+        ids.put(wrapped, id);
+        // set the size last, so that any id less than the size is known to be in both maps
+        size = id + 1;
+      }
+      return id;
+    }
+  }
+
+  @Override
+  public int getId(String authorization) {
+    return getId(new CharsWrapper(Objects.requireNonNull(authorization)));
+  }
+
+  int getId(CharSequence authorization) {
+    var id = ids.get(authorization instanceof CharsWrapper wrapped ? wrapped
+        : new CharsWrapper(authorization.toString()));
+    return id == null ? -1 : id;
+  }
+
+  int getId(BytesWrapper authorization) {
+    var id = utf8Ids.get(authorization);
+    return id == null ? -1 : id;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public AccessEvaluator newEvaluator(Set<String> authorizations) {
+    var event = AccessEvents.beginCreation();
+    long[] bits = new long[0];
+    for (String auth : authorizations) {
+      int id = add(auth);
+      int word = id >>> 6;
+      if (word >= bits.length) {
+        bits = Arrays.copyOf(bits, word + 1);
+      }
+      bits[word] |= 1L << id;
+    }
+    return AccessEvents.created(event,
+        new DictionaryAccessEvaluatorImpl(this, bits, authorizationValidator, options),
+        authorizations.size());
+  }
+}
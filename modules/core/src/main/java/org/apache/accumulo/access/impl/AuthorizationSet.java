@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+
+/**
+ * An immutable set of authorizations that can be searched using a range of chars, so looking up an
+ * authorization seen in an expression does not allocate. The representation is chosen based on the
+ * number of authorizations when the set is created.
+ *
+ * <ul>
+ * <li>Small sets are scanned linearly, comparing lengths before chars. For a few authorizations
+ * this is faster than hashing the authorization.</li>
+ * <li>Larger sets use an open addressing hash table. The chars of all authorizations are packed
+ * into a single array and the table only stores ints, so a lookup touches few cache lines.</li>
+ * <li>Very large sets add a Bloom filter that is checked before the hash table. Most authorizations
+ * looked up in a large set are usually not in it, and the filter rejects them without touching the
+ * much larger table and chars.</li>
+ * </ul>
+ */
+abstract class AuthorizationSet {
+
+  static final int MAX_LINEAR_SIZE = 8;
+  static final int MIN_BLOOM_FILTER_SIZE = 4096;
+
+  static AuthorizationSet of(Collection<String> authorizations) {
+    var distinct = new LinkedHashSet<>(authorizations);
+    if (distinct.size() <= MAX_LINEAR_SIZE) {
+      return new Linear(distinct);
+    }
+    return new Hashed(distinct, distinct.size() >= MIN_BLOOM_FILTER_SIZE);
+  }
+
+  abstract boolean contains(char[] chars, int offset, int len);
+
+  abstract int size();
+
+  abstract void forEach(Consumer<String> action);
+
+  boolean contains(CharSequence authorization) {
+    if (authorization instanceof CharsWrapper wrapped) {
+      return contains(wrapped.array(), wrapped.offset(), wrapped.length());
+    }
+    char[] chars = authorization.toString().toCharArray();
+    return contains(chars, 0, chars.length);
+  }
+
+  static final class Linear extends AuthorizationSet {
+    private final char[][] authorizations;
+
+    Linear(Collection<String> authorizations) {
+      this.authorizations = authorizations.stream().map(String::toCharArray).toArray(char[][]::new);
+    }
+
+    @Override
+    boolean contains(char[] chars, int offset, int len) {
+      for (char[] auth : authorizations) {
+        if (auth.length == len && Arrays.equals(auth, 0, len, chars, offset, offset + len)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    int size() {
+      return authorizations.length;
+    }
+
+    @Override
+    void forEach(Consumer<String> action) {
+      for (char[] auth : authorizations) {
+        action.accept(new String(auth));
+      }
+    }
+  }
+
+  static final class Hashed extends AuthorizationSet {
+    // the chars of all authorizations, the authorization i is in [starts[i], starts[i+1])
+    private final char[] arena;
+    private final int[] starts;
+    private final int[] hashes;
+    // index of an authorization plus one, zero for an empty slot
+    private final int[] table;
+    private final int tableMask;
+    // null when the set is not large enough to need a filter
+    private final long[] bloomFilter;
+    private final int bloomMask;
+
+    Hashed(Collection<String> authorizations, boolean useBloomFilter) {
+      int size = authorizations.size();
+      this.starts = new int[size + 1];
+      this.hashes = new int[size];
+      int totalLength = 0;
+      for (String auth : authorizations) {
+        totalLength = Math.addExact(totalLength, auth.length());
+      }
+      this.arena = new char[totalLength];
+
+      // keep the table at most half full so that probe sequences are short
+      int tableSize = Integer.highestOneBit(Math.max(size, 1)) << 2;
+      this.table = new int[tableSize];
+      this.tableMask = tableSize - 1;
+
+      if (useBloomFilter) {
+        // about 16 bits per authorization, with two hash functions this rejects ~99% of misses
+        int words = Math.max(1, Integer.highestOneBit(size) >>> 2);
+        this.bloomFilter = new long[words];
+        this.bloomMask = (words << 6) - 1;
+      } else {
+        this.bloomFilter = null;
+        this.bloomMask = 0;
+      }
+
+      int i = 0;
+      for (String auth : authorizations) {
+        int start = starts[i];
+        auth.getChars(0, auth.length(), arena, start);
+        starts[i + 1] = start + auth.length();
+        int hash = hash(arena, start, auth.length());
+        hashes[i] = hash;
+        int slot = hash & tableMask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & tableMask;
+        }
+        table[slot] = i + 1;
+        if (bloomFilter != null) {
+          int bit1 = hash & bloomMask;
+          int bit2 = (hash >>> 16 | hash << 16) & bloomMask;
+          bloomFilter[bit1 >>> 6] |= 1L << bit1;
+          bloomFilter[bit2 >>> 6] |= 1L << bit2;
+        }
+        i++;
+      }
+    }
+
+    private static int hash(char[] chars, int offset, int len) {
+      int hash = 1;
+      int end = offset + len;
+      for (int i = offset; i < end; i++) {
+        hash = 31 * hash + chars[i];
+      }
+      // spread the bits, the low bits of the polynomial hash of similar strings are similar
+      hash *= 0x9E3779B9;
+      return hash ^ (hash >>> 15);
+    }
+
+    @Override
+    boolean contains(char[] chars, int offset, int len) {
+      final int hash = hash(chars, offset, len);
+      if (bloomFilter != null) {
+        int bit1 = hash & bloomMask;
+        int bit2 = (hash >>> 16 | hash << 16) & bloomMask;
+        if ((bloomFilter[bit1 >>> 6] & (1L << bit1)) == 0
+            || (bloomFilter[bit2 >>> 6] & (1L << bit2)) == 0) {
+          return false;
+        }
+      }
+      int slot = hash & tableMask;
+      while (true) {
+        int entry = table[slot];
+        if (entry == 0) {
+          return false;
+        }
+        entry--;
+        if (hashes[entry] == hash) {
+          int start = starts[entry];
+          int end = starts[entry + 1];
+          if (end - start == len && Arrays.equals(arena, start, end, chars, offset, offset + len)) {
+            return true;
+          }
+        }
+        slot = (slot + 1) & tableMask;
+      }
+    }
+
+    @Override
+    int size() {
+      return hashes.length;
+    }
+
+    @Override
+    void forEach(Consumer<String> action) {
+      for (int i = 0; i < hashes.length; i++) {
+        action.accept(new String(arena, starts[i], starts[i + 1] - starts[i]));
+      }
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * A path compressed trie of a set of authorizations. Each node has a label, the chars that follow
+ * the chars that led to the node when no authorization branches off, and a row in a table of
+ * transitions to child nodes with a column for each distinct char used by the authorizations. The
+ * labels of all nodes are packed into one array of chars.
+ *
+ * <p>
+ * Looking up an authorization compares whole labels at a time, the same way comparing strings does,
+ * and follows one transition each time authorizations branch. Nothing is hashed, and an
+ * authorization that does not start like any in the set is rejected as soon as a label does not
+ * match, without reading the rest of it.
+ */
+final class AuthorizationTrie {
+
+  // returned by find when an authorization is not in the trie
+  static final int DEAD = 0;
+  static final int ROOT = 1;
+
+  // column zero is used for chars that are not in any authorization and always leads to DEAD
+  private final int[] asciiColumns = new int[128];
+  // sorted non-ASCII chars used by the authorizations, the column of otherChars[i] is
+  // firstOtherColumn + i
+  private final char[] otherChars;
+  private final int firstOtherColumn;
+  private final int width;
+
+  private char[] labels;
+  private int labelsLength;
+  // indexed by node, the label of node n is in [labelStarts[n], labelStarts[n] + labelLengths[n])
+  private int[] labelStarts;
+  private int[] labelLengths;
+  private boolean[] accepting;
+  // indexed by node, zero when a node has no children which is a row that only leads to DEAD
+  private int[] rows;
+  private int nodes;
+  private int[] transitions;
+  private int rowCount;
+
+  AuthorizationTrie(Collection<String> authorizations) {
+    String[] sorted = new TreeSet<>(authorizations).toArray(String[]::new);
+
+    TreeSet<Character> chars = new TreeSet<>();
+    int totalLength = 0;
+    for (String auth : sorted) {
+      auth.chars().forEach(c -> chars.add((char) c));
+      totalLength = Math.addExact(totalLength, auth.length());
+    }
+    int column = 1;
+    int otherCount = 0;
+    for (char c : chars) {
+      if (c < 128) {
+        asciiColumns[c] = column++;
+      } else {
+        otherCount++;
+      }
+    }
+    this.firstOtherColumn = column;
+    this.otherChars = new char[otherCount];
+    int i = 0;
+    for (char c : chars) {
+      if (c >= 128) {
+        otherChars[i++] = c;
+      }
+    }
+    this.width = firstOtherColumn + otherCount;
+
+    // the labels are never longer than all the authorizations
+    this.labels = new char[totalLength];
+    this.labelStarts = new int[16];
+    this.labelLengths = new int[16];
+    this.accepting = new boolean[16];
+    this.rows = new int[16];
+    this.transitions = new int[width * 4];
+    // the DEAD node and the row that only leads to it
+    nodes = 1;
+    rowCount = 1;
+    if (sorted.length == 0) {
+      addNode(0, 0);
+    } else {
+      build(sorted, 0, sorted.length, 0);
+    }
+    this.labels = Arrays.copyOf(labels, labelsLength);
+    this.labelStarts = Arrays.copyOf(labelStarts, nodes);
+    this.labelLengths = Arrays.copyOf(labelLengths, nodes);
+    this.accepting = Arrays.copyOf(accepting, nodes);
+    this.rows = Arrays.copyOf(rows, nodes);
+    this.transitions = Arrays.copyOf(transitions, rowCount * width);
+  }
+
+  private int addNode(int labelStart, int labelLength) {
+    if (nodes == rows.length) {
+      int newLength = Math.multiplyExact(nodes, 2);
+      labelStarts = Arrays.copyOf(labelStarts, newLength);
+      labelLengths = Arrays.copyOf(labelLengths, newLength);
+      accepting = Arrays.copyOf(accepting, newLength);
+      rows = Arrays.copyOf(rows, newLength);
+    }
+    labelStarts[nodes] = labelStart;
+    labelLengths[nodes] = labelLength;
+    return nodes++;
+  }
+
+  /**
+   * Adds a node for sorted authorizations in [lo, hi) that all start with the same depth chars,
+   * which have already been consumed by the parents of the node.
+   */
+  private int build(String[] sorted, int lo, int hi, int depth) {
+    // the range is sorted, so the first and last share the longest prefix of the whole range
+    String first = sorted[lo];
+    String last = sorted[hi - 1];
+    int common = depth;
+    while (common < first.length() && common < last.length()
+        && first.charAt(common) == last.charAt(common)) {
+      common++;
+    }
+
+    first.getChars(depth, common, labels, labelsLength);
+    int node = addNode(labelsLength, common - depth);
+    labelsLength += common - depth;
+    if (first.length() == common) {
+      // the shortest is first when sorted
+      accepting[node] = true;
+      lo++;
+    }
+
+    if (lo < hi) {
+      if (rowCount * width == transitions.length) {
+        transitions = Arrays.copyOf(transitions, Math.multiplyExact(transitions.length, 2));
+      }
+      int row = rowCount++;
+      rows[node] = row;
+      while (lo < hi) {
+        char c = sorted[lo].charAt(common);
+        int groupEnd = lo + 1;
+        while (groupEnd < hi && sorted[groupEnd].charAt(common) == c) {
+          groupEnd++;
+        }
+        transitions[row * width + column(c)] = build(sorted, lo, groupEnd, common + 1);
+        lo = groupEnd;
+      }
+    }
+    return node;
+  }
+
+  private int column(char c) {
+    if (c < 128) {
+      return asciiColumns[c];
+    }
+    int index = Arrays.binarySearch(otherChars, c);
+    return index < 0 ? 0 : firstOtherColumn + index;
+  }
+
+  /**
+   * @return the node reached by the chars in [start, end), or {@link #DEAD} if no authorization
+   *         starts with them
+   */
+  int find(char[] chars, int start, int end) {
+    int node = ROOT;
+    int i = start;
+    while (true) {
+      int labelStart = labelStarts[node];
+      int labelEnd = labelStart + labelLengths[node];
+      int next = i + labelEnd - labelStart;
+      if (next > end || !Arrays.equals(labels, labelStart, labelEnd, chars, i, next)) {
+        return DEAD;
+      }
+      if (next == end) {
+        return node;
+      }
+      node = transitions[rows[node] * width + column(chars[next])];
+      if (node == DEAD) {
+        return DEAD;
+      }
+      i = next + 1;
+    }
+  }
+
+  boolean isAuthorization(int node) {
+    return accepting[node];
+  }
+
+  boolean contains(char[] chars, int start, int end) {
+    return accepting[find(chars, start, end)];
+  }
+
+  /**
+   * Looks up UTF-8 bytes. ASCII bytes are compared with the labels as chars, the bytes are only
+   * decoded when a non-ASCII byte is reached before the lookup is decided.
+   */
+  boolean contains(byte[] bytes, int start, int end) {
+    int node = ROOT;
+    int i = start;
+    while (true) {
+      int labelStart = labelStarts[node];
+      int labelLength = labelLengths[node];
+      int next = i + labelLength;
+      // every char is at least one byte, so a label that does not fit in the bytes does not fit in
+      // the decoded chars either
+      if (next > end) {
+        return false;
+      }
+      for (int j = 0; j < labelLength; j++) {
+        byte b = bytes[i + j];
+        if (b < 0) {
+          return containsDecoded(bytes, start, end);
+        }
+        if (labels[labelStart + j] != b) {
+          return false;
+        }
+      }
+      if (next == end) {
+        return accepting[node];
+      }
+      byte b = bytes[next];
+      if (b < 0) {
+        return containsDecoded(bytes, start, end);
+      }
+      node = transitions[rows[node] * width + asciiColumns[b]];
+      if (node == DEAD) {
+        return false;
+      }
+      i = next + 1;
+    }
+  }
+
+  private boolean containsDecoded(byte[] bytes, int start, int end) {
+    char[] chars = new String(bytes, start, end - start, UTF_8).toCharArray();
+    return contains(chars, 0, chars.length);
+  }
+
+  boolean contains(CharSequence authorization) {
+    if (authorization instanceof CharsWrapper wrapped) {
+      return contains(wrapped.array(), wrapped.offset(), wrapped.offset() + wrapped.length());
+    }
+    if (authorization instanceof BytesWrapper wrapped) {
+      return contains(wrapped.array(), wrapped.offset(), wrapped.offset() + wrapped.byteLength());
+    }
+    char[] chars = authorization.toString().toCharArray();
+    return contains(chars, 0, chars.length);
+  }
+}
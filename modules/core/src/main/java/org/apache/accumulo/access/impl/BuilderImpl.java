@@ -21,11 +21,15 @@ package org.apache.accumulo.access.impl;
 import java.util.Objects;
 
 import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessMetrics;
 import org.apache.accumulo.access.AuthorizationValidator;
 
 public class BuilderImpl implements Access.Builder {
 
   private AuthorizationValidator validator;
+  private int maxLength = Integer.MAX_VALUE;
+  private int maxDepth = Integer.MAX_VALUE;
+  private AccessMetrics metrics = AccessMetrics.NONE;
 
   @Override
   public Access.Builder authorizationValidator(AuthorizationValidator validator) {
@@ -33,8 +37,33 @@ public class BuilderImpl implements Access.Builder {
     return this;
   }
 
+  @Override
+  public Access.Builder maxExpressionLength(int maxLength) {
+    if (maxLength < 0) {
+      throw new IllegalArgumentException("Maximum length must not be negative : " + maxLength);
+    }
+    this.maxLength = maxLength;
+    return this;
+  }
+
+  @Override
+  public Access.Builder maxExpressionDepth(int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Maximum depth must not be negative : " + maxDepth);
+    }
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  @Override
+  public Access.Builder metrics(AccessMetrics metrics) {
+    this.metrics = Objects.requireNonNull(metrics);
+    return this;
+  }
+
   @Override
   public Access build() {
-    return new AccessImpl(validator == null ? AuthorizationValidator.DEFAULT : validator);
+    var options = new ParseOptions(maxLength, maxDepth, metrics);
+    return new AccessImpl(validator == null ? AuthorizationValidator.DEFAULT : validator, options);
   }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.BulkAccessEvaluator;
+
+/**
+ * Compiles a batch of expressions, which validates them and finds their distinct authorizations.
+ * The distinct authorizations are passed to the authorizer in one call and when the authorizer
+ * responds the compiled expressions are evaluated, so each expression is only parsed once.
+ */
+public final class BulkAccessEvaluatorImpl implements BulkAccessEvaluator {
+
+  private final Function<Set<String>,CompletableFuture<Set<String>>> bulkAuthorizer;
+  private final Executor executor;
+  private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+
+  BulkAccessEvaluatorImpl(Function<Set<String>,CompletableFuture<Set<String>>> bulkAuthorizer,
+      Executor executor, AuthorizationValidator authorizationValidator, ParseOptions options) {
+    this.bulkAuthorizer = Objects.requireNonNull(bulkAuthorizer);
+    this.executor = Objects.requireNonNull(executor);
+    this.authorizationValidator = authorizationValidator;
+    this.options = options;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> canAccess(String accessExpression) {
+    return canAccess(List.of(accessExpression)).thenApply(results -> results.get(0));
+  }
+
+  @Override
+  public CompletableFuture<List<Boolean>> canAccess(List<String> accessExpressions) {
+    var compiled = compile(accessExpressions);
+    var authorizations = findAuthorizations(compiled);
+    return authorize(authorizations).thenApplyAsync(authorized -> evaluate(compiled, authorized),
+        executor);
+  }
+
+  @Override
+  public CompletableFuture<List<Boolean>> canAccess(List<String> accessExpressions,
+      Duration timeout) {
+    var compiled = compile(accessExpressions);
+    var authorizations = findAuthorizations(compiled);
+    var authorizing = authorize(authorizations);
+    // Time out a copy, because orTimeout would complete the future created by the authorizer
+    var evaluating =
+        authorizing.copy().orTimeout(TimeUnit.NANOSECONDS.convert(timeout), TimeUnit.NANOSECONDS)
+            .thenApplyAsync(authorized -> evaluate(compiled, authorized), executor);
+    // Return the stage that runs after the authorizer is cancelled, so a caller that sees the
+    // timeout also sees the authorizer cancelled
+    return evaluating.whenComplete((results, exception) -> {
+      if (exception != null && exception.getCause() instanceof TimeoutException) {
+        // the caller is no longer waiting, so let the authorizer know it can stop
+        authorizing.cancel(true);
+      }
+    });
+  }
+
+  private List<CompiledAccessExpressionImpl> compile(List<String> accessExpressions) {
+    var compiled = new ArrayList<CompiledAccessExpressionImpl>(accessExpressions.size());
+    for (String expression : accessExpressions) {
+      compiled
+          .add(CompiledAccessExpressionImpl.compile(expression, authorizationValidator, options));
+    }
+    return compiled;
+  }
+
+  private static Set<String> findAuthorizations(List<CompiledAccessExpressionImpl> compiled) {
+    var authorizations = new HashSet<String>();
+    compiled.forEach(expression -> expression.findAuthorizations(authorizations::add));
+    return authorizations;
+  }
+
+  private CompletableFuture<Set<String>> authorize(Set<String> authorizations) {
+    if (authorizations.isEmpty()) {
+      return CompletableFuture.completedFuture(Set.of());
+    }
+    // Set.copyOf is quadratic for some large sets, because its table is filled in hash order
+    return bulkAuthorizer.apply(Collections.unmodifiableSet(authorizations));
+  }
+
+  private List<Boolean> evaluate(List<CompiledAccessExpressionImpl> compiled,
+      Set<String> authorized) {
+    var wrapped = new HashSet<CharsWrapper>(authorized.size());
+    authorized.forEach(auth -> wrapped.add(new CharsWrapper(auth)));
+    // the authorizations of a compiled expression are always CharsWrappers
+    Predicate<CharSequence> authorizedPredicate = wrapped::contains;
+    var results = new ArrayList<Boolean>(compiled.size());
+    for (CompiledAccessExpressionImpl expression : compiled) {
+      results.add(expression.evaluate(authorizedPredicate, options));
+    }
+    return results;
+  }
+}
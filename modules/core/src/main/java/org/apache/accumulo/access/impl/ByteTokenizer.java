@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.accumulo.access.impl.CharUtils.BACKSLASH;
+import static org.apache.accumulo.access.impl.CharUtils.QUOTE;
+
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * The counterpart of {@link Tokenizer} for an expression stored as UTF-8 bytes. The bytes are
+ * tokenized in place without decoding them. This works because quotes, backslashes, operators, and
+ * all characters allowed in an unquoted authorization are ASCII, and in UTF-8 the bytes of a
+ * multibyte character are never in the ASCII range.
+ *
+ * <p>
+ * The offsets reported in errors are relative to the start of the expression and count bytes, not
+ * characters.
+ */
+final class ByteTokenizer implements ExpressionTokenizer<ByteTokenizer.AuthorizationToken> {
+
+  static final byte[] EMPTY = new byte[0];
+
+  private byte[] expression;
+  private int offset;
+  private int end;
+  private int index;
+
+  private final AuthorizationToken authorizationToken = new AuthorizationToken();
+  // when set, errors are recorded in the result instead of throwing an exception with a message
+  private ValidationResultImpl result;
+  private int maxDepth;
+  // the number of parentheses that are open at the current position
+  private int depth;
+  private final ParseStack stack = new ParseStack();
+
+  static class AuthorizationToken {
+    byte[] data;
+    int start;
+    int len;
+    boolean hasEscapes;
+    AuthorizationValidator.AuthorizationCharacters quoting;
+    // where rejected expressions are reported, and the length of the expression to report
+    ParseOptions options = ParseOptions.NONE;
+    int expressionLength;
+  }
+
+  ByteTokenizer() {
+    reset(EMPTY, 0, 0);
+  }
+
+  void reset(byte[] expression, int offset, int len) {
+    this.expression = expression;
+    this.offset = offset;
+    this.index = offset;
+    this.end = offset + len;
+    this.authorizationToken.data = expression;
+    this.result = null;
+    this.maxDepth = Integer.MAX_VALUE;
+    this.authorizationToken.options = ParseOptions.NONE;
+    this.authorizationToken.expressionLength = len;
+    this.depth = 0;
+    this.stack.clear();
+  }
+
+  /**
+   * Fail when parentheses are nested deeper than the limit allows and report rejected expressions
+   * using the options, until the tokenizer is reset.
+   */
+  ByteTokenizer withOptions(ParseOptions options) {
+    this.maxDepth = options.maxDepth;
+    this.authorizationToken.options = options;
+    return this;
+  }
+
+  /**
+   * Record errors in the result instead of throwing an {@link InvalidAccessExpressionException},
+   * until the tokenizer is reset.
+   */
+  ByteTokenizer withResult(ValidationResultImpl result) {
+    this.result = result;
+    return this;
+  }
+
+  @Override
+  public int length() {
+    return end - offset;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return index < end;
+  }
+
+  @Override
+  public void advance() {
+    index++;
+  }
+
+  @Override
+  public void openParen() {
+    if (depth == maxDepth) {
+      if (result != null) {
+        throw ParserEvaluator.checkFailed(result, ErrorKind.MAX_DEPTH_EXCEEDED, index - offset);
+      }
+      error(ErrorKind.MAX_DEPTH_EXCEEDED,
+          "Parentheses are nested deeper than the maximum depth of " + maxDepth);
+    }
+    depth++;
+    index++;
+  }
+
+  @Override
+  public void closeParen() {
+    if (!hasNext() || expression[index] != ParserEvaluator.CLOSE_PAREN) {
+      if (result != null) {
+        throw ParserEvaluator.checkFailed(result, unexpectedKind(), index - offset);
+      }
+      unexpected("')'");
+    }
+    depth--;
+    index++;
+  }
+
+  @Override
+  public ParseStack stack() {
+    return stack;
+  }
+
+  @Override
+  public void error(ErrorKind kind, String msg) {
+    error(kind, msg, index);
+  }
+
+  void error(ErrorKind kind, String msg, int idx) {
+    if (result != null) {
+      throw ParserEvaluator.checkFailed(result, kind, idx - offset);
+    }
+    authorizationToken.options.rejected(kind, end - offset);
+    throw new InvalidAccessExpressionException(msg,
+        new String(expression, offset, end - offset, UTF_8), idx - offset);
+  }
+
+  @Override
+  public void unexpected(String expected) {
+    if (result != null) {
+      throw ParserEvaluator.checkFailed(result, unexpectedKind(), index - offset);
+    }
+    String seen = hasNext() ? "'" + peekDecoded() + "'" : "end of input";
+    error(unexpectedKind(), expected == null ? "Unexpected character " + seen
+        : "Expected " + expected + " instead saw " + seen);
+  }
+
+  private ErrorKind unexpectedKind() {
+    return hasNext() ? ErrorKind.UNEXPECTED_CHARACTER : ErrorKind.UNEXPECTED_END;
+  }
+
+  /**
+   * Fails because the authorization validator rejected the last authorization returned by
+   * {@link #nextAuthorization()}. Only used when checking an expression.
+   */
+  void invalidAuthorization(AuthorizationToken token) {
+    // quoted authorizations start after their quote
+    int idx = token.quoting == AuthorizationValidator.AuthorizationCharacters.ANY ? token.start - 1
+        : token.start;
+    throw ParserEvaluator.checkFailed(result, ErrorKind.INVALID_AUTHORIZATION, idx - offset);
+  }
+
+  @Override
+  public char peek() {
+    // Only used to check for ASCII chars that give the expression its structure, so there is no
+    // need to decode.
+    return (char) (expression[index] & 0xff);
+  }
+
+  @Override
+  public AuthorizationToken nextAuthorization() {
+    if (expression[index] == QUOTE) {
+      int start = ++index;
+
+      boolean hasEscapes = false;
+      while (true) {
+        index = CharScanner.findQuoteOrBackslash(expression, index, end);
+        if (index == end || expression[index] == QUOTE) {
+          break;
+        }
+        // found a backslash
+        index++;
+        if (index == end || (expression[index] != QUOTE && expression[index] != BACKSLASH)) {
+          error(ErrorKind.INVALID_ESCAPE, "Invalid escaping within quotes", index - 1);
+        }
+        hasEscapes = true;
+        index++;
+      }
+
+      if (index == end) {
+        error(ErrorKind.UNCLOSED_QUOTE, "Unclosed quote", start - 1);
+      }
+
+      if (start == index) {
+        error(ErrorKind.EMPTY_QUOTED_AUTHORIZATION, "Empty authorization token in quotes",
+            start - 1);
+      }
+
+      authorizationToken.start = start;
+      authorizationToken.len = index - start;
+      authorizationToken.hasEscapes = hasEscapes;
+      authorizationToken.quoting = AuthorizationValidator.AuthorizationCharacters.ANY;
+
+      index++;
+
+      return authorizationToken;
+
+    } else if (Tokenizer.isValidAuthByte(expression[index])) {
+      int start = index;
+      index = CharScanner.skipAuthBytes(expression, index + 1, end);
+      authorizationToken.start = start;
+      authorizationToken.len = index - start;
+      authorizationToken.hasEscapes = false;
+      authorizationToken.quoting = AuthorizationValidator.AuthorizationCharacters.BASIC;
+      return authorizationToken;
+    } else {
+      unexpected("a '(' character or an authorization token");
+      return null;
+    }
+  }
+
+  /**
+   * Decodes the character at the current position for an error message.
+   */
+  private String peekDecoded() {
+    int charEnd = index + 1;
+    while (charEnd < end && (expression[charEnd] & 0xC0) == 0x80) {
+      // skip the continuation bytes of a multibyte character
+      charEnd++;
+    }
+    return new String(expression, index, charEnd - index, UTF_8);
+  }
+}
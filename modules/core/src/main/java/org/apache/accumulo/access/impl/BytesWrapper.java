@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Wraps a range of UTF-8 bytes. Equality and hashing are done on the bytes, so looking up a wrapped
+ * authorization in a set of wrapped UTF-8 authorizations never needs to decode anything. The bytes
+ * are only decoded if the wrapper is used as a {@link CharSequence} and contains non-ASCII bytes.
+ * ASCII bytes are used as chars directly.
+ */
+final class BytesWrapper implements CharSequence {
+  private byte[] wrapped;
+  private int offset;
+  private int len;
+
+  // lazily computed, null until the wrapper is first used as a CharSequence
+  private String decoded;
+  private boolean ascii;
+  private boolean checkedAscii;
+
+  BytesWrapper(byte[] wrapped) {
+    set(wrapped, 0, wrapped.length);
+  }
+
+  private void checkAscii() {
+    if (!checkedAscii) {
+      ascii = true;
+      int end = offset + len;
+      for (int i = offset; i < end; i++) {
+        if (wrapped[i] < 0) {
+          ascii = false;
+          break;
+        }
+      }
+      if (!ascii) {
+        decoded = new String(wrapped, offset, len, UTF_8);
+      }
+      checkedAscii = true;
+    }
+  }
+
+  @Override
+  public int length() {
+    checkAscii();
+    return ascii ? len : decoded.length();
+  }
+
+  @Override
+  public char charAt(int index) {
+    checkAscii();
+    if (ascii) {
+      Objects.checkIndex(index, len);
+      return (char) wrapped[offset + index];
+    }
+    return decoded.charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 1;
+
+    int end = offset + len;
+    for (int i = offset; i < end; i++) {
+      hash = (31 * hash) + wrapped[i];
+    }
+
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof BytesWrapper obs && len == obs.len && Arrays.equals(wrapped,
+        offset, offset + len, obs.wrapped, obs.offset, obs.offset + obs.len));
+  }
+
+  @Override
+  public String toString() {
+    checkAscii();
+    return ascii ? new String(wrapped, offset, len, UTF_8) : decoded;
+  }
+
+  byte[] array() {
+    return wrapped;
+  }
+
+  int offset() {
+    return offset;
+  }
+
+  /**
+   * @return the number of wrapped bytes, unlike {@link #length()} this never decodes them
+   */
+  int byteLength() {
+    return len;
+  }
+
+  void set(byte[] data, int start, int len) {
+    this.wrapped = data;
+    this.offset = start;
+    this.len = len;
+    this.decoded = null;
+    this.checkedAscii = false;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.AccessExpression;
+import org.apache.accumulo.access.CachingAccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+
+public final class CachingAccessEvaluatorImpl implements CachingAccessEvaluator {
+
+  private final AccessEvaluator evaluator;
+  private final ClockCache<String> cache;
+  private final Predicate<String> loader;
+
+  CachingAccessEvaluatorImpl(AccessEvaluator evaluator, int capacity) {
+    this.evaluator = Objects.requireNonNull(evaluator);
+    this.cache = new ClockCache<>(capacity);
+    // invalid expressions throw an exception when loaded, so they are never cached
+    this.loader = evaluator::canAccess;
+  }
+
+  @Override
+  public boolean canAccess(String accessExpression) throws InvalidAccessExpressionException {
+    return cache.get(accessExpression, loader);
+  }
+
+  @Override
+  public boolean canAccess(AccessExpression accessExpression) {
+    // the wrapped evaluator may be expensive even for a compiled expression, so use the cache
+    return cache.get(accessExpression.getExpression(), loader);
+  }
+
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    // Caching would require copying the bytes to create a key for the cache, so do not cache.
+    return evaluator.canAccess(expression, offset, length);
+  }
+
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    // evaluating a compiled expression is cheaper than a cache lookup
+    return evaluator.canAccess(compiledExpression);
+  }
+
+  @Override
+  public int getCapacity() {
+    return cache.capacity();
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.hits();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.misses();
+  }
+}
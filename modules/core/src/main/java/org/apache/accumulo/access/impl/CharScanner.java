@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static org.apache.accumulo.access.impl.CharUtils.BACKSLASH;
+import static org.apache.accumulo.access.impl.CharUtils.QUOTE;
+
+/**
+ * Scans runs of chars or UTF-8 bytes in an expression for the tokenizers. This is the scalar
+ * implementation. When running on Java 21 or later, a multi-release version of this class is used
+ * that scans many chars at a time using the incubating vector API, if the
+ * {@code jdk.incubator.vector} module was added to the JVM.
+ */
+final class CharScanner {
+
+  private CharScanner() {}
+
+  /**
+   * @return the index of the first char in [from, to) that can not be in an unquoted authorization,
+   *         or to if there is no such char
+   */
+  static int skipAuthChars(char[] chars, int from, int to) {
+    int i = from;
+    while (i < to && Tokenizer.isValidAuthChar(chars[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return the index of the first byte in [from, to) that can not be in an unquoted authorization,
+   *         or to if there is no such byte
+   */
+  static int skipAuthBytes(byte[] bytes, int from, int to) {
+    int i = from;
+    while (i < to && Tokenizer.isValidAuthByte(bytes[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return the index of the first quote or backslash in [from, to), or to if there is none
+   */
+  static int findQuoteOrBackslash(char[] chars, int from, int to) {
+    int i = from;
+    while (i < to && chars[i] != QUOTE && chars[i] != BACKSLASH) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return the index of the first quote or backslash in [from, to), or to if there is none
+   */
+  static int findQuoteOrBackslash(byte[] bytes, int from, int to) {
+    int i = from;
+    while (i < to && bytes[i] != QUOTE && bytes[i] != BACKSLASH) {
+      i++;
+    }
+    return i;
+  }
+}
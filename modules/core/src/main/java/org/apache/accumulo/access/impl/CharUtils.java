@@ -95,6 +95,34 @@ final class CharUtils {
     return auth;
   }
 
+  /**
+   * Unescapes an authorization stored as UTF-8 bytes. In UTF-8 quotes and backslashes are always a
+   * single byte, so this can be done without decoding. This expects the escaping to have already
+   * been validated by {@link ByteTokenizer}.
+   *
+   * @return a new array containing the unescaped authorization
+   */
+  static byte[] unescape(byte[] auth, int start, int len) {
+    int escapeCount = 0;
+    final int end = start + len;
+    for (int i = start; i < end; i++) {
+      if (auth[i] == BACKSLASH) {
+        escapeCount++;
+        i++;
+      }
+    }
+
+    byte[] unescapedCopy = new byte[len - escapeCount];
+    int pos = 0;
+    for (int i = start; i < end; i++) {
+      if (auth[i] == BACKSLASH) {
+        i++;
+      }
+      unescapedCopy[pos++] = auth[i];
+    }
+    return unescapedCopy;
+  }
+
   static CharSequence unescape(CharSequence auth) {
     int escapeCharCount = 0;
     final int authLength = auth.length();
@@ -18,13 +18,19 @@
  */
 package org.apache.accumulo.access.impl;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
 
-final class CharsWrapper implements CharSequence {
+final class CharsWrapper implements CharSequence, Serializable {
+  private static final long serialVersionUID = 1L;
+
   private char[] wrapped;
   private int offset;
   private int len;
+  // only set when this object wraps a String and can never be changed by a call to set()
+  private String string;
+  private int hash;
 
   CharsWrapper(char[] wrapped) {
     this.wrapped = wrapped;
@@ -32,6 +38,15 @@ final class CharsWrapper implements CharSequence {
     this.len = this.wrapped.length;
   }
 
+  /**
+   * Creates an object that wraps a copy of the chars in the string. The string is remembered and
+   * returned by {@link #toString()} so that no new string is allocated for it.
+   */
+  CharsWrapper(String string) {
+    this(string.toCharArray());
+    this.string = string;
+  }
+
   private CharsWrapper(char[] wrapped, int offset, int len) {
     this.wrapped = wrapped;
     this.offset = offset;
@@ -57,6 +72,10 @@ final class CharsWrapper implements CharSequence {
 
   @Override
   public int hashCode() {
+    if (hash != 0) {
+      return hash;
+    }
+
     int hash = 1;
 
     int end = offset + length();
@@ -64,6 +83,11 @@ final class CharsWrapper implements CharSequence {
       hash = (31 * hash) + wrapped[i];
     }
 
+    if (string != null) {
+      // this object can not change, so its safe to remember the hash
+      this.hash = hash;
+    }
+
     return hash;
   }
 
@@ -75,10 +99,24 @@ final class CharsWrapper implements CharSequence {
 
   @Override
   public String toString() {
+    if (string != null) {
+      return string;
+    }
     return new String(wrapped, offset, len);
   }
 
+  char[] array() {
+    return wrapped;
+  }
+
+  int offset() {
+    return offset;
+  }
+
   void set(char[] data, int start, int len) {
+    if (string != null) {
+      throw new IllegalStateException("Can not change a wrapped string");
+    }
     this.wrapped = data;
     this.offset = start;
     this.len = len;
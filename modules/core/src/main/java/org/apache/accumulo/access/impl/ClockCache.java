@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A bounded, thread-safe cache of boolean values that evicts using the CLOCK algorithm. Gets only
+ * read a concurrent map and set a reference bit, so they never block. Puts are serialized by a lock
+ * while the clock hand searches for an entry to evict. An entry that was read since the hand last
+ * passed it gets a second chance, so frequently used entries stay in the cache.
+ *
+ * <p>
+ * Optionally entries can expire a fixed amount of time after they were added, after which they are
+ * loaded again.
+ */
+final class ClockCache<K> {
+
+  private static final class Entry<K> {
+    final K key;
+    final boolean value;
+    // the index of this entry in the clock
+    final int slot;
+    // only used when entries expire
+    final long expiresAt;
+    volatile boolean referenced;
+
+    Entry(K key, boolean value, int slot, long expiresAt) {
+      this.key = key;
+      this.value = value;
+      this.slot = slot;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final ConcurrentHashMap<K,Entry<K>> map;
+  private final Entry<?>[] clock;
+  private int hand = 0;
+  // zero when entries never expire
+  private final long ttlNanos;
+  private final UnaryOperator<K> keyCopier;
+  // returns nanoseconds, replaced by tests so that expiring entries does not depend on sleeping
+  private final LongSupplier ticker;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  ClockCache(int capacity) {
+    this(capacity, 0, UnaryOperator.identity(), System::nanoTime);
+  }
+
+  /**
+   * @param ttlNanos the number of nanoseconds after an entry was added that it expires, or zero if
+   *        entries never expire
+   * @param keyCopier called with a key before it is added to the cache. This allows looking up
+   *        entries using mutable keys that are copied only when added to the cache.
+   * @param ticker the source of the nanoseconds that entries expire by, usually
+   *        {@link System#nanoTime()}
+   */
+  ClockCache(int capacity, long ttlNanos, UnaryOperator<K> keyCopier, LongSupplier ticker) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive : " + capacity);
+    }
+    if (ttlNanos < 0) {
+      throw new IllegalArgumentException("Time to live must not be negative : " + ttlNanos);
+    }
+    this.map = new ConcurrentHashMap<>(capacity);
+    this.clock = new Entry<?>[capacity];
+    this.ttlNanos = ttlNanos;
+    this.keyCopier = keyCopier;
+    this.ticker = ticker;
+  }
+
+  private boolean isExpired(Entry<K> entry) {
+    return ttlNanos != 0 && ticker.getAsLong() - entry.expiresAt >= 0;
+  }
+
+  /**
+   * Gets the cached value for a key. When the key is not in the cache, the loader computes the
+   * value and it is added to the cache. If the loader throws an exception nothing is cached. Unless
+   * a key copier was given, the caller must not modify the key after calling this method.
+   */
+  boolean get(K key, Predicate<K> loader) {
+    var entry = map.get(key);
+    if (entry == null || isExpired(entry)) {
+      misses.increment();
+      boolean value = loader.test(key);
+      put(key, value);
+      return value;
+    }
+    // avoid writing to memory shared with other threads when the bit is already set
+    if (!entry.referenced) {
+      entry.referenced = true;
+    }
+    hits.increment();
+    return entry.value;
+  }
+
+  private void put(K key, boolean value) {
+    synchronized (clock) {
+      var existing = map.get(key);
+      if (existing != null) {
+        if (isExpired(existing)) {
+          // replace the expired entry in place
+          var entry = newEntry(existing.key, value, existing.slot);
+          clock[existing.slot] = entry;
+          map.put(entry.key, entry);
+        }
+        // else another thread added it
+        return;
+      }
+
+      while (true) {
+        @SuppressWarnings("unchecked")
+        var candidate = (Entry<K>) clock[hand];
+        if (candidate == null) {
+          break;
+        }
+        if (candidate.referenced) {
+          candidate.referenced = false;
+          hand = (hand + 1) % clock.length;
+        } else {
+          map.remove(candidate.key);
+          break;
+        }
+      }
+
+      var entry = newEntry(keyCopier.apply(key), value, hand);
+      clock[hand] = entry;
+      map.put(entry.key, entry);
+      hand = (hand + 1) % clock.length;
+    }
+  }
+
+  private Entry<K> newEntry(K key, boolean value, int slot) {
+    return new Entry<>(key, value, slot, ttlNanos == 0 ? 0 : ticker.getAsLong() + ttlNanos);
+  }
+
+  int capacity() {
+    return clock.length;
+  }
+
+  int size() {
+    return map.size();
+  }
+
+  long hits() {
+    return hits.sum();
+  }
+
+  long misses() {
+    return misses.sum();
+  }
+}
@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static org.apache.accumulo.access.impl.CharUtils.AND_OPERATOR;
+import static org.apache.accumulo.access.impl.CharUtils.isAndOrOperator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * An access expression compiled into a small program that evaluates the expression with short
+ * circuiting. The program is a flat array of instructions that operate on a single boolean
+ * register. Each instruction stores an op code in its lowest bits and an operand in the remaining
+ * bits. There are three instructions.
+ *
+ * <ul>
+ * <li>{@code AUTHORIZATION} sets the register to true if the authorization whose index is the
+ * operand is authorized.</li>
+ * <li>{@code JUMP_IF_FALSE} jumps to the instruction at the operand when the register is false.
+ * This is emitted between the children of an and expression.</li>
+ * <li>{@code JUMP_IF_TRUE} jumps to the instruction at the operand when the register is true. This
+ * is emitted between the children of an or expression.</li>
+ * </ul>
+ *
+ * <p>
+ * For example {@code A&(B|C)} compiles to the following, the value of the register after the last
+ * instruction is the result.
+ *
+ * <pre>
+ * 0: AUTHORIZATION 0 (A)
+ * 1: JUMP_IF_FALSE 5
+ * 2: AUTHORIZATION 1 (B)
+ * 3: JUMP_IF_TRUE  5
+ * 4: AUTHORIZATION 2 (C)
+ * </pre>
+ *
+ * <p>
+ * The authorizations are stored unquoted and unescaped and each distinct authorization is only
+ * stored once.
+ */
+public final class CompiledAccessExpressionImpl extends CompiledAccessExpression {
+
+  private static final long serialVersionUID = 1L;
+
+  static final int OP_BITS = 2;
+  static final int OP_MASK = (1 << OP_BITS) - 1;
+  static final int AUTHORIZATION = 0;
+  static final int JUMP_IF_FALSE = 1;
+  static final int JUMP_IF_TRUE = 2;
+
+  public static final CompiledAccessExpressionImpl EMPTY =
+      new CompiledAccessExpressionImpl("", new int[0], new CharsWrapper[0], 0, 0);
+
+  private final String expression;
+  private final int[] program;
+  private final CharsWrapper[] authorizations;
+  // the number of authorizations in the expression, including repeated ones
+  private final int authorizationCount;
+  // how deeply parentheses are nested in the expression
+  private final int depth;
+  // the ids of the authorizations in the last dictionary used to evaluate this expression
+  private transient volatile DictionaryIds dictionaryIds;
+
+  private static final class DictionaryIds {
+    final AuthorizationDictionaryImpl dictionary;
+    final int[] ids;
+    // The size of the dictionary when the ids were looked up. If an authorization was not in the
+    // dictionary then it may have been added since, so the ids need to be looked up again.
+    final int dictionarySize;
+    final boolean complete;
+
+    DictionaryIds(AuthorizationDictionaryImpl dictionary, int[] ids, int dictionarySize,
+        boolean complete) {
+      this.dictionary = dictionary;
+      this.ids = ids;
+      this.dictionarySize = dictionarySize;
+      this.complete = complete;
+    }
+  }
+
+  private CompiledAccessExpressionImpl(String expression, int[] program,
+      CharsWrapper[] authorizations, int authorizationCount, int depth) {
+    this.expression = expression;
+    this.program = program;
+    this.authorizations = authorizations;
+    this.authorizationCount = authorizationCount;
+    this.depth = depth;
+  }
+
+  @Override
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * Passes each distinct authorization in the expression to the consumer, unquoted and unescaped.
+   */
+  void findAuthorizations(Consumer<String> authorizationConsumer) {
+    for (CharsWrapper authorization : authorizations) {
+      authorizationConsumer.accept(authorization.toString());
+    }
+  }
+
+  /**
+   * Runs the compiled program. The char sequences passed to the predicate are immutable and return
+   * the authorization from {@code toString()} without allocating.
+   */
+  boolean evaluate(Predicate<CharSequence> authorizedPredicate, ParseOptions options) {
+    var event = AccessEvents.beginEvaluation();
+    final int[] program = this.program;
+    boolean result = true;
+    int lookups = 0;
+    int pc = 0;
+    while (pc < program.length) {
+      final int instruction = program[pc];
+      switch (instruction & OP_MASK) {
+        case AUTHORIZATION:
+          result = authorizedPredicate.test(authorizations[instruction >>> OP_BITS]);
+          lookups++;
+          pc++;
+          break;
+        case JUMP_IF_FALSE:
+          pc = result ? pc + 1 : instruction >>> OP_BITS;
+          break;
+        default:
+          pc = result ? instruction >>> OP_BITS : pc + 1;
+          break;
+      }
+    }
+    options.evaluated(event, true, result, expression.length(), depth, authorizationCount, lookups);
+    return result;
+  }
+
+  private int[] getIds(AuthorizationDictionaryImpl dictionary) {
+    var current = dictionaryIds;
+    if (current == null || current.dictionary != dictionary
+        || (!current.complete && current.dictionarySize != dictionary.size())) {
+      // read the size before looking up ids, any authorization added after this will cause the
+      // ids to be looked up again
+      int dictionarySize = dictionary.size();
+      int[] ids = new int[authorizations.length];
+      boolean complete = true;
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = dictionary.getId(authorizations[i]);
+        complete &= ids[i] >= 0;
+      }
+      current = new DictionaryIds(dictionary, ids, dictionarySize, complete);
+      dictionaryIds = current;
+    }
+    return current.ids;
+  }
+
+  /**
+   * Runs the compiled program checking authorizations using a bitset of ids from the dictionary.
+   * The authorizations in this expression are only looked up in the dictionary the first time it is
+   * evaluated with the dictionary.
+   */
+  boolean evaluate(AuthorizationDictionaryImpl dictionary, long[] authorizedBits,
+      ParseOptions options) {
+    var event = AccessEvents.beginEvaluation();
+    final int[] ids = getIds(dictionary);
+    final int[] program = this.program;
+    boolean result = true;
+    int lookups = 0;
+    int pc = 0;
+    while (pc < program.length) {
+      final int instruction = program[pc];
+      switch (instruction & OP_MASK) {
+        case AUTHORIZATION:
+          final int id = ids[instruction >>> OP_BITS];
+          final int word = id >>> 6;
+          // an id of -1 is never authorized because its word is larger than any bitset
+          result = word < authorizedBits.length && (authorizedBits[word] & (1L << id)) != 0;
+          lookups++;
+          pc++;
+          break;
+        case JUMP_IF_FALSE:
+          pc = result ? pc + 1 : instruction >>> OP_BITS;
+          break;
+        default:
+          pc = result ? instruction >>> OP_BITS : pc + 1;
+          break;
+      }
+    }
+    options.evaluated(event, true, result, expression.length(), depth, authorizationCount, lookups);
+    return result;
+  }
+
+  /**
+   * Runs the compiled program for many sets of authorizations at once. Each bit of a mask is the
+   * register for one set of authorizations. The sets can take different jumps, so a set that jumps
+   * leaves the active sets and its register is kept in {@code arriving} until the instruction it
+   * jumps to is reached. Jumps only go forward, so the program is run once for up to 64 sets.
+   */
+  boolean evaluate(List<MultiAccessEvaluatorImpl.SetMasks> setMasks, ParseContext context,
+      ParseOptions options) {
+    var event = AccessEvents.beginEvaluation();
+    final int[] program = this.program;
+    boolean result = true;
+    int lookups = 0;
+    for (int i = 0; i < setMasks.size() && result; i++) {
+      final var masks = setMasks.get(i);
+      // the sets arriving at each instruction at 2*pc and their registers at 2*pc+1
+      final long[] arriving = context.masks(2 * (program.length + 1));
+      long active = masks.allMask;
+      long value = masks.allMask;
+      for (int pc = 0; pc < program.length; pc++) {
+        active |= arriving[2 * pc];
+        value |= arriving[2 * pc + 1];
+        if (active == 0) {
+          continue;
+        }
+        final int instruction = program[pc];
+        final int target = instruction >>> OP_BITS;
+        switch (instruction & OP_MASK) {
+          case AUTHORIZATION:
+            value = masks.getMask(authorizations[target]) & active;
+            lookups++;
+            break;
+          case JUMP_IF_FALSE:
+            arriving[2 * target] |= active & ~value;
+            active = value;
+            break;
+          default:
+            arriving[2 * target] |= value;
+            arriving[2 * target + 1] |= value;
+            active &= ~value;
+            value = 0;
+            break;
+        }
+      }
+      value |= arriving[2 * program.length + 1];
+      result = value == masks.allMask;
+    }
+    options.evaluated(event, true, result, expression.length(), depth, authorizationCount, lookups);
+    return result;
+  }
+
+  public static CompiledAccessExpressionImpl compile(String expression,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    if (expression.isEmpty()) {
+      return EMPTY;
+    }
+
+    try (var context = ParseContext.acquire()) {
+      var compiler = new Compiler(expression, authorizationValidator, options, context);
+      var compiled = compiler.compile();
+      options.metrics.expressionParsed(compiled.authorizationCount);
+      return compiled;
+    }
+  }
+
+  private static final class Compiler {
+    private final String expression;
+    private final AuthorizationValidator authorizationValidator;
+    private final Tokenizer tokenizer;
+    private final CharsWrapper lookupWrapper;
+    private final LinkedHashMap<String,Integer> authorizationIndexes = new LinkedHashMap<>();
+    private int[] program = new int[16];
+    private int size = 0;
+    private int authorizationCount = 0;
+    private int maxNesting = 0;
+
+    Compiler(String expression, AuthorizationValidator authorizationValidator, ParseOptions options,
+        ParseContext context) {
+      this.expression = expression;
+      this.authorizationValidator = authorizationValidator;
+      this.tokenizer = context.tokenizer(expression, options);
+      this.lookupWrapper = context.lookupWrapper;
+    }
+
+    CompiledAccessExpressionImpl compile() {
+      compileExpression();
+
+      if (tokenizer.hasNext()) {
+        // not all input was read, so not a valid expression
+        tokenizer.unexpected(null);
+      }
+
+      threadJumps();
+
+      var authorizations = authorizationIndexes.keySet().stream().map(CharsWrapper::new)
+          .toArray(CharsWrapper[]::new);
+      return new CompiledAccessExpressionImpl(expression, Arrays.copyOf(program, size),
+          authorizations, authorizationCount, maxNesting);
+    }
+
+    private void emit(int op, int operand) {
+      if (size == program.length) {
+        program = Arrays.copyOf(program, Math.multiplyExact(program.length, 2));
+      }
+      program[size++] = (operand << OP_BITS) | op;
+    }
+
+    /**
+     * Compiles the expression without recursion, so that deeply nested expressions can not overflow
+     * the call stack. Each entry on the tokenizer's stack is an expression being compiled, holding
+     * its operator and the chain of jumps whose target is the end of the expression. The target of
+     * the jumps is not known until all operands are compiled. Until then the operand of each jump
+     * points to the previously emitted jump for the expression, plus one so that zero can terminate
+     * the chain.
+     */
+    private void compileExpression() {
+      final ParseStack stack = tokenizer.stack();
+      int top = stack.push(false);
+
+      while (true) {
+        if (!tokenizer.hasNext()) {
+          tokenizer.unexpected("a '(' character or an authorization token");
+        }
+
+        if (tokenizer.peek() == ParserEvaluator.OPEN_PAREN) {
+          tokenizer.openParen();
+          top = stack.push(false);
+          continue;
+        }
+
+        compileAuthorization();
+
+        // When an expression ends it is an operand of the enclosing expression, so keep ending
+        // expressions until an operator is seen.
+        while (true) {
+          final char operator = stack.operators[top];
+
+          if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
+            final char nextOperator = tokenizer.peek();
+            if (operator != 0 && nextOperator != operator) {
+              // A case of mixed operators, lets give a clear error message
+              tokenizer.error(ErrorKind.MIXED_OPERATORS, "Cannot mix '|' and '&'");
+            }
+            stack.operators[top] = nextOperator;
+            emit(nextOperator == AND_OPERATOR ? JUMP_IF_FALSE : JUMP_IF_TRUE,
+                (int) stack.values[top]);
+            stack.values[top] = size;
+            tokenizer.advance();
+            break;
+          }
+
+          // jumps for this expression go to the end of the code for the expression
+          int lastJump = (int) stack.values[top];
+          while (lastJump != 0) {
+            int jump = lastJump - 1;
+            lastJump = program[jump] >>> OP_BITS;
+            program[jump] = (size << OP_BITS) | (program[jump] & OP_MASK);
+          }
+
+          if (top == 0) {
+            // the outermost expression is not parenthesized, so the deepest entry is the nesting
+            maxNesting = stack.depth;
+            stack.pop();
+            return;
+          }
+
+          tokenizer.closeParen();
+          top = stack.pop();
+        }
+      }
+    }
+
+    private void compileAuthorization() {
+      var authToken = tokenizer.nextAuthorization(false);
+      var auth =
+          ParserEvaluator.validateAuth(authorizationValidator, authToken, lookupWrapper).toString();
+      Integer index = authorizationIndexes.get(auth);
+      if (index == null) {
+        index = authorizationIndexes.size();
+        authorizationIndexes.put(auth, index);
+      }
+      emit(AUTHORIZATION, index);
+      authorizationCount++;
+    }
+
+    /**
+     * When a jump lands on another jump, the outcome of the second jump is already known because
+     * jumps do not change the register. Jumping straight to where the second jump leads avoids
+     * executing a chain of jumps for nested expressions.
+     *
+     * <p>
+     * Jumps only go forward, so threading them from the last to the first means every jump that is
+     * landed on was already threaded to an authorization or the end. Each jump then takes a
+     * constant number of steps, where threading them from the first would follow the whole chain
+     * again for each jump in it.
+     */
+    private void threadJumps() {
+      for (int pc = size - 1; pc >= 0; pc--) {
+        int op = program[pc] & OP_MASK;
+        if (op != AUTHORIZATION) {
+          int target = program[pc] >>> OP_BITS;
+          while (target < size && (program[target] & OP_MASK) != AUTHORIZATION) {
+            if ((program[target] & OP_MASK) == op) {
+              // the same condition holds, so this jump would be taken too
+              target = program[target] >>> OP_BITS;
+            } else {
+              // the opposite condition holds, so this jump would not be taken
+              target++;
+            }
+          }
+          program[pc] = (target << OP_BITS) | op;
+        }
+      }
+    }
+  }
+}
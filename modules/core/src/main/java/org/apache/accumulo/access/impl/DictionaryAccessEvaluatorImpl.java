@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+
+/**
+ * An evaluator whose authorizations are stored as a bitset of ids from an
+ * {@link AuthorizationDictionaryImpl}.
+ */
+public final class DictionaryAccessEvaluatorImpl implements AccessEvaluator {
+
+  private final AuthorizationDictionaryImpl dictionary;
+  private final long[] authorizedBits;
+  private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+  private final Predicate<CharSequence> authorizedPredicate;
+  private final Predicate<BytesWrapper> bytesAuthorizedPredicate;
+
+  DictionaryAccessEvaluatorImpl(AuthorizationDictionaryImpl dictionary, long[] authorizedBits,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    this.dictionary = dictionary;
+    this.authorizedBits = authorizedBits;
+    this.authorizationValidator = authorizationValidator;
+    this.options = options;
+    this.authorizedPredicate = auth -> isAuthorized(dictionary.getId(auth));
+    this.bytesAuthorizedPredicate = auth -> isAuthorized(dictionary.getId(auth));
+  }
+
+  private boolean isAuthorized(int id) {
+    final int word = id >>> 6;
+    // an id of -1 is never authorized because its word is larger than any bitset
+    return word < authorizedBits.length && (authorizedBits[word] & (1L << id)) != 0;
+  }
+
+  @Override
+  public boolean canAccess(String expression) throws InvalidAccessExpressionException {
+    try (var context = ParseContext.acquire()) {
+      var lookup = context.charsLookup.set(authorizationValidator, authorizedPredicate);
+      return ParserEvaluator.evaluate(context.tokenizer(expression, options), lookup,
+          lookup.shortCircuit, options);
+    }
+  }
+
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    Objects.checkFromIndexSize(offset, length, expression.length);
+    try (var context = ParseContext.acquire()) {
+      var lookup = context.bytesLookup.set(authorizationValidator, bytesAuthorizedPredicate);
+      return ParserEvaluator.evaluate(context.tokenizer(expression, offset, length, options),
+          lookup, lookup.shortCircuit, options);
+    }
+  }
+
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    return ((CompiledAccessExpressionImpl) compiledExpression).evaluate(dictionary, authorizedBits,
+        options);
+  }
+}
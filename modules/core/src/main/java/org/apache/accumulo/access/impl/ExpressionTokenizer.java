@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * The operations {@link ParserEvaluator} needs from a tokenizer. This allows the same parsing code
+ * to operate on expressions stored as chars or as UTF-8 bytes. All the characters that give an
+ * expression its structure are ASCII, so they can be compared as chars for either.
+ *
+ * @param <T> the type of authorization token produced by the tokenizer
+ */
+interface ExpressionTokenizer<T> {
+
+  /**
+   * @return the length of the expression, in chars or in bytes for UTF-8 expressions
+   */
+  int length();
+
+  boolean hasNext();
+
+  char peek();
+
+  void advance();
+
+  /**
+   * Moves past an open parenthesis, failing if this nests parentheses deeper than allowed.
+   */
+  void openParen();
+
+  /**
+   * Moves past a close parenthesis, failing if the current character is not one.
+   */
+  void closeParen();
+
+  /**
+   * @return the stack used to parse an expression without recursion, it is reused for each
+   *         expression
+   */
+  ParseStack stack();
+
+  /**
+   * Fails because of an error at the current position.
+   */
+  void error(ErrorKind kind, String msg);
+
+  /**
+   * Fails because of what is at the current position, which is a character or the end of input. The
+   * message is {@code Expected <expected> instead saw <what was seen>}, or
+   * {@code Unexpected character <what was seen>} when expected is null. The message is not created
+   * when the tokenizer is checking an expression.
+   */
+  void unexpected(String expected);
+
+  /**
+   * @return the next authorization without quotes, the returned object is reused by the tokenizer
+   */
+  T nextAuthorization();
+}
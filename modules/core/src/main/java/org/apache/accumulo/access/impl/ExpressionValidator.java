@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static org.apache.accumulo.access.impl.CharUtils.BACKSLASH;
+import static org.apache.accumulo.access.impl.CharUtils.QUOTE;
+
+import java.util.Arrays;
+
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.AuthorizationValidator.AuthorizationCharacters;
+import org.apache.accumulo.access.InvalidAuthorizationException;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * Validates expressions without evaluating them or building error messages. This is a table driven
+ * pushdown automaton. Each char is mapped to a class, and the class and the current state select an
+ * action from a table. There are only two states, expecting an operand and expecting an operator.
+ * The only memory is the depth of parentheses and the operator used at each depth, which is needed
+ * to reject mixed operators. Runs of authorization chars and quoted authorizations are scanned by
+ * {@link CharScanner}.
+ *
+ * <p>
+ * When an expression is not valid this only records the kind and index of the error, so that valid
+ * expressions can be validated as fast as possible. The caller parses the expression again using
+ * {@link ParserEvaluator} to build the error message. Both parsers read the expression left to
+ * right and fail at the first char that can not continue a valid expression, so they always find
+ * the same error.
+ *
+ * <p>
+ * The authorization validator is only called for quoted authorizations, unless a validator other
+ * than {@link AuthorizationValidator#DEFAULT} is used, as the default validator accepts all
+ * unquoted authorizations.
+ */
+final class ExpressionValidator {
+
+  // char classes
+  private static final int OTHER = 0;
+  private static final int BASIC = 1;
+  private static final int QUOTED = 2;
+  private static final int AND = 3;
+  private static final int OR = 4;
+  private static final int OPEN = 5;
+  private static final int CLOSE = 6;
+  private static final int CLASSES = 7;
+
+  // states, which are offsets into the action table
+  private static final int EXPECT_OPERAND = 0;
+  private static final int EXPECT_OPERATOR = CLASSES;
+
+  // actions
+  private static final byte FAIL = 0;
+  private static final byte AUTHORIZATION = 1;
+  private static final byte QUOTED_AUTHORIZATION = 2;
+  private static final byte OPERATOR = 3;
+  private static final byte OPEN_PAREN = 4;
+  private static final byte CLOSE_PAREN = 5;
+
+  private static final byte[] CHAR_CLASSES = new byte[128];
+  private static final byte[] ACTIONS = new byte[2 * CLASSES];
+
+  static {
+    for (char c = 0; c < CHAR_CLASSES.length; c++) {
+      CHAR_CLASSES[c] = (byte) (Tokenizer.isValidAuthChar(c) ? BASIC : OTHER);
+    }
+    CHAR_CLASSES[QUOTE] = QUOTED;
+    CHAR_CLASSES[CharUtils.AND_OPERATOR] = AND;
+    CHAR_CLASSES[CharUtils.OR_OPERATOR] = OR;
+    CHAR_CLASSES[ParserEvaluator.OPEN_PAREN] = OPEN;
+    CHAR_CLASSES[ParserEvaluator.CLOSE_PAREN] = CLOSE;
+    // a backslash is only valid within quotes, where it is handled when scanning the quoted run
+
+    ACTIONS[EXPECT_OPERAND + BASIC] = AUTHORIZATION;
+    ACTIONS[EXPECT_OPERAND + QUOTED] = QUOTED_AUTHORIZATION;
+    ACTIONS[EXPECT_OPERAND + OPEN] = OPEN_PAREN;
+    ACTIONS[EXPECT_OPERATOR + AND] = OPERATOR;
+    ACTIONS[EXPECT_OPERATOR + OR] = OPERATOR;
+    ACTIONS[EXPECT_OPERATOR + CLOSE] = CLOSE_PAREN;
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final CharsWrapper charsWrapper;
+  private final BytesWrapper bytesWrapper;
+  // the operator used at each depth, or zero if no operator was seen yet
+  private char[] operators = new char[INITIAL_CAPACITY];
+  // the error found by the last call to validate that returned -1
+  ErrorKind errorKind;
+  int errorIndex;
+
+  ExpressionValidator(CharsWrapper charsWrapper, BytesWrapper bytesWrapper) {
+    this.charsWrapper = charsWrapper;
+    this.bytesWrapper = bytesWrapper;
+  }
+
+  private static int charClass(char c) {
+    return c < CHAR_CLASSES.length ? CHAR_CLASSES[c] : OTHER;
+  }
+
+  /**
+   * Records the operator at the depth.
+   *
+   * @return false if a different operator was already used at the depth
+   */
+  private boolean operator(int depth, char operator) {
+    char previous = operators[depth];
+    operators[depth] = operator;
+    return previous == 0 || previous == operator;
+  }
+
+  /**
+   * Records an error.
+   *
+   * @return -1
+   */
+  private int fail(ErrorKind kind, int index) {
+    errorKind = kind;
+    errorIndex = index;
+    return -1;
+  }
+
+  /**
+   * Starts a new depth of parentheses.
+   */
+  private void open(int depth) {
+    if (depth == operators.length) {
+      operators = Arrays.copyOf(operators, Math.multiplyExact(depth, 2));
+    }
+    operators[depth] = 0;
+  }
+
+  /**
+   * Drops the stack if it grew larger than {@link ParseContext#MAX_RETAINED_CAPACITY} to validate a
+   * deeply nested expression.
+   */
+  void clear() {
+    if (operators.length > ParseContext.MAX_RETAINED_CAPACITY) {
+      operators = new char[INITIAL_CAPACITY];
+    }
+  }
+
+  /**
+   * @param validateBasic true if the authorization validator must be called for unquoted
+   *        authorizations
+   * @return the number of authorizations in the expression if it is valid, or -1 if it is not and
+   *         {@link #errorKind} and {@link #errorIndex} describe why
+   * @throws InvalidAuthorizationException if the authorization validator rejects an authorization
+   */
+  int validate(char[] expression, int len, AuthorizationValidator authValidator,
+      boolean validateBasic, ParseOptions options) {
+    final int maxDepth = options.maxDepth;
+    int authorizations = 0;
+    int state = EXPECT_OPERAND;
+    int depth = 0;
+    operators[0] = 0;
+    int i = 0;
+    while (i < len) {
+      switch (ACTIONS[state + charClass(expression[i])]) {
+        case AUTHORIZATION: {
+          int start = i;
+          i = CharScanner.skipAuthChars(expression, i + 1, len);
+          if (validateBasic) {
+            charsWrapper.set(expression, start, i - start);
+            if (!authValidator.test(charsWrapper, AuthorizationCharacters.BASIC)) {
+              options.rejected(ErrorKind.INVALID_AUTHORIZATION, len);
+              throw InvalidAuthorizationException.invalidChars(charsWrapper);
+            }
+          }
+          authorizations++;
+          state = EXPECT_OPERATOR;
+          break;
+        }
+        case QUOTED_AUTHORIZATION: {
+          int start = ++i;
+          boolean hasEscapes = false;
+          while (true) {
+            i = CharScanner.findQuoteOrBackslash(expression, i, len);
+            if (i == len) {
+              return fail(ErrorKind.UNCLOSED_QUOTE, start - 1);
+            }
+            if (expression[i] == QUOTE) {
+              break;
+            }
+            if (i + 1 == len || !CharUtils.isQuoteOrSlash(expression[i + 1])) {
+              return fail(ErrorKind.INVALID_ESCAPE, i);
+            }
+            hasEscapes = true;
+            i += 2;
+          }
+          if (i == start) {
+            return fail(ErrorKind.EMPTY_QUOTED_AUTHORIZATION, start - 1);
+          }
+          charsWrapper.set(expression, start, i - start);
+          CharSequence auth = hasEscapes ? CharUtils.unescape(charsWrapper) : charsWrapper;
+          if (!authValidator.test(auth, AuthorizationCharacters.ANY)) {
+            options.rejected(ErrorKind.INVALID_AUTHORIZATION, len);
+            throw InvalidAuthorizationException.invalidChars(auth);
+          }
+          i++;
+          authorizations++;
+          state = EXPECT_OPERATOR;
+          break;
+        }
+        case OPERATOR:
+          if (!operator(depth, expression[i])) {
+            return fail(ErrorKind.MIXED_OPERATORS, i);
+          }
+          i++;
+          state = EXPECT_OPERAND;
+          break;
+        case OPEN_PAREN:
+          if (depth == maxDepth) {
+            return fail(ErrorKind.MAX_DEPTH_EXCEEDED, i);
+          }
+          open(++depth);
+          i++;
+          break;
+        case CLOSE_PAREN:
+          if (depth == 0) {
+            return fail(ErrorKind.UNEXPECTED_CHARACTER, i);
+          }
+          depth--;
+          i++;
+          break;
+        default:
+          return fail(ErrorKind.UNEXPECTED_CHARACTER, i);
+      }
+    }
+    return state == EXPECT_OPERATOR && depth == 0 ? authorizations
+        : fail(ErrorKind.UNEXPECTED_END, len);
+  }
+
+  /**
+   * The counterpart of
+   * {@link #validate(char[], int, AuthorizationValidator, boolean, ParseOptions)} for an expression
+   * stored as UTF-8 bytes. The bytes of multibyte characters are never in the ASCII range, so they
+   * are classified like any other byte that can not be in an expression outside of quotes.
+   */
+  int validate(byte[] expression, int offset, int len, AuthorizationValidator authValidator,
+      boolean validateBasic, ParseOptions options) {
+    final int maxDepth = options.maxDepth;
+    final int end = offset + len;
+    int authorizations = 0;
+    int state = EXPECT_OPERAND;
+    int depth = 0;
+    operators[0] = 0;
+    int i = offset;
+    while (i < end) {
+      switch (ACTIONS[state + charClass((char) (expression[i] & 0xff))]) {
+        case AUTHORIZATION: {
+          int start = i;
+          i = CharScanner.skipAuthBytes(expression, i + 1, end);
+          if (validateBasic) {
+            bytesWrapper.set(expression, start, i - start);
+            if (!authValidator.test(bytesWrapper, AuthorizationCharacters.BASIC)) {
+              options.rejected(ErrorKind.INVALID_AUTHORIZATION, len);
+              throw InvalidAuthorizationException.invalidChars(bytesWrapper);
+            }
+          }
+          authorizations++;
+          state = EXPECT_OPERATOR;
+          break;
+        }
+        case QUOTED_AUTHORIZATION: {
+          int start = ++i;
+          boolean hasEscapes = false;
+          while (true) {
+            i = CharScanner.findQuoteOrBackslash(expression, i, end);
+            if (i == end) {
+              return fail(ErrorKind.UNCLOSED_QUOTE, start - 1 - offset);
+            }
+            if (expression[i] == QUOTE) {
+              break;
+            }
+            if (i + 1 == end || (expression[i + 1] != QUOTE && expression[i + 1] != BACKSLASH)) {
+              return fail(ErrorKind.INVALID_ESCAPE, i - offset);
+            }
+            hasEscapes = true;
+            i += 2;
+          }
+          if (i == start) {
+            return fail(ErrorKind.EMPTY_QUOTED_AUTHORIZATION, start - 1 - offset);
+          }
+          if (hasEscapes) {
+            byte[] unescaped = CharUtils.unescape(expression, start, i - start);
+            bytesWrapper.set(unescaped, 0, unescaped.length);
+          } else {
+            bytesWrapper.set(expression, start, i - start);
+          }
+          if (!authValidator.test(bytesWrapper, AuthorizationCharacters.ANY)) {
+            options.rejected(ErrorKind.INVALID_AUTHORIZATION, len);
+            throw InvalidAuthorizationException.invalidChars(bytesWrapper);
+          }
+          i++;
+          authorizations++;
+          state = EXPECT_OPERATOR;
+          break;
+        }
+        case OPERATOR:
+          if (!operator(depth, (char) expression[i])) {
+            return fail(ErrorKind.MIXED_OPERATORS, i - offset);
+          }
+          i++;
+          state = EXPECT_OPERAND;
+          break;
+        case OPEN_PAREN:
+          if (depth == maxDepth) {
+            return fail(ErrorKind.MAX_DEPTH_EXCEEDED, i - offset);
+          }
+          open(++depth);
+          i++;
+          break;
+        case CLOSE_PAREN:
+          if (depth == 0) {
+            return fail(ErrorKind.UNEXPECTED_CHARACTER, i - offset);
+          }
+          depth--;
+          i++;
+          break;
+        default:
+          return fail(ErrorKind.UNEXPECTED_CHARACTER, i - offset);
+      }
+    }
+    return state == EXPECT_OPERATOR && depth == 0 ? authorizations
+        : fail(ErrorKind.UNEXPECTED_END, len);
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static org.apache.accumulo.access.impl.CharUtils.AND_OPERATOR;
+import static org.apache.accumulo.access.impl.CharUtils.isAndOrOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.GroupAccessEvaluator;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * Evaluates expressions for many sets of authorizations using an inverted index. The index maps
+ * each authorization to a bitmap of the sets of authorizations that contain it. An expression is
+ * parsed once into a postfix program that combines bitmaps, and the program is then run one 64 bit
+ * word of the bitmaps at a time. This way every set of authorizations in a word is evaluated by a
+ * single {@code &} or {@code |} and no bitmaps for intermediate results are allocated.
+ */
+public final class GroupAccessEvaluatorImpl implements GroupAccessEvaluator {
+
+  static final int OP_BITS = 2;
+  static final int OP_MASK = (1 << OP_BITS) - 1;
+  // pushes a word of a bitmap, the operand is the index of the bitmap in the program
+  static final int PUSH = 0;
+  // pops operand words and pushes their intersection
+  static final int AND = 1;
+  // pops operand words and pushes their union
+  static final int OR = 2;
+
+  // The number of words of the bitmaps and the number of expressions processed by a single task in
+  // matrix mode. A block of words for all the bitmaps used by a block of expressions should fit in
+  // a CPU cache.
+  static final int WORDS_PER_BLOCK = 64;
+  static final int EXPRESSIONS_PER_BLOCK = 64;
+
+  private static final long[] NONE = new long[0];
+
+  private final int size;
+  private final int words;
+  private final Map<CharsWrapper,long[]> index;
+  private final long[] all;
+  private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+
+  GroupAccessEvaluatorImpl(List<Set<String>> authorizationSets,
+      Consumer<String> authArgumentValidator, AuthorizationValidator authorizationValidator,
+      ParseOptions options) {
+    this.size = authorizationSets.size();
+    this.words = (size + 63) >>> 6;
+    this.index = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      for (String auth : authorizationSets.get(i)) {
+        authArgumentValidator.accept(auth);
+        index.computeIfAbsent(new CharsWrapper(auth), k -> new long[words])[i >>> 6] |= 1L << i;
+      }
+    }
+    this.all = new long[words];
+    Arrays.fill(all, -1L);
+    if ((size & 63) != 0) {
+      all[words - 1] = (1L << size) - 1;
+    }
+    this.authorizationValidator = authorizationValidator;
+    this.options = options;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public BitSet whoCanAccess(String accessExpression) throws InvalidAccessExpressionException {
+    var program = compile(accessExpression);
+    long[] result = new long[words];
+    program.evaluate(0, words, result);
+    return BitSet.valueOf(result);
+  }
+
+  @Override
+  public List<BitSet> whoCanAccess(List<String> accessExpressions)
+      throws InvalidAccessExpressionException {
+    // compile first so that any invalid expression is found before doing any work
+    var programs = new Program[accessExpressions.size()];
+    for (int i = 0; i < programs.length; i++) {
+      programs[i] = compile(accessExpressions.get(i));
+    }
+
+    long[][] results = new long[programs.length][words];
+    int expressionBlocks = (programs.length + EXPRESSIONS_PER_BLOCK - 1) / EXPRESSIONS_PER_BLOCK;
+    int wordBlocks = (words + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+    IntStream.range(0, Math.multiplyExact(expressionBlocks, wordBlocks)).parallel()
+        .forEach(block -> {
+          // each task writes to a distinct range of words, so no synchronization is needed
+          int firstExpression = (block / wordBlocks) * EXPRESSIONS_PER_BLOCK;
+          int lastExpression = Math.min(firstExpression + EXPRESSIONS_PER_BLOCK, programs.length);
+          int fromWord = (block % wordBlocks) * WORDS_PER_BLOCK;
+          int toWord = Math.min(fromWord + WORDS_PER_BLOCK, words);
+          for (int e = firstExpression; e < lastExpression; e++) {
+            programs[e].evaluate(fromWord, toWord, results[e]);
+          }
+        });
+
+    var bitSets = new ArrayList<BitSet>(results.length);
+    for (long[] result : results) {
+      bitSets.add(BitSet.valueOf(result));
+    }
+    return bitSets;
+  }
+
+  private Program compile(String expression) {
+    if (expression.isEmpty()) {
+      return new Program(new int[] {PUSH}, new long[][] {all}, 1);
+    }
+    try (var context = ParseContext.acquire()) {
+      return new Compiler(expression, context).compile();
+    }
+  }
+
+  /**
+   * A postfix program that computes which sets of authorizations can access an expression.
+   */
+  private static final class Program {
+    private final int[] instructions;
+    private final long[][] bitmaps;
+    private final int maxDepth;
+
+    Program(int[] instructions, long[][] bitmaps, int maxDepth) {
+      this.instructions = instructions;
+      this.bitmaps = bitmaps;
+      this.maxDepth = maxDepth;
+    }
+
+    void evaluate(int fromWord, int toWord, long[] result) {
+      final long[] stack = new long[maxDepth];
+      for (int word = fromWord; word < toWord; word++) {
+        int sp = 0;
+        for (int instruction : instructions) {
+          int operand = instruction >>> OP_BITS;
+          switch (instruction & OP_MASK) {
+            case PUSH: {
+              long[] bitmap = bitmaps[operand];
+              stack[sp++] = bitmap == NONE ? 0 : bitmap[word];
+              break;
+            }
+            case AND: {
+              long value = stack[--sp];
+              for (int i = 1; i < operand; i++) {
+                value &= stack[--sp];
+              }
+              stack[sp++] = value;
+              break;
+            }
+            default: {
+              long value = stack[--sp];
+              for (int i = 1; i < operand; i++) {
+                value |= stack[--sp];
+              }
+              stack[sp++] = value;
+              break;
+            }
+          }
+        }
+        result[word] = stack[0];
+      }
+    }
+  }
+
+  private final class Compiler {
+    private final Tokenizer tokenizer;
+    private final CharsWrapper lookupWrapper;
+    private final List<long[]> bitmaps = new ArrayList<>();
+    private int[] instructions = new int[16];
+    private int size = 0;
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    Compiler(String expression, ParseContext context) {
+      this.tokenizer = context.tokenizer(expression, options);
+      this.lookupWrapper = context.lookupWrapper;
+    }
+
+    Program compile() {
+      compileExpression();
+
+      if (tokenizer.hasNext()) {
+        // not all input was read, so not a valid expression
+        tokenizer.unexpected(null);
+      }
+
+      options.metrics.expressionParsed(bitmaps.size());
+      return new Program(Arrays.copyOf(instructions, size), bitmaps.toArray(long[][]::new),
+          maxDepth);
+    }
+
+    private void emit(int op, int operand) {
+      if (size == instructions.length) {
+        instructions = Arrays.copyOf(instructions, Math.multiplyExact(instructions.length, 2));
+      }
+      instructions[size++] = (operand << OP_BITS) | op;
+    }
+
+    /**
+     * Compiles the expression without recursion, so that deeply nested expressions can not overflow
+     * the call stack. Each entry on the tokenizer's stack is an expression being compiled, holding
+     * its operator and how many of its operands have been compiled.
+     */
+    private void compileExpression() {
+      final ParseStack stack = tokenizer.stack();
+      int top = stack.push(false);
+
+      while (true) {
+        if (!tokenizer.hasNext()) {
+          tokenizer.unexpected("a '(' character or an authorization token");
+        }
+
+        if (tokenizer.peek() == ParserEvaluator.OPEN_PAREN) {
+          tokenizer.openParen();
+          top = stack.push(false);
+          continue;
+        }
+
+        compileAuthorization();
+
+        // When an expression ends it is an operand of the enclosing expression, so keep ending
+        // expressions until an operator is seen.
+        while (true) {
+          final char operator = stack.operators[top];
+          stack.values[top]++;
+
+          if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
+            final char nextOperator = tokenizer.peek();
+            if (operator != 0 && nextOperator != operator) {
+              // A case of mixed operators, lets give a clear error message
+              tokenizer.error(ErrorKind.MIXED_OPERATORS, "Cannot mix '|' and '&'");
+            }
+            stack.operators[top] = nextOperator;
+            tokenizer.advance();
+            break;
+          }
+
+          if (operator != 0) {
+            int operands = (int) stack.values[top];
+            emit(operator == AND_OPERATOR ? AND : OR, operands);
+            depth -= operands - 1;
+          }
+
+          if (top == 0) {
+            stack.pop();
+            return;
+          }
+
+          tokenizer.closeParen();
+          top = stack.pop();
+        }
+      }
+    }
+
+    private void compileAuthorization() {
+      var authToken = tokenizer.nextAuthorization(false);
+      var auth = ParserEvaluator.validateAuth(authorizationValidator, authToken, lookupWrapper);
+      long[] bitmap = index
+          .get(auth instanceof CharsWrapper wrapped ? wrapped : new CharsWrapper(auth.toString()));
+      emit(PUSH, bitmaps.size());
+      bitmaps.add(bitmap == null ? NONE : bitmap);
+      maxDepth = Math.max(maxDepth, ++depth);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.accumulo.access.AccessMetricsMXBean;
+import org.apache.accumulo.access.JmxAccessMetrics;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+public final class JmxAccessMetricsImpl implements JmxAccessMetrics {
+
+  static final String DOMAIN = "org.apache.accumulo.access";
+
+  private final String name;
+  private final ObjectName objectName;
+
+  private final LongAdder evaluated = new LongAdder();
+  private final LongAdder accessible = new LongAdder();
+  private final LongAdder parsed = new LongAdder();
+  private final LongAdder evaluatedAuthorizations = new LongAdder();
+  private final LongAdder parsedAuthorizations = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+  private final Map<ErrorKind,LongAdder> rejected = new EnumMap<>(ErrorKind.class);
+  private final LongAdder bufferGrowths = new LongAdder();
+  private final LongAccumulator largestBuffer = new LongAccumulator(Math::max, 0);
+
+  private JmxAccessMetricsImpl(String name, ObjectName objectName) {
+    this.name = name;
+    this.objectName = objectName;
+    for (ErrorKind kind : ErrorKind.values()) {
+      rejected.put(kind, new LongAdder());
+    }
+  }
+
+  public static JmxAccessMetricsImpl register(String name) {
+    Objects.requireNonNull(name);
+    ObjectName objectName;
+    try {
+      objectName = new ObjectName(DOMAIN + ":type=AccessMetrics,name=" + name);
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalArgumentException("Invalid metrics name : " + name, e);
+    }
+    if (objectName.getKeyPropertyList().size() != 2
+        || !name.equals(objectName.getKeyProperty("name"))) {
+      // the name added other properties to the object name
+      throw new IllegalArgumentException("Invalid metrics name : " + name);
+    }
+    var metrics = new JmxAccessMetricsImpl(name, objectName);
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(new StandardMBean(metrics, AccessMetricsMXBean.class, true), objectName);
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to register metrics " + objectName, e);
+    }
+    return metrics;
+  }
+
+  @Override
+  public void expressionEvaluated(boolean accessible, int authorizations, int lookups) {
+    evaluated.increment();
+    if (accessible) {
+      this.accessible.increment();
+    }
+    evaluatedAuthorizations.add(authorizations);
+    this.lookups.add(lookups);
+  }
+
+  @Override
+  public void expressionParsed(int authorizations) {
+    parsed.increment();
+    parsedAuthorizations.add(authorizations);
+  }
+
+  @Override
+  public void expressionRejected(ErrorKind reason) {
+    rejected.get(reason).increment();
+  }
+
+  @Override
+  public void bufferGrown(int capacity) {
+    bufferGrowths.increment();
+    largestBuffer.accumulate(capacity);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public void close() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (InstanceNotFoundException e) {
+      // already closed
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to unregister metrics " + objectName, e);
+    }
+  }
+
+  @Override
+  public long getEvaluatedExpressions() {
+    return evaluated.sum();
+  }
+
+  @Override
+  public long getAccessibleExpressions() {
+    return accessible.sum();
+  }
+
+  @Override
+  public long getParsedExpressions() {
+    return parsed.sum();
+  }
+
+  @Override
+  public long getRejectedExpressions() {
+    long sum = 0;
+    for (LongAdder adder : rejected.values()) {
+      sum += adder.sum();
+    }
+    return sum;
+  }
+
+  @Override
+  public Map<String,Long> getRejectedExpressionsByReason() {
+    var byReason = new TreeMap<String,Long>();
+    rejected.forEach((kind, adder) -> byReason.put(kind.name(), adder.sum()));
+    return byReason;
+  }
+
+  @Override
+  public long getEvaluatedAuthorizations() {
+    return evaluatedAuthorizations.sum();
+  }
+
+  @Override
+  public long getAuthorizationLookups() {
+    return lookups.sum();
+  }
+
+  @Override
+  public double getShortCircuitRate() {
+    long authorizations = evaluatedAuthorizations.sum();
+    return authorizations == 0 ? 0 : 1 - (double) lookups.sum() / authorizations;
+  }
+
+  @Override
+  public double getAverageAuthorizationsPerExpression() {
+    long expressions = evaluated.sum() + parsed.sum();
+    return expressions == 0 ? 0
+        : (double) (evaluatedAuthorizations.sum() + parsedAuthorizations.sum()) / expressions;
+  }
+
+  @Override
+  public long getBufferGrowths() {
+    return bufferGrowths.sum();
+  }
+
+  @Override
+  public long getLargestBufferCapacity() {
+    return largestBuffer.get();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + objectName + "]";
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CachingAccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+
+/**
+ * Remembers the decisions of an authorizer for each distinct authorization. Authorizations are
+ * looked up in the cache using the reusable wrapper that the parser already created for the
+ * authorization, so a String is only created when the authorizer has to be called.
+ *
+ * <p>
+ * Authorizations from expressions stored as UTF-8 bytes are remembered in a second cache keyed by
+ * the bytes, so they are never decoded to be looked up. That cache is created the first time it is
+ * needed, as most evaluators will never see an expression stored as bytes. Each cache has the
+ * capacity given, and an authorization seen both as chars and as bytes is passed to the authorizer
+ * once for each.
+ */
+public final class MemoizingAccessEvaluatorImpl implements CachingAccessEvaluator {
+
+  private final ClockCache<CharsWrapper> cache;
+  private final AtomicReference<ClockCache<BytesWrapper>> bytesCache = new AtomicReference<>();
+  private final Predicate<BytesWrapper> bytesLoader;
+  private final int capacity;
+  private final long ttlNanos;
+  private final LongSupplier ticker;
+  private final AccessEvaluatorImpl evaluator;
+
+  MemoizingAccessEvaluatorImpl(Predicate<String> authorizer, int capacity, long ttlNanos,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    this(authorizer, capacity, ttlNanos, System::nanoTime, authorizationValidator, options);
+  }
+
+  MemoizingAccessEvaluatorImpl(Predicate<String> authorizer, int capacity, long ttlNanos,
+      LongSupplier ticker, AuthorizationValidator authorizationValidator, ParseOptions options) {
+    // the wrapper used for lookups is reused, so it must be copied before adding it to the cache
+    this.cache =
+        new ClockCache<>(capacity, ttlNanos, auth -> new CharsWrapper(auth.toString()), ticker);
+    this.capacity = capacity;
+    this.ttlNanos = ttlNanos;
+    this.ticker = ticker;
+    Predicate<CharsWrapper> loader = auth -> authorizer.test(auth.toString());
+    this.bytesLoader = auth -> authorizer.test(auth.toString());
+    this.evaluator = new AccessEvaluatorImpl(auth -> cache.get(
+        auth instanceof CharsWrapper wrapped ? wrapped : new CharsWrapper(auth.toString()), loader),
+        auth -> getBytesCache().get(auth, bytesLoader), authorizationValidator, options);
+  }
+
+  private ClockCache<BytesWrapper> getBytesCache() {
+    var bc = bytesCache.get();
+    if (bc == null) {
+      bytesCache.compareAndSet(null,
+          new ClockCache<>(capacity, ttlNanos, auth -> new BytesWrapper(
+              Arrays.copyOfRange(auth.array(), auth.offset(), auth.offset() + auth.byteLength())),
+              ticker));
+      // must get() again in case another thread won w/ the compare and set
+      bc = bytesCache.get();
+    }
+    return bc;
+  }
+
+  @Override
+  public boolean canAccess(String accessExpression) throws InvalidAccessExpressionException {
+    return evaluator.canAccess(accessExpression);
+  }
+
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    return evaluator.canAccess(expression, offset, length);
+  }
+
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    return evaluator.canAccess(compiledExpression);
+  }
+
+  @Override
+  public int getCapacity() {
+    return cache.capacity();
+  }
+
+  @Override
+  public long getHitCount() {
+    var bc = bytesCache.get();
+    return cache.hits() + (bc == null ? 0 : bc.hits());
+  }
+
+  @Override
+  public long getMissCount() {
+    var bc = bytesCache.get();
+    return cache.misses() + (bc == null ? 0 : bc.misses());
+  }
+}
@@ -18,27 +18,152 @@
  */
 package org.apache.accumulo.access.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CompiledAccessExpression;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
 
+/**
+ * Evaluates expressions against multiple sets of authorizations. Expressions are tokenized and
+ * parsed once for all sets of authorizations. Each authorization maps to a mask that has a bit set
+ * for each set of authorizations that contains it and the masks are combined while parsing, see
+ * {@code ParserEvaluator.evaluateMasks()}. Compiled expressions are run once against the same
+ * masks, see {@code CompiledAccessExpressionImpl.evaluate()}.
+ *
+ * <p>
+ * Access expressions can not negate an authorization, so when one set of authorizations is a
+ * superset of another set it can access anything the subset can access. Since an expression is only
+ * accessible if every set can access it, supersets can never change the result and are dropped.
+ */
 public final class MultiAccessEvaluatorImpl implements AccessEvaluator {
 
-  private final List<AccessEvaluator> evaluators;
+  /**
+   * Masks for up to 64 sets of authorizations.
+   */
+  static final class SetMasks {
+    private final Map<CharsWrapper,Long> masks = new HashMap<>();
+    private final Map<BytesWrapper,Long> utf8Masks = new HashMap<>();
+    final long allMask;
+    // created once so that evaluating does not allocate
+    final ToLongFunction<CharSequence> charsMasks = this::getMask;
+    final ToLongFunction<BytesWrapper> bytesMasks = this::getMask;
+
+    SetMasks(List<Set<String>> authorizationSets) {
+      for (int i = 0; i < authorizationSets.size(); i++) {
+        final long bit = 1L << i;
+        for (String auth : authorizationSets.get(i)) {
+          masks.merge(new CharsWrapper(auth), bit, (m1, m2) -> m1 | m2);
+          utf8Masks.merge(new BytesWrapper(auth.getBytes(UTF_8)), bit, (m1, m2) -> m1 | m2);
+        }
+      }
+      allMask = authorizationSets.size() == 64 ? -1L : (1L << authorizationSets.size()) - 1;
+    }
+
+    long getMask(CharSequence auth) {
+      var mask = masks
+          .get(auth instanceof CharsWrapper wrapped ? wrapped : new CharsWrapper(auth.toString()));
+      return mask == null ? 0 : mask;
+    }
+
+    long getMask(BytesWrapper auth) {
+      var mask = utf8Masks.get(auth);
+      return mask == null ? 0 : mask;
+    }
+  }
+
+  private final List<SetMasks> setMasks;
+  private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+
+  MultiAccessEvaluatorImpl(Collection<Set<String>> authorizationSets,
+      Consumer<String> authArgumentValidator, AuthorizationValidator authorizationValidator,
+      ParseOptions options) {
+    authorizationSets.forEach(set -> set.forEach(authArgumentValidator));
+
+    List<Set<String>> pruned = new ArrayList<>(authorizationSets.size());
+    for (Set<String> set : authorizationSets) {
+      if (pruned.stream().noneMatch(set::containsAll)) {
+        pruned.removeIf(prior -> prior.containsAll(set));
+        pruned.add(set);
+      }
+    }
 
-  MultiAccessEvaluatorImpl(List<AccessEvaluator> evaluators) {
-    this.evaluators = evaluators;
+    this.setMasks = new ArrayList<>((pruned.size() + 63) / 64);
+    for (int i = 0; i < pruned.size(); i += 64) {
+      setMasks.add(new SetMasks(pruned.subList(i, Math.min(i + 64, pruned.size()))));
+    }
+    this.authorizationValidator = authorizationValidator;
+    this.options = options;
   }
 
   @Override
   public boolean canAccess(String accessExpression) throws InvalidAccessExpressionException {
-    for (AccessEvaluator evaluator : evaluators) {
-      if (!evaluator.canAccess(accessExpression)) {
-        return false;
+    if (setMasks.isEmpty()) {
+      ParserEvaluator.validate(accessExpression, authorizationValidator, options);
+      return true;
+    }
+
+    try (var context = ParseContext.acquire()) {
+      var event = AccessEvents.beginEvaluation();
+      // the counts of the last pass are reported, as it decides if the expression is accessible
+      Tokenizer tokenizer = null;
+      // loop by index, an iterator is only removed once this is compiled with escape analysis
+      for (int i = 0; i < setMasks.size(); i++) {
+        var masks = setMasks.get(i);
+        var lookup = context.charsMaskLookup.set(authorizationValidator, masks.charsMasks);
+        tokenizer = context.tokenizer(accessExpression, options);
+        if (ParserEvaluator.evaluateMasks(tokenizer, lookup, lookup.shortCircuit, masks.allMask)
+            != masks.allMask) {
+          return ParserEvaluator.evaluated(event, false, tokenizer, options);
+        }
       }
+      return ParserEvaluator.evaluated(event, true, tokenizer, options);
+    }
+  }
+
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    Objects.checkFromIndexSize(offset, length, expression.length);
+    if (setMasks.isEmpty()) {
+      ParserEvaluator.validate(expression, offset, length, authorizationValidator, options);
+      return true;
+    }
+
+    try (var context = ParseContext.acquire()) {
+      var event = AccessEvents.beginEvaluation();
+      ByteTokenizer tokenizer = null;
+      for (int i = 0; i < setMasks.size(); i++) {
+        var masks = setMasks.get(i);
+        var lookup = context.bytesMaskLookup.set(authorizationValidator, masks.bytesMasks);
+        tokenizer = context.tokenizer(expression, offset, length, options);
+        if (ParserEvaluator.evaluateMasks(tokenizer, lookup, lookup.shortCircuit, masks.allMask)
+            != masks.allMask) {
+          return ParserEvaluator.evaluated(event, false, tokenizer, options);
+        }
+      }
+      return ParserEvaluator.evaluated(event, true, tokenizer, options);
+    }
+  }
+
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    try (var context = ParseContext.acquire()) {
+      return ((CompiledAccessExpressionImpl) compiledExpression).evaluate(setMasks, context,
+          options);
     }
-    return true;
   }
 
 }
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+/**
+ * Checks for the modules that this module only requires statically, jdk.jfr and java.management. A
+ * runtime image may not include them, so classes that use them must not be loaded unless the module
+ * is present and readable.
+ */
+public final class OptionalModules {
+
+  private OptionalModules() {}
+
+  static boolean isPresent(String moduleName) {
+    var module = OptionalModules.class.getModule();
+    var layer = module.getLayer() == null ? ModuleLayer.boot() : module.getLayer();
+    return layer.findModule(moduleName).map(module::canRead).orElse(false);
+  }
+
+  /**
+   * @throws IllegalStateException when the module is not present or not readable
+   */
+  public static void require(String moduleName, String feature) {
+    if (!isPresent(moduleName)) {
+      throw new IllegalStateException(
+          feature + " requires the " + moduleName + " module, which is not present");
+    }
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The reusable objects needed to parse an expression. Parsing an expression should not allocate, so
+ * these objects are reused by acquiring a context before parsing and closing it when done.
+ *
+ * <pre>
+ * {@code
+ * try (var context = ParseContext.acquire()) {
+ *   var tokenizer = context.tokenizer(expression, options);
+ *   ...
+ * }
+ * }
+ * </pre>
+ *
+ * <p>
+ * Platform threads are usually long-lived, so each platform thread keeps its own context in a
+ * thread local. Virtual threads are usually short-lived and there can be millions of them, so
+ * virtual threads share a small pool of contexts instead. Buffers that grew larger than
+ * {@link #MAX_RETAINED_CAPACITY} to parse a large expression are dropped when the context is
+ * closed, so a single large expression can not cause a large buffer to be kept forever.
+ */
+final class ParseContext implements AutoCloseable {
+
+  static final int INITIAL_CAPACITY = 128;
+  static final int MAX_RETAINED_CAPACITY = 8192;
+
+  private static final int POOL_SIZE =
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+
+  private static final ThreadLocal<ParseContext> threadContexts =
+      ThreadLocal.withInitial(() -> new ParseContext(false));
+  private static final AtomicReferenceArray<ParseContext> pool =
+      new AtomicReferenceArray<>(POOL_SIZE);
+
+  // Thread.isVirtual() does not exist in Java 17, so look it up at runtime
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+  private static MethodHandle findIsVirtual() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+          MethodType.methodType(boolean.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  final CharsWrapper lookupWrapper = new CharsWrapper(new char[0]);
+  final BytesWrapper bytesLookupWrapper = new BytesWrapper(new byte[0]);
+  final ParserEvaluator.CharsChecker charsChecker = new ParserEvaluator.CharsChecker(lookupWrapper);
+  final ParserEvaluator.BytesChecker bytesChecker =
+      new ParserEvaluator.BytesChecker(bytesLookupWrapper);
+  final ParserEvaluator.CharsLookup charsLookup = new ParserEvaluator.CharsLookup(lookupWrapper);
+  final ParserEvaluator.BytesLookup bytesLookup =
+      new ParserEvaluator.BytesLookup(bytesLookupWrapper);
+  final ParserEvaluator.TrieLookup trieLookup = new ParserEvaluator.TrieLookup(lookupWrapper);
+  final ParserEvaluator.CharsMaskLookup charsMaskLookup =
+      new ParserEvaluator.CharsMaskLookup(lookupWrapper);
+  final ParserEvaluator.BytesMaskLookup bytesMaskLookup =
+      new ParserEvaluator.BytesMaskLookup(bytesLookupWrapper);
+  final ExpressionValidator expressionValidator =
+      new ExpressionValidator(lookupWrapper, bytesLookupWrapper);
+  private final Tokenizer tokenizer = new Tokenizer(new char[0]);
+  private final ByteTokenizer byteTokenizer = new ByteTokenizer();
+  private char[] expressionArray = new char[INITIAL_CAPACITY];
+  private long[] maskArray = new long[INITIAL_CAPACITY];
+  // true when this context belongs to the pool, false when it belongs to a thread local
+  private final boolean pooled;
+  private boolean inUse = false;
+
+  private ParseContext(boolean pooled) {
+    this.pooled = pooled;
+  }
+
+  static ParseContext acquire() {
+    ParseContext context;
+    var thread = Thread.currentThread();
+    if (isVirtual(thread)) {
+      context = null;
+      // start looking at a different slot for each thread to avoid contention
+      int start = (int) thread.getId();
+      for (int i = 0; i < POOL_SIZE && context == null; i++) {
+        context = pool.getAndSet((start + i) & (POOL_SIZE - 1), null);
+      }
+      if (context == null) {
+        context = new ParseContext(true);
+      }
+    } else {
+      context = threadContexts.get();
+      if (context.inUse) {
+        // An authorization validator or predicate is parsing an expression while this thread is
+        // already parsing one. The context is in use, so use a new one that is not kept.
+        context = new ParseContext(false);
+      }
+    }
+    context.inUse = true;
+    return context;
+  }
+
+  /**
+   * Copies the expression to a buffer and returns a tokenizer for it. An expression that is longer
+   * than the limit is not copied.
+   */
+  Tokenizer tokenizer(String expression, ParseOptions options) {
+    var array = chars(expression, options);
+    tokenizer.reset(array, expression.length());
+    return tokenizer.withOptions(options);
+  }
+
+  /**
+   * Copies the expression to a buffer and returns the buffer, the expression is at the start of the
+   * buffer. An expression that is longer than the limit is not copied.
+   */
+  char[] chars(String expression, ParseOptions options) {
+    options.checkLength(expression);
+    var array = expressionArray;
+    if (array.length < expression.length()) {
+      int newLen = array.length;
+      while (newLen < expression.length()) {
+        newLen = Math.multiplyExact(newLen, 2);
+      }
+      array = new char[newLen];
+      expressionArray = array;
+      options.metrics.bufferGrown(newLen);
+    }
+    expression.getChars(0, expression.length(), array, 0);
+    return array;
+  }
+
+  /**
+   * Returns a tokenizer for UTF-8 bytes. The bytes are not copied.
+   */
+  ByteTokenizer tokenizer(byte[] expression, int offset, int length, ParseOptions options) {
+    options.checkLength(expression, offset, length);
+    byteTokenizer.reset(expression, offset, length);
+    return byteTokenizer.withOptions(options);
+  }
+
+  /**
+   * Returns a buffer of masks whose first {@code size} entries are zero.
+   */
+  long[] masks(int size) {
+    var array = maskArray;
+    if (array.length < size) {
+      int newLen = array.length;
+      while (newLen < size) {
+        newLen = Math.multiplyExact(newLen, 2);
+      }
+      array = new long[newLen];
+      maskArray = array;
+    } else {
+      Arrays.fill(array, 0, size, 0L);
+    }
+    return array;
+  }
+
+  @Override
+  public void close() {
+    if (expressionArray.length > MAX_RETAINED_CAPACITY) {
+      expressionArray = new char[INITIAL_CAPACITY];
+    }
+    if (maskArray.length > MAX_RETAINED_CAPACITY) {
+      maskArray = new long[INITIAL_CAPACITY];
+    }
+    // do not keep references to the callers data
+    tokenizer.reset(expressionArray, 0);
+    byteTokenizer.reset(ByteTokenizer.EMPTY, 0, 0);
+    lookupWrapper.set(expressionArray, 0, 0);
+    bytesLookupWrapper.set(ByteTokenizer.EMPTY, 0, 0);
+    charsChecker.set(null, null);
+    bytesChecker.set(null, null);
+    charsLookup.set(null, null);
+    bytesLookup.set(null, null);
+    trieLookup.set(null, null);
+    charsMaskLookup.set(null, null);
+    bytesMaskLookup.set(null, null);
+    expressionValidator.clear();
+    inUse = false;
+
+    if (pooled) {
+      int start = (int) Thread.currentThread().getId();
+      for (int i = 0; i < POOL_SIZE; i++) {
+        if (pool.compareAndSet((start + i) & (POOL_SIZE - 1), null, this)) {
+          return;
+        }
+      }
+      // the pool is full, so let this context be garbage collected
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Objects;
+
+import org.apache.accumulo.access.AccessMetrics;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
+
+/**
+ * The options set using {@link org.apache.accumulo.access.Access.Builder} that are needed while
+ * parsing expressions. These are bounds on the expressions, expressions that are longer or more
+ * deeply nested are not valid, and the metrics that parsing and evaluating report to.
+ */
+final class ParseOptions {
+
+  static final ParseOptions NONE =
+      new ParseOptions(Integer.MAX_VALUE, Integer.MAX_VALUE, AccessMetrics.NONE);
+
+  // how much of an expression that is too long is put in the exception
+  private static final int MAX_MESSAGE_LENGTH = 64;
+
+  // the maximum number of chars, or bytes for UTF-8 expressions
+  final int maxLength;
+  // the maximum number of parentheses that can be nested in each other
+  final int maxDepth;
+  final AccessMetrics metrics;
+
+  ParseOptions(int maxLength, int maxDepth, AccessMetrics metrics) {
+    if (maxLength < 0) {
+      throw new IllegalArgumentException("Maximum length must not be negative : " + maxLength);
+    }
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Maximum depth must not be negative : " + maxDepth);
+    }
+    this.maxLength = maxLength;
+    this.maxDepth = maxDepth;
+    this.metrics = Objects.requireNonNull(metrics);
+  }
+
+  void checkLength(String expression) {
+    if (expression.length() > maxLength) {
+      String prefix = expression;
+      if (expression.length() > MAX_MESSAGE_LENGTH) {
+        int end = MAX_MESSAGE_LENGTH;
+        if (Character.isHighSurrogate(expression.charAt(end - 1))) {
+          end--;
+        }
+        prefix = expression.substring(0, end).concat("...");
+      }
+      throw tooLong(prefix, expression.length());
+    }
+  }
+
+  void checkLength(byte[] expression, int offset, int length) {
+    if (length > maxLength) {
+      String prefix;
+      if (length > MAX_MESSAGE_LENGTH) {
+        int end = offset + MAX_MESSAGE_LENGTH;
+        // do not cut a multi byte UTF-8 character in half
+        while (end > offset && (expression[end] & 0xC0) == 0x80) {
+          end--;
+        }
+        prefix = new String(expression, offset, end - offset, UTF_8).concat("...");
+      } else {
+        prefix = new String(expression, offset, length, UTF_8);
+      }
+      throw tooLong(prefix, length);
+    }
+  }
+
+  /**
+   * Only the start of an expression that is too long is put in the exception, the expression could
+   * be very large.
+   */
+  private InvalidAccessExpressionException tooLong(String prefix, int length) {
+    rejected(ErrorKind.MAX_LENGTH_EXCEEDED, length);
+    return new InvalidAccessExpressionException(
+        "Length " + length + " is longer than the maximum length of " + maxLength, prefix,
+        maxLength);
+  }
+
+  /**
+   * Reports an expression that is not valid to the metrics and Java Flight Recorder.
+   */
+  void rejected(ErrorKind reason, int length) {
+    metrics.expressionRejected(reason);
+    AccessEvents.validationFailed(reason, length);
+  }
+
+  /**
+   * Reports an evaluated expression to the metrics and Java Flight Recorder.
+   *
+   * @param event the event that was begun before the expression was evaluated
+   */
+  void evaluated(Object event, boolean compiled, boolean accessible, int length, int depth,
+      int authorizations, int lookups) {
+    metrics.expressionEvaluated(accessible, authorizations, lookups);
+    AccessEvents.evaluated(event, compiled, accessible, length, depth, authorizations, lookups);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.Arrays;
+
+/**
+ * The stack used to parse expressions without recursion, so that deeply nested expressions can not
+ * overflow the call stack. Each entry is an expression that is being parsed, the entry at the top
+ * is the innermost parenthesized expression. An entry holds the operator of the expression, which
+ * is zero until the first operator is seen, the value of the operands seen so far, and whether
+ * authorizations are only validated because the value of the expression is already known.
+ *
+ * <p>
+ * Each tokenizer has a stack that is reused to parse every expression.
+ */
+final class ParseStack {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  char[] operators = new char[INITIAL_CAPACITY];
+  long[] values = new long[INITIAL_CAPACITY];
+  boolean[] shortCircuited = new boolean[INITIAL_CAPACITY];
+  private int size = 0;
+  // the number of authorizations parsed, how many of them were looked up, and the deepest entry
+  // pushed, for metrics and events
+  int authorizations = 0;
+  int lookups = 0;
+  int depth = 0;
+
+  /**
+   * Removes all entries and resets the counts, dropping the arrays if they grew larger than
+   * {@link ParseContext#MAX_RETAINED_CAPACITY} to parse a deeply nested expression.
+   */
+  void clear() {
+    if (operators.length > ParseContext.MAX_RETAINED_CAPACITY) {
+      operators = new char[INITIAL_CAPACITY];
+      values = new long[INITIAL_CAPACITY];
+      shortCircuited = new boolean[INITIAL_CAPACITY];
+    }
+    size = 0;
+    authorizations = 0;
+    lookups = 0;
+    depth = 0;
+  }
+
+  /**
+   * @return the index of the new top entry
+   */
+  int push(boolean shortCircuit) {
+    if (size == operators.length) {
+      int newLength = Math.multiplyExact(size, 2);
+      operators = Arrays.copyOf(operators, newLength);
+      values = Arrays.copyOf(values, newLength);
+      shortCircuited = Arrays.copyOf(shortCircuited, newLength);
+    }
+    operators[size] = 0;
+    values[size] = 0;
+    shortCircuited[size] = shortCircuit;
+    if (size > depth) {
+      depth = size;
+    }
+    return size++;
+  }
+
+  /**
+   * @return the index of the new top entry
+   */
+  int pop() {
+    return --size - 1;
+  }
+}
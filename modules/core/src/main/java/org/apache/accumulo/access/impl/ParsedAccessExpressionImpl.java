@@ -30,10 +30,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.accumulo.access.AccessMetrics;
 import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CompiledAccessExpression;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
 import org.apache.accumulo.access.InvalidAuthorizationException;
 import org.apache.accumulo.access.ParsedAccessExpression;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
 
 public final class ParsedAccessExpressionImpl extends ParsedAccessExpression {
 
@@ -41,6 +44,7 @@ public final class ParsedAccessExpressionImpl extends ParsedAccessExpression {
 
   private final String wholeExpression;
   private final AtomicReference<String> expression = new AtomicReference<>(null);
+  private final AtomicReference<CompiledAccessExpression> compiledRef = new AtomicReference<>();
   private final int offset;
   private final int length;
 
@@ -103,6 +107,20 @@ public final class ParsedAccessExpressionImpl extends ParsedAccessExpression {
     return this;
   }
 
+  @Override
+  public CompiledAccessExpression compile() {
+    CompiledAccessExpression compiled = compiledRef.get();
+    if (compiled == null) {
+      // This expression authorizations were already validated, so can pass a lambda that always
+      // returns true
+      compiledRef.compareAndSet(null, CompiledAccessExpressionImpl.compile(getExpression(),
+          (auth, quoting) -> true, ParseOptions.NONE));
+      // must get() again in case another thread won w/ the compare and set
+      compiled = compiledRef.get();
+    }
+    return compiled;
+  }
+
   @Override
   public ExpressionType getType() {
     return type;
@@ -114,91 +132,132 @@ public final class ParsedAccessExpressionImpl extends ParsedAccessExpression {
   }
 
   public static ParsedAccessExpression parseExpression(String expression,
-      AuthorizationValidator authorizationValidator) {
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
     if (expression.isEmpty()) {
       return ParsedAccessExpressionImpl.EMPTY;
     }
 
-    Tokenizer tokenizer = ParserEvaluator.getPerThreadTokenizer(expression);
-    var parsed =
-        ParsedAccessExpressionImpl.parseExpression(tokenizer, expression, authorizationValidator);
-
-    if (tokenizer.hasNext()) {
-      // not all input was read, so not a valid expression
-      tokenizer.error("Unexpected character '" + tokenizer.peek() + "'");
+    try (var context = ParseContext.acquire()) {
+      Tokenizer tokenizer = context.tokenizer(expression, options);
+      return ParsedAccessExpressionImpl.parseExpression(tokenizer, context.lookupWrapper,
+          expression, authorizationValidator, options.metrics);
     }
+  }
+
+  /**
+   * An expression that is being parsed, which is either the whole expression or one inside
+   * parentheses.
+   */
+  private static final class ParseLevel {
+    final int beginOffset;
+    // zero until the first operator is seen
+    char operator = 0;
+    // the first operand, the other operands are added to nodes once an operator is seen
+    ParsedAccessExpressionImpl first;
+    List<ParsedAccessExpression> nodes;
 
-    return parsed;
+    ParseLevel(int beginOffset) {
+      this.beginOffset = beginOffset;
+    }
   }
 
+  /**
+   * Builds the parse tree using an explicit stack of the expressions being parsed instead of
+   * recursion, so deeply nested expressions can not overflow the call stack.
+   */
   private static ParsedAccessExpressionImpl parseExpression(Tokenizer tokenizer,
-      String wholeExpression, AuthorizationValidator authorizationValidator) {
-
-    int beginOffset = tokenizer.curentOffset();
-    ParsedAccessExpressionImpl node =
-        parseParenExpressionOrAuthorization(tokenizer, wholeExpression, authorizationValidator);
-
-    if (tokenizer.hasNext()) {
-      var operator = tokenizer.peek();
-      if (isAndOrOperator(operator)) {
-        List<ParsedAccessExpression> nodes = new ArrayList<>();
-        nodes.add(node);
-        do {
-          tokenizer.advance();
-          ParsedAccessExpression next = parseParenExpressionOrAuthorization(tokenizer,
-              wholeExpression, authorizationValidator);
-          nodes.add(next);
-        } while (tokenizer.hasNext() && tokenizer.peek() == operator);
+      CharsWrapper wrapper, String wholeExpression, AuthorizationValidator authorizationValidator,
+      AccessMetrics metrics) {
+
+    int authorizations = 0;
+    List<ParseLevel> levels = new ArrayList<>();
+    ParseLevel level = new ParseLevel(tokenizer.curentOffset());
+    levels.add(level);
+
+    while (true) {
+      // parse an operand, which is either an authorization or the start of a nested expression
+      if (tokenizer.hasNext() && tokenizer.peek() == ParserEvaluator.OPEN_PAREN) {
+        tokenizer.openParen();
+        level = new ParseLevel(tokenizer.curentOffset());
+        levels.add(level);
+        continue;
+      }
+      ParsedAccessExpressionImpl node =
+          parseAuthorization(tokenizer, wrapper, wholeExpression, authorizationValidator);
+      authorizations++;
+
+      // Add the operand to the expression it is in. When that expression ends it is an operand of
+      // the enclosing expression, so keep adding until an operator is seen.
+      while (true) {
+        if (level.operator == 0) {
+          level.first = node;
+        } else {
+          level.nodes.add(node);
+        }
 
         if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
-          // A case of mixed operators, lets give a clear error message
-          tokenizer.error("Cannot mix '|' and '&'");
+          var operator = tokenizer.peek();
+          if (level.operator == 0) {
+            level.operator = operator;
+            level.nodes = new ArrayList<>();
+            level.nodes.add(level.first);
+          } else if (operator != level.operator) {
+            // A case of mixed operators, lets give a clear error message
+            tokenizer.error(ErrorKind.MIXED_OPERATORS, "Cannot mix '|' and '&'");
+          }
+          tokenizer.advance();
+          break;
         }
 
-        int endOffset = tokenizer.curentOffset();
+        if (level.operator == 0) {
+          node = level.first;
+        } else {
+          int endOffset = tokenizer.curentOffset();
+          node = new ParsedAccessExpressionImpl(level.operator, wholeExpression, level.beginOffset,
+              endOffset - level.beginOffset, level.nodes);
+        }
 
-        node = new ParsedAccessExpressionImpl(operator, wholeExpression, beginOffset,
-            endOffset - beginOffset, nodes);
+        levels.remove(levels.size() - 1);
+        if (levels.isEmpty()) {
+          if (tokenizer.hasNext()) {
+            // not all input was read, so not a valid expression
+            tokenizer.unexpected(null);
+          }
+          metrics.expressionParsed(authorizations);
+          return node;
+        }
+
+        tokenizer.closeParen();
+        level = levels.get(levels.size() - 1);
       }
     }
-
-    return node;
   }
 
-  private static ParsedAccessExpressionImpl parseParenExpressionOrAuthorization(Tokenizer tokenizer,
-      String wholeExpression, AuthorizationValidator authorizationValidator) {
+  private static ParsedAccessExpressionImpl parseAuthorization(Tokenizer tokenizer,
+      CharsWrapper wrapper, String wholeExpression, AuthorizationValidator authorizationValidator) {
     if (!tokenizer.hasNext()) {
-      tokenizer
-          .error("Expected a '(' character or an authorization token instead saw end of input");
+      tokenizer.unexpected("a '(' character or an authorization token");
     }
 
-    if (tokenizer.peek() == ParserEvaluator.OPEN_PAREN) {
-      tokenizer.advance();
-      var node = parseExpression(tokenizer, wholeExpression, authorizationValidator);
-      tokenizer.next(ParserEvaluator.CLOSE_PAREN);
-      return node;
-    } else {
-      var auth = tokenizer.nextAuthorization(true);
-      CharSequence unquotedAuth;
-      AuthorizationValidator.AuthorizationCharacters quoting;
-      var wrapper = ParserEvaluator.lookupWrappers.get();
-      if (CharUtils.isQuoteSymbol(auth.data[auth.start])) {
-        wrapper.set(auth.data, auth.start + 1, auth.len - 2);
-        if (auth.hasEscapes) {
-          unquotedAuth = CharUtils.unescape(wrapper);
-        } else {
-          unquotedAuth = wrapper;
-        }
-        quoting = AuthorizationValidator.AuthorizationCharacters.ANY;
+    var auth = tokenizer.nextAuthorization(true);
+    CharSequence unquotedAuth;
+    AuthorizationValidator.AuthorizationCharacters quoting;
+    if (CharUtils.isQuoteSymbol(auth.data[auth.start])) {
+      wrapper.set(auth.data, auth.start + 1, auth.len - 2);
+      if (auth.hasEscapes) {
+        unquotedAuth = CharUtils.unescape(wrapper);
       } else {
-        wrapper.set(auth.data, auth.start, auth.len);
         unquotedAuth = wrapper;
-        quoting = AuthorizationValidator.AuthorizationCharacters.BASIC;
       }
-      if (!authorizationValidator.test(unquotedAuth, quoting)) {
-        throw InvalidAuthorizationException.invalidChars(unquotedAuth);
-      }
-      return new ParsedAccessExpressionImpl(wholeExpression, auth.start, auth.len);
+      quoting = AuthorizationValidator.AuthorizationCharacters.ANY;
+    } else {
+      wrapper.set(auth.data, auth.start, auth.len);
+      unquotedAuth = wrapper;
+      quoting = AuthorizationValidator.AuthorizationCharacters.BASIC;
+    }
+    if (!authorizationValidator.test(unquotedAuth, quoting)) {
+      throw InvalidAuthorizationException.invalidChars(unquotedAuth);
     }
+    return new ParsedAccessExpressionImpl(wholeExpression, auth.start, auth.len);
   }
 }
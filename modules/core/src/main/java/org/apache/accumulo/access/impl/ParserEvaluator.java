@@ -18,14 +18,17 @@
  */
 package org.apache.accumulo.access.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.accumulo.access.impl.CharUtils.isAndOrOperator;
 
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 import org.apache.accumulo.access.AuthorizationValidator;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
 import org.apache.accumulo.access.InvalidAuthorizationException;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
 
 /**
  * Code for parsing and evaluating an access expression at the same time.
@@ -35,171 +38,583 @@ public final class ParserEvaluator {
   static final char OPEN_PAREN = '(';
   static final char CLOSE_PAREN = ')';
 
-  static final ThreadLocal<CharsWrapper> lookupWrappers =
-      ThreadLocal.withInitial(() -> new CharsWrapper(new char[0]));
-  static final ThreadLocal<Tokenizer> tokenizers =
-      ThreadLocal.withInitial(() -> new Tokenizer(new char[0]));
-  static final ThreadLocal<char[]> expressionArrays = ThreadLocal.withInitial(() -> new char[128]);
-
-  static Tokenizer getPerThreadTokenizer(String expression) {
-    var tokenizer = tokenizers.get();
-    var array = expressionArrays.get();
-    if (array.length < expression.length()) {
-      int newLen = array.length;
-      while (newLen < expression.length()) {
-        newLen = Math.multiplyExact(newLen, 2);
-      }
-      array = new char[newLen];
-      expressionArrays.set(array);
+  static CharSequence validateAuth(AuthorizationValidator authValidator,
+      Tokenizer.AuthorizationToken authToken, CharsWrapper charsWrapper) {
+    CharSequence authorizations = unescape(authToken, charsWrapper);
+    if (!authValidator.test(authorizations, authToken.quoting)) {
+      authToken.options.rejected(ErrorKind.INVALID_AUTHORIZATION, authToken.expressionLength);
+      throw InvalidAuthorizationException.invalidChars(authorizations);
     }
-    expression.getChars(0, expression.length(), array, 0);
-    tokenizer.reset(array, expression.length());
-
-    return tokenizer;
+    return authorizations;
   }
 
-  static CharSequence validateAuth(AuthorizationValidator authValidator,
-      Tokenizer.AuthorizationToken authToken, CharsWrapper charsWrapper) {
+  private static CharSequence unescape(Tokenizer.AuthorizationToken authToken,
+      CharsWrapper charsWrapper) {
     charsWrapper.set(authToken.data, authToken.start, authToken.len);
-    CharSequence authorizations;
     if (authToken.hasEscapes) {
-      authorizations = CharUtils.unescape(charsWrapper);
+      return CharUtils.unescape(charsWrapper);
     } else {
-      authorizations = charsWrapper;
+      return charsWrapper;
     }
-    if (!authValidator.test(authorizations, authToken.quoting)) {
-      throw InvalidAuthorizationException.invalidChars(authorizations);
+  }
+
+  /**
+   * Validates an authorization that is stored as UTF-8 bytes. When the validator inspects an
+   * authorization that contains non-ASCII bytes, they are decoded. Otherwise nothing is decoded.
+   *
+   * @return a wrapper around the unescaped bytes of the authorization
+   */
+  static BytesWrapper validateAuth(AuthorizationValidator authValidator,
+      ByteTokenizer.AuthorizationToken authToken, BytesWrapper bytesWrapper) {
+    unescape(authToken, bytesWrapper);
+    if (!authValidator.test(bytesWrapper, authToken.quoting)) {
+      authToken.options.rejected(ErrorKind.INVALID_AUTHORIZATION, authToken.expressionLength);
+      throw InvalidAuthorizationException.invalidChars(bytesWrapper);
     }
-    return authorizations;
+    return bytesWrapper;
   }
 
-  public static void validate(String expression, AuthorizationValidator authValidator)
-      throws InvalidAccessExpressionException {
-    if (expression.isEmpty()) {
-      return;
+  private static void unescape(ByteTokenizer.AuthorizationToken authToken,
+      BytesWrapper bytesWrapper) {
+    if (authToken.hasEscapes) {
+      byte[] unescaped = CharUtils.unescape(authToken.data, authToken.start, authToken.len);
+      bytesWrapper.set(unescaped, 0, unescaped.length);
+    } else {
+      bytesWrapper.set(authToken.data, authToken.start, authToken.len);
     }
+  }
 
-    var charsWrapper = ParserEvaluator.lookupWrappers.get();
-    Predicate<Tokenizer.AuthorizationToken> vp = authToken -> {
-      validateAuth(authValidator, authToken, charsWrapper);
-      return true;
-    };
+  /**
+   * Thrown by a tokenizer to stop parsing when an expression that is being checked is not valid.
+   * The error is recorded in a {@link ValidationResultImpl}. This exception has no stack trace and
+   * a single instance is reused, so checking an expression that is not valid does not allocate.
+   */
+  private static final class CheckFailedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
 
-    ParserEvaluator.parseAccessExpression(expression, vp, vp);
+    private CheckFailedException() {
+      super(null, null, false, false);
+    }
   }
 
-  public static void findAuthorizations(String expression, Consumer<String> authorizationConsumer,
-      AuthorizationValidator authValidator) throws InvalidAccessExpressionException {
-    var charsWrapper = ParserEvaluator.lookupWrappers.get();
-    Predicate<Tokenizer.AuthorizationToken> atp = authToken -> {
-      authorizationConsumer.accept(validateAuth(authValidator, authToken, charsWrapper).toString());
+  private static final CheckFailedException CHECK_FAILED = new CheckFailedException();
+
+  static RuntimeException checkFailed(ValidationResultImpl result, ErrorKind kind, int index) {
+    result.setError(kind, index);
+    return CHECK_FAILED;
+  }
+
+  /**
+   * Validates authorizations while checking an expression. These are reused by a
+   * {@link ParseContext}, so a predicate does not need to be created for each check.
+   */
+  static final class CharsChecker implements Predicate<Tokenizer.AuthorizationToken> {
+    private final CharsWrapper charsWrapper;
+    private AuthorizationValidator authValidator;
+    private Tokenizer tokenizer;
+
+    CharsChecker(CharsWrapper charsWrapper) {
+      this.charsWrapper = charsWrapper;
+    }
+
+    CharsChecker set(AuthorizationValidator authValidator, Tokenizer tokenizer) {
+      this.authValidator = authValidator;
+      this.tokenizer = tokenizer;
+      return this;
+    }
+
+    @Override
+    public boolean test(Tokenizer.AuthorizationToken authToken) {
+      if (!authValidator.test(unescape(authToken, charsWrapper), authToken.quoting)) {
+        tokenizer.invalidAuthorization(authToken);
+      }
       return true;
-    };
-    ParserEvaluator.parseAccessExpression(expression, atp, atp);
+    }
   }
 
-  public static boolean parseAccessExpression(String expression,
-      Predicate<Tokenizer.AuthorizationToken> authorizedPredicate,
-      Predicate<Tokenizer.AuthorizationToken> shortCircuitPredicate) {
-    var tokenizer = getPerThreadTokenizer(expression);
-    return parseAccessExpression(tokenizer, authorizedPredicate, shortCircuitPredicate);
+  static final class BytesChecker implements Predicate<ByteTokenizer.AuthorizationToken> {
+    private final BytesWrapper bytesWrapper;
+    private AuthorizationValidator authValidator;
+    private ByteTokenizer tokenizer;
+
+    BytesChecker(BytesWrapper bytesWrapper) {
+      this.bytesWrapper = bytesWrapper;
+    }
+
+    BytesChecker set(AuthorizationValidator authValidator, ByteTokenizer tokenizer) {
+      this.authValidator = authValidator;
+      this.tokenizer = tokenizer;
+      return this;
+    }
+
+    @Override
+    public boolean test(ByteTokenizer.AuthorizationToken authToken) {
+      unescape(authToken, bytesWrapper);
+      if (!authValidator.test(bytesWrapper, authToken.quoting)) {
+        tokenizer.invalidAuthorization(authToken);
+      }
+      return true;
+    }
   }
 
-  private static boolean parseAccessExpression(Tokenizer tokenizer,
-      Predicate<Tokenizer.AuthorizationToken> authorizedPredicate,
-      Predicate<Tokenizer.AuthorizationToken> shortCircuitPredicate) {
+  /**
+   * Validates authorizations and looks them up while evaluating an expression. These are reused by
+   * a {@link ParseContext}, so predicates that capture the evaluator do not need to be created for
+   * each evaluation.
+   */
+  static final class CharsLookup implements Predicate<Tokenizer.AuthorizationToken> {
+    private final CharsWrapper charsWrapper;
+    private AuthorizationValidator authValidator;
+    private Predicate<CharSequence> authorized;
+    // used once the expression is known to always be true or false, only validates authorizations
+    final Predicate<Tokenizer.AuthorizationToken> shortCircuit;
 
-    if (!tokenizer.hasNext()) {
+    CharsLookup(CharsWrapper charsWrapper) {
+      this.charsWrapper = charsWrapper;
+      this.shortCircuit = authToken -> {
+        validateAuth(authValidator, authToken, charsWrapper);
+        return true;
+      };
+    }
+
+    CharsLookup set(AuthorizationValidator authValidator, Predicate<CharSequence> authorized) {
+      this.authValidator = authValidator;
+      this.authorized = authorized;
+      return this;
+    }
+
+    @Override
+    public boolean test(Tokenizer.AuthorizationToken authToken) {
+      return authorized.test(validateAuth(authValidator, authToken, charsWrapper));
+    }
+  }
+
+  /**
+   * Like {@link CharsLookup}, but for a tokenizer that looks up unquoted authorizations in an
+   * {@link AuthorizationTrie} as it finds them.
+   */
+  static final class TrieLookup implements Predicate<Tokenizer.AuthorizationToken> {
+    private final CharsWrapper charsWrapper;
+    private AuthorizationValidator authValidator;
+    private AuthorizationTrie trie;
+    final Predicate<Tokenizer.AuthorizationToken> shortCircuit;
+
+    TrieLookup(CharsWrapper charsWrapper) {
+      this.charsWrapper = charsWrapper;
+      this.shortCircuit = authToken -> {
+        validateAuth(authValidator, authToken, charsWrapper);
+        return true;
+      };
+    }
+
+    TrieLookup set(AuthorizationValidator authValidator, AuthorizationTrie trie) {
+      this.authValidator = authValidator;
+      this.trie = trie;
+      return this;
+    }
+
+    @Override
+    public boolean test(Tokenizer.AuthorizationToken authToken) {
+      var auth = validateAuth(authValidator, authToken, charsWrapper);
+      // quoted authorizations were not looked up by the tokenizer
+      return authToken.trieNode >= 0 ? trie.isAuthorization(authToken.trieNode)
+          : trie.contains(auth);
+    }
+  }
+
+  static final class BytesLookup implements Predicate<ByteTokenizer.AuthorizationToken> {
+    private final BytesWrapper bytesWrapper;
+    private AuthorizationValidator authValidator;
+    private Predicate<BytesWrapper> authorized;
+    final Predicate<ByteTokenizer.AuthorizationToken> shortCircuit;
+
+    BytesLookup(BytesWrapper bytesWrapper) {
+      this.bytesWrapper = bytesWrapper;
+      this.shortCircuit = authToken -> {
+        validateAuth(authValidator, authToken, bytesWrapper);
+        return true;
+      };
+    }
+
+    BytesLookup set(AuthorizationValidator authValidator, Predicate<BytesWrapper> authorized) {
+      this.authValidator = authValidator;
+      this.authorized = authorized;
+      return this;
+    }
+
+    @Override
+    public boolean test(ByteTokenizer.AuthorizationToken authToken) {
+      return authorized.test(validateAuth(authValidator, authToken, bytesWrapper));
+    }
+  }
+
+  /**
+   * Like {@link CharsLookup}, but maps each authorization to a mask of the sets of authorizations
+   * that contain it, see
+   * {@link #evaluateMasks(ExpressionTokenizer, ToLongFunction, ToLongFunction, long)}.
+   */
+  static final class CharsMaskLookup implements ToLongFunction<Tokenizer.AuthorizationToken> {
+    private final CharsWrapper charsWrapper;
+    private AuthorizationValidator authValidator;
+    private ToLongFunction<CharSequence> masks;
+    final ToLongFunction<Tokenizer.AuthorizationToken> shortCircuit;
+
+    CharsMaskLookup(CharsWrapper charsWrapper) {
+      this.charsWrapper = charsWrapper;
+      this.shortCircuit = authToken -> {
+        validateAuth(authValidator, authToken, charsWrapper);
+        return 0;
+      };
+    }
+
+    CharsMaskLookup set(AuthorizationValidator authValidator, ToLongFunction<CharSequence> masks) {
+      this.authValidator = authValidator;
+      this.masks = masks;
+      return this;
+    }
+
+    @Override
+    public long applyAsLong(Tokenizer.AuthorizationToken authToken) {
+      return masks.applyAsLong(validateAuth(authValidator, authToken, charsWrapper));
+    }
+  }
+
+  static final class BytesMaskLookup implements ToLongFunction<ByteTokenizer.AuthorizationToken> {
+    private final BytesWrapper bytesWrapper;
+    private AuthorizationValidator authValidator;
+    private ToLongFunction<BytesWrapper> masks;
+    final ToLongFunction<ByteTokenizer.AuthorizationToken> shortCircuit;
+
+    BytesMaskLookup(BytesWrapper bytesWrapper) {
+      this.bytesWrapper = bytesWrapper;
+      this.shortCircuit = authToken -> {
+        validateAuth(authValidator, authToken, bytesWrapper);
+        return 0;
+      };
+    }
+
+    BytesMaskLookup set(AuthorizationValidator authValidator, ToLongFunction<BytesWrapper> masks) {
+      this.authValidator = authValidator;
+      this.masks = masks;
+      return this;
+    }
+
+    @Override
+    public long applyAsLong(ByteTokenizer.AuthorizationToken authToken) {
+      return masks.applyAsLong(validateAuth(authValidator, authToken, bytesWrapper));
+    }
+  }
+
+  static boolean check(String expression, AuthorizationValidator authValidator,
+      ParseOptions options, ValidationResultImpl result) {
+    result.setValid();
+    if (expression.isEmpty()) {
+      options.metrics.expressionParsed(0);
       return true;
     }
+    if (expression.length() > options.maxLength) {
+      return checkFailed(result, ErrorKind.MAX_LENGTH_EXCEEDED, options, expression.length());
+    }
 
-    var node = parseExpression(tokenizer, authorizedPredicate, shortCircuitPredicate);
+    try (var context = ParseContext.acquire()) {
+      var tokenizer = context.tokenizer(expression, options).withResult(result);
+      var checker = context.charsChecker.set(authValidator, tokenizer);
+      parseAccessExpression(tokenizer, checker, checker);
+      options.metrics.expressionParsed(tokenizer.stack().authorizations);
+      return true;
+    } catch (CheckFailedException e) {
+      options.rejected(result.getErrorKind(), expression.length());
+      return false;
+    }
+  }
+
+  private static boolean checkFailed(ValidationResultImpl result, ErrorKind kind,
+      ParseOptions options, int length) {
+    result.setError(kind, options.maxLength);
+    options.rejected(kind, length);
+    return false;
+  }
 
-    if (tokenizer.hasNext()) {
-      // not all input was read, so not a valid expression
-      tokenizer.error("Unexpected character '" + tokenizer.peek() + "'");
+  static boolean check(byte[] expression, int offset, int length,
+      AuthorizationValidator authValidator, ParseOptions options, ValidationResultImpl result) {
+    result.setValid();
+    if (length > options.maxLength) {
+      return checkFailed(result, ErrorKind.MAX_LENGTH_EXCEEDED, options, length);
     }
 
-    return node;
+    try (var context = ParseContext.acquire()) {
+      var tokenizer = context.tokenizer(expression, offset, length, options).withResult(result);
+      var checker = context.bytesChecker.set(authValidator, tokenizer);
+      parseAccessExpression(tokenizer, checker, checker);
+      options.metrics.expressionParsed(tokenizer.stack().authorizations);
+      return true;
+    } catch (CheckFailedException e) {
+      options.rejected(result.getErrorKind(), length);
+      return false;
+    }
   }
 
-  private static boolean parseExpression(Tokenizer tokenizer,
-      Predicate<Tokenizer.AuthorizationToken> authorizedPredicate,
-      Predicate<Tokenizer.AuthorizationToken> shortCircuitPredicate) {
+  public static void validate(String expression, AuthorizationValidator authValidator,
+      ParseOptions options) throws InvalidAccessExpressionException {
+    if (expression.isEmpty()) {
+      options.metrics.expressionParsed(0);
+      return;
+    }
+
+    try (var context = ParseContext.acquire()) {
+      int authorizations = context.expressionValidator.validate(context.chars(expression, options),
+          expression.length(), authValidator, authValidator != AuthorizationValidator.DEFAULT,
+          options);
+      if (authorizations >= 0) {
+        options.metrics.expressionParsed(authorizations);
+        return;
+      }
 
-    boolean result =
-        parseParenExpressionOrAuthorization(tokenizer, authorizedPredicate, shortCircuitPredicate);
+      // The expression is not valid, parse it again to build the error message. The authorizations
+      // before the error were already validated, so they are not passed to the validator again.
+      Predicate<Tokenizer.AuthorizationToken> skip = authToken -> true;
+      parseAccessExpression(context.tokenizer(expression, options), skip, skip);
+      throw invalid(context.expressionValidator, expression, expression.length(), options);
+    }
+  }
 
-    if (tokenizer.hasNext()) {
-      var operator = tokenizer.peek();
-      if (operator == CharUtils.AND_OPERATOR) {
-        result = parseAndExpression(result, tokenizer, authorizedPredicate, shortCircuitPredicate);
-        if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
-          // A case of mixed operators, lets give a clear error message
-          tokenizer.error("Cannot mix '|' and '&'");
-        }
-      } else if (operator == CharUtils.OR_OPERATOR) {
-        result = parseOrExpression(result, tokenizer, authorizedPredicate, shortCircuitPredicate);
-        if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
-          // A case of mixed operators, lets give a clear error message
-          tokenizer.error("Cannot mix '|' and '&'");
-        }
+  static void validate(byte[] expression, int offset, int length,
+      AuthorizationValidator authValidator, ParseOptions options)
+      throws InvalidAccessExpressionException {
+    if (length == 0) {
+      options.metrics.expressionParsed(0);
+      return;
+    }
+
+    try (var context = ParseContext.acquire()) {
+      options.checkLength(expression, offset, length);
+      int authorizations = context.expressionValidator.validate(expression, offset, length,
+          authValidator, authValidator != AuthorizationValidator.DEFAULT, options);
+      if (authorizations >= 0) {
+        options.metrics.expressionParsed(authorizations);
+        return;
       }
+
+      Predicate<ByteTokenizer.AuthorizationToken> skip = authToken -> true;
+      parseAccessExpression(context.tokenizer(expression, offset, length, options), skip, skip);
+      throw invalid(context.expressionValidator, new String(expression, offset, length, UTF_8),
+          length, options);
     }
+  }
 
-    return result;
+  /**
+   * Both parsers always find the same error, so this is never expected to be called. If the parser
+   * accepts an expression that the validator rejected, the expression is still not valid and the
+   * error the validator found is reported.
+   */
+  private static InvalidAccessExpressionException invalid(ExpressionValidator validator,
+      String expression, int length, ParseOptions options) {
+    options.rejected(validator.errorKind, length);
+    return new InvalidAccessExpressionException("Invalid expression, " + validator.errorKind,
+        expression, validator.errorIndex);
   }
 
-  private static boolean parseAndExpression(boolean result, Tokenizer tokenizer,
-      Predicate<Tokenizer.AuthorizationToken> authorizedPredicate,
-      Predicate<Tokenizer.AuthorizationToken> shortCircuitPredicate) {
-    do {
-      if (!result) {
-        // Once the "and" expression is false, can avoid doing set lookups and only validate the
-        // rest of the expression.
-        authorizedPredicate = shortCircuitPredicate;
-      }
-      tokenizer.advance();
-      var nextResult = parseParenExpressionOrAuthorization(tokenizer, authorizedPredicate,
-          shortCircuitPredicate);
-      result &= nextResult;
-    } while (tokenizer.hasNext() && tokenizer.peek() == CharUtils.AND_OPERATOR);
+  public static void findAuthorizations(String expression, Consumer<String> authorizationConsumer,
+      AuthorizationValidator authValidator, ParseOptions options)
+      throws InvalidAccessExpressionException {
+    try (var context = ParseContext.acquire()) {
+      var charsWrapper = context.lookupWrapper;
+      Predicate<Tokenizer.AuthorizationToken> atp = authToken -> {
+        authorizationConsumer
+            .accept(validateAuth(authValidator, authToken, charsWrapper).toString());
+        return true;
+      };
+      var tokenizer = context.tokenizer(expression, options);
+      parseAccessExpression(tokenizer, atp, atp);
+      options.metrics.expressionParsed(tokenizer.stack().authorizations);
+    }
+  }
+
+  /**
+   * Parses and evaluates an expression like
+   * {@link #parseAccessExpression(ExpressionTokenizer, Predicate, Predicate)} and reports the
+   * evaluation to the metrics and Java Flight Recorder.
+   */
+  static <T> boolean evaluate(ExpressionTokenizer<T> tokenizer, Predicate<T> authorizedPredicate,
+      Predicate<T> shortCircuitPredicate, ParseOptions options) {
+    var event = AccessEvents.beginEvaluation();
+    boolean result = parseAccessExpression(tokenizer, authorizedPredicate, shortCircuitPredicate);
+    evaluated(event, result, tokenizer, options);
     return result;
   }
 
-  private static boolean parseOrExpression(boolean result, Tokenizer tokenizer,
-      Predicate<Tokenizer.AuthorizationToken> authorizedPredicate,
-      Predicate<Tokenizer.AuthorizationToken> shortCircuitPredicate) {
-    do {
-      if (result) {
-        // Once the "or" expression is true, can avoid doing set lookups and only validate the rest
-        // of the expression.
-        authorizedPredicate = shortCircuitPredicate;
+  /**
+   * Reports the evaluation of the expression the tokenizer parsed.
+   *
+   * @param event the event that was begun before the expression was evaluated
+   */
+  static boolean evaluated(Object event, boolean accessible, ExpressionTokenizer<?> tokenizer,
+      ParseOptions options) {
+    var stack = tokenizer.stack();
+    options.evaluated(event, false, accessible, tokenizer.length(), stack.depth,
+        stack.authorizations, stack.lookups);
+    return accessible;
+  }
+
+  /**
+   * Parses and evaluates an expression. Parentheses are handled using the tokenizer's
+   * {@link ParseStack} instead of recursion, so the depth of nesting is only limited by memory and
+   * {@link ParseOptions#maxDepth}.
+   *
+   * @param authorizedPredicate tests if an authorization is authorized
+   * @param shortCircuitPredicate used instead of authorizedPredicate once the value of an
+   *        expression is known, so it only needs to validate authorizations
+   */
+  static <T> boolean parseAccessExpression(ExpressionTokenizer<T> tokenizer,
+      Predicate<T> authorizedPredicate, Predicate<T> shortCircuitPredicate) {
+
+    if (!tokenizer.hasNext()) {
+      return true;
+    }
+
+    final ParseStack stack = tokenizer.stack();
+    int top = stack.push(false);
+
+    while (true) {
+      // parse an operand, which is either an authorization or the start of a nested expression
+      if (!tokenizer.hasNext()) {
+        tokenizer.unexpected("a '(' character or an authorization token");
       }
-      tokenizer.advance();
-      var nextResult = parseParenExpressionOrAuthorization(tokenizer, authorizedPredicate,
-          shortCircuitPredicate);
-      result |= nextResult;
-    } while (tokenizer.hasNext() && tokenizer.peek() == CharUtils.OR_OPERATOR);
-    return result;
+      if (tokenizer.peek() == OPEN_PAREN) {
+        tokenizer.openParen();
+        top = stack.push(stack.shortCircuited[top]);
+        continue;
+      }
+      final Predicate<T> predicate;
+      if (stack.shortCircuited[top]) {
+        predicate = shortCircuitPredicate;
+      } else {
+        predicate = authorizedPredicate;
+        stack.lookups++;
+      }
+      stack.authorizations++;
+      boolean value = predicate.test(tokenizer.nextAuthorization());
+
+      // Combine the operand with the expression it is in. When that expression ends it is an
+      // operand of the enclosing expression, so keep combining until an operator is seen.
+      while (true) {
+        final char operator = stack.operators[top];
+        if (operator == CharUtils.AND_OPERATOR) {
+          value &= stack.values[top] != 0;
+        } else if (operator == CharUtils.OR_OPERATOR) {
+          value |= stack.values[top] != 0;
+        }
+        stack.values[top] = value ? 1 : 0;
+
+        if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
+          final char nextOperator = tokenizer.peek();
+          if (operator != 0 && nextOperator != operator) {
+            // A case of mixed operators, lets give a clear error message
+            tokenizer.error(ErrorKind.MIXED_OPERATORS, "Cannot mix '|' and '&'");
+          }
+          stack.operators[top] = nextOperator;
+          if (value != (nextOperator == CharUtils.AND_OPERATOR)) {
+            // Once the "and" expression is false or the "or" expression is true, can avoid doing
+            // set lookups and only validate the rest of the expression.
+            stack.shortCircuited[top] = true;
+          }
+          tokenizer.advance();
+          break;
+        }
+
+        if (top == 0) {
+          if (tokenizer.hasNext()) {
+            // not all input was read, so not a valid expression
+            tokenizer.unexpected(null);
+          }
+          stack.pop();
+          return value;
+        }
+
+        tokenizer.closeParen();
+        top = stack.pop();
+      }
+    }
   }
 
-  private static boolean parseParenExpressionOrAuthorization(Tokenizer tokenizer,
-      Predicate<Tokenizer.AuthorizationToken> authorizedPredicate,
-      Predicate<Tokenizer.AuthorizationToken> shortCircuitPredicate) {
+  /**
+   * Parses and evaluates an expression against up to 64 sets of authorizations in a single pass.
+   * The function passed in maps an authorization to a mask that has a bit set for each set of
+   * authorizations that contains it. And expressions combine the masks of their children using
+   * {@code &} and or expressions combine them using {@code |}. Like
+   * {@link #parseAccessExpression(ExpressionTokenizer, Predicate, Predicate)} this does not
+   * recurse.
+   *
+   * @param tokenizer a tokenizer for the expression
+   * @param allMask a mask with a bit set for each set of authorizations
+   * @return a mask with a bit set for each set of authorizations that can access the expression
+   */
+  static <T> long evaluateMasks(ExpressionTokenizer<T> tokenizer, ToLongFunction<T> authorizedMasks,
+      ToLongFunction<T> shortCircuitMasks, long allMask) {
+
     if (!tokenizer.hasNext()) {
-      tokenizer
-          .error("Expected a '(' character or an authorization token instead saw end of input");
+      return allMask;
     }
 
-    if (tokenizer.peek() == OPEN_PAREN) {
-      tokenizer.advance();
-      var node = parseExpression(tokenizer, authorizedPredicate, shortCircuitPredicate);
-      tokenizer.next(CLOSE_PAREN);
-      return node;
-    } else {
-      var auth = tokenizer.nextAuthorization(false);
-      return authorizedPredicate.test(auth);
+    final ParseStack stack = tokenizer.stack();
+    int top = stack.push(false);
+
+    while (true) {
+      if (!tokenizer.hasNext()) {
+        tokenizer.unexpected("a '(' character or an authorization token");
+      }
+      if (tokenizer.peek() == OPEN_PAREN) {
+        tokenizer.openParen();
+        top = stack.push(stack.shortCircuited[top]);
+        continue;
+      }
+      final ToLongFunction<T> masks;
+      if (stack.shortCircuited[top]) {
+        masks = shortCircuitMasks;
+      } else {
+        masks = authorizedMasks;
+        stack.lookups++;
+      }
+      stack.authorizations++;
+      long value = masks.applyAsLong(tokenizer.nextAuthorization());
+
+      while (true) {
+        final char operator = stack.operators[top];
+        if (operator == CharUtils.AND_OPERATOR) {
+          value &= stack.values[top];
+        } else if (operator == CharUtils.OR_OPERATOR) {
+          value |= stack.values[top];
+        }
+        stack.values[top] = value;
+
+        if (tokenizer.hasNext() && isAndOrOperator(tokenizer.peek())) {
+          final char nextOperator = tokenizer.peek();
+          if (operator != 0 && nextOperator != operator) {
+            // A case of mixed operators, lets give a clear error message
+            tokenizer.error(ErrorKind.MIXED_OPERATORS, "Cannot mix '|' and '&'");
+          }
+          stack.operators[top] = nextOperator;
+          if (value == (nextOperator == CharUtils.AND_OPERATOR ? 0 : allMask)) {
+            // Once no more bits can be cleared by an "and" or set by an "or" expression, can avoid
+            // doing set lookups and only validate the rest of the expression.
+            stack.shortCircuited[top] = true;
+          }
+          tokenizer.advance();
+          break;
+        }
+
+        if (top == 0) {
+          if (tokenizer.hasNext()) {
+            // not all input was read, so not a valid expression
+            tokenizer.unexpected(null);
+          }
+          stack.pop();
+          return value;
+        }
+
+        tokenizer.closeParen();
+        top = stack.pop();
+      }
     }
   }
 }
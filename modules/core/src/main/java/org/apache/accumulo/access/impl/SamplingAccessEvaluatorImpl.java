@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.SamplingAccessEvaluator;
+
+public final class SamplingAccessEvaluatorImpl implements SamplingAccessEvaluator {
+
+  public static final class SampleImpl implements Sample {
+    private final String expression;
+    private final long count;
+    private final long nanos;
+    private final long error;
+
+    SampleImpl(String expression, long count, long nanos, long error) {
+      this.expression = expression;
+      this.count = count;
+      this.nanos = nanos;
+      this.error = error;
+    }
+
+    @Override
+    public String getExpression() {
+      return expression;
+    }
+
+    @Override
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public long getNanos() {
+      return nanos;
+    }
+
+    @Override
+    public long getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return "Sample[expression=" + expression + ", count=" + count + ", nanos=" + nanos
+          + ", error=" + error + "]";
+    }
+  }
+
+  private final AccessEvaluator evaluator;
+  private final int capacity;
+  private final int sampleInterval;
+  // guarded by this
+  private final SpaceSaving mostFrequent;
+  private final SpaceSaving mostExpensive;
+
+  SamplingAccessEvaluatorImpl(AccessEvaluator evaluator, int capacity, int sampleInterval) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive : " + capacity);
+    }
+    if (sampleInterval <= 0) {
+      throw new IllegalArgumentException("Sample interval must be positive : " + sampleInterval);
+    }
+    this.evaluator = Objects.requireNonNull(evaluator);
+    this.capacity = capacity;
+    this.sampleInterval = sampleInterval;
+    this.mostFrequent = new SpaceSaving(capacity, false);
+    this.mostExpensive = new SpaceSaving(capacity, true);
+  }
+
+  private boolean sample() {
+    return sampleInterval == 1 || ThreadLocalRandom.current().nextInt(sampleInterval) == 0;
+  }
+
+  private synchronized void record(String expression, long nanos) {
+    mostFrequent.add(expression, nanos);
+    mostExpensive.add(expression, nanos);
+  }
+
+  @Override
+  public boolean canAccess(String accessExpression) throws InvalidAccessExpressionException {
+    if (!sample()) {
+      return evaluator.canAccess(accessExpression);
+    }
+    long start = System.nanoTime();
+    boolean result = evaluator.canAccess(accessExpression);
+    record(accessExpression, System.nanoTime() - start);
+    return result;
+  }
+
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    if (!sample()) {
+      return evaluator.canAccess(expression, offset, length);
+    }
+    long start = System.nanoTime();
+    boolean result = evaluator.canAccess(expression, offset, length);
+    long nanos = System.nanoTime() - start;
+    // only sampled expressions are decoded
+    record(new String(expression, offset, length, UTF_8), nanos);
+    return result;
+  }
+
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    if (!sample()) {
+      return evaluator.canAccess(compiledExpression);
+    }
+    long start = System.nanoTime();
+    boolean result = evaluator.canAccess(compiledExpression);
+    record(compiledExpression.getExpression(), System.nanoTime() - start);
+    return result;
+  }
+
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public int getSampleInterval() {
+    return sampleInterval;
+  }
+
+  @Override
+  public List<Sample> getMostFrequent() {
+    return snapshot(mostFrequent);
+  }
+
+  @Override
+  public List<Sample> getMostExpensive() {
+    return snapshot(mostExpensive);
+  }
+
+  private synchronized List<Sample> snapshot(SpaceSaving sketch) {
+    var entries = sketch.entries();
+    var samples = new ArrayList<Sample>(entries.size());
+    for (SpaceSaving.Entry entry : entries) {
+      samples.add(new SampleImpl(entry.key, entry.count * sampleInterval,
+          entry.nanos * sampleInterval, entry.error * sampleInterval));
+    }
+    return List.copyOf(samples);
+  }
+
+  @Override
+  public synchronized void reset() {
+    mostFrequent.clear();
+    mostExpensive.clear();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the heaviest keys in a stream using the Space-Saving algorithm, keeping at most a fixed
+ * number of keys. Each key has a count and a time, the keys are ranked by one of them. When a key
+ * that is not kept is added and there is no space, the lightest key is replaced and the new key
+ * inherits its count, time, and the weight it was ranked by as its error.
+ *
+ * <p>
+ * The kept keys are also in a binary min-heap ordered by weight, so the lightest key is always at
+ * the root. Weights only ever increase, so after an add the entry only needs to move down the heap
+ * and each add takes O(log capacity).
+ *
+ * <p>
+ * Instances of this class are not thread-safe.
+ */
+final class SpaceSaving {
+
+  static final class Entry {
+    final String key;
+    long count;
+    long nanos;
+    long error;
+    // the position of this entry in the heap
+    int index;
+
+    Entry(String key) {
+      this.key = key;
+    }
+  }
+
+  private final int capacity;
+  private final boolean rankByNanos;
+  private final Map<String,Entry> entries;
+  private final Entry[] heap;
+  private int size = 0;
+
+  SpaceSaving(int capacity, boolean rankByNanos) {
+    this.capacity = capacity;
+    this.rankByNanos = rankByNanos;
+    this.entries = new HashMap<>();
+    this.heap = new Entry[capacity];
+  }
+
+  private long weight(Entry entry) {
+    return rankByNanos ? entry.nanos : entry.count;
+  }
+
+  void add(String key, long nanos) {
+    var entry = entries.get(key);
+    if (entry == null) {
+      entry = new Entry(key);
+      if (size == capacity) {
+        Entry lightest = heap[0];
+        entries.remove(lightest.key);
+        entry.count = lightest.count;
+        entry.nanos = lightest.nanos;
+        entry.error = weight(lightest);
+        entry.index = 0;
+        heap[0] = entry;
+      } else {
+        // a new entry has a weight of zero, so it moves to the root before it is added to
+        entry.index = size;
+        heap[size++] = entry;
+        siftUp(entry);
+      }
+      entries.put(key, entry);
+    }
+    entry.count++;
+    entry.nanos += nanos;
+    siftDown(entry);
+  }
+
+  private void siftUp(Entry entry) {
+    int index = entry.index;
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (weight(heap[parent]) <= weight(entry)) {
+        break;
+      }
+      move(heap[parent], index);
+      index = parent;
+    }
+    move(entry, index);
+  }
+
+  private void siftDown(Entry entry) {
+    int index = entry.index;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && weight(heap[child + 1]) < weight(heap[child])) {
+        child++;
+      }
+      if (weight(entry) <= weight(heap[child])) {
+        break;
+      }
+      move(heap[child], index);
+      index = child;
+    }
+    move(entry, index);
+  }
+
+  private void move(Entry entry, int index) {
+    heap[index] = entry;
+    entry.index = index;
+  }
+
+  /**
+   * @return the kept entries, heaviest first
+   */
+  List<Entry> entries() {
+    var sorted = new ArrayList<>(entries.values());
+    sorted.sort(Comparator.comparingLong(this::weight).reversed());
+    return sorted;
+  }
+
+  void clear() {
+    entries.clear();
+    Arrays.fill(heap, 0, size, null);
+    size = 0;
+  }
+}
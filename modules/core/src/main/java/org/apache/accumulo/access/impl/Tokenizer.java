@@ -18,7 +18,6 @@
  */
 package org.apache.accumulo.access.impl;
 
-import static org.apache.accumulo.access.impl.CharUtils.isBackslashSymbol;
 import static org.apache.accumulo.access.impl.CharUtils.isQuoteOrSlash;
 import static org.apache.accumulo.access.impl.CharUtils.isQuoteSymbol;
 
@@ -26,13 +25,14 @@ import java.util.stream.IntStream;
 
 import org.apache.accumulo.access.AuthorizationValidator;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
 
 /**
  * A simple wrapper around a byte array that keeps some state and provides high level operations to
  * the {@link ParserEvaluator} class. The purpose of this class is to make {@link ParserEvaluator}
  * as simple and easy to understand as possible while still being performant.
  */
-public final class Tokenizer {
+public final class Tokenizer implements ExpressionTokenizer<Tokenizer.AuthorizationToken> {
 
   private static final boolean[] validAuthChars = new boolean[256];
 
@@ -51,11 +51,24 @@ public final class Tokenizer {
     return validAuthChars[0xff & b] && b < 256;
   }
 
+  static boolean isValidAuthByte(byte b) {
+    // all valid auth chars are ASCII, so the bytes of multibyte UTF-8 characters are never valid
+    return validAuthChars[0xff & b];
+  }
+
   private char[] expression;
   private int len;
   private int index;
 
   private final AuthorizationToken authorizationToken = new AuthorizationToken();
+  // when set, unquoted authorizations are looked up in the trie as they are tokenized
+  private AuthorizationTrie trie;
+  // when set, errors are recorded in the result instead of throwing an exception with a message
+  private ValidationResultImpl result;
+  private int maxDepth;
+  // the number of parentheses that are open at the current position
+  private int depth;
+  private final ParseStack stack = new ParseStack();
 
   public static class AuthorizationToken {
     public char[] data;
@@ -63,7 +76,11 @@ public final class Tokenizer {
     public int len;
     public boolean hasEscapes;
     public AuthorizationValidator.AuthorizationCharacters quoting;
-
+    // the node of the trie the authorization leads to, or -1 if the trie was not used
+    int trieNode = -1;
+    // where rejected expressions are reported, and the length of the expression to report
+    ParseOptions options = ParseOptions.NONE;
+    int expressionLength;
   }
 
   Tokenizer(char[] expression) {
@@ -75,36 +92,129 @@ public final class Tokenizer {
     this.index = 0;
     this.len = len;
     this.authorizationToken.data = expression;
+    this.trie = null;
+    this.result = null;
+    this.maxDepth = Integer.MAX_VALUE;
+    this.authorizationToken.options = ParseOptions.NONE;
+    this.authorizationToken.expressionLength = len;
+    this.depth = 0;
+    this.stack.clear();
+  }
+
+  /**
+   * Fail when parentheses are nested deeper than the limit allows and report rejected expressions
+   * using the options, until the tokenizer is reset.
+   */
+  Tokenizer withOptions(ParseOptions options) {
+    this.maxDepth = options.maxDepth;
+    this.authorizationToken.options = options;
+    return this;
+  }
+
+  /**
+   * Look up unquoted authorizations in the trie as they are tokenized, until the tokenizer is
+   * reset. The node of the trie each authorization leads to is available from
+   * {@link AuthorizationToken#trieNode}.
+   */
+  Tokenizer withTrie(AuthorizationTrie trie) {
+    this.trie = trie;
+    return this;
   }
 
-  boolean hasNext() {
+  /**
+   * Record errors in the result instead of throwing an {@link InvalidAccessExpressionException},
+   * until the tokenizer is reset. See {@link ParserEvaluator#checkFailed}.
+   */
+  Tokenizer withResult(ValidationResultImpl result) {
+    this.result = result;
+    return this;
+  }
+
+  @Override
+  public int length() {
+    return len;
+  }
+
+  @Override
+  public boolean hasNext() {
     return index < len;
   }
 
+  @Override
   public void advance() {
     index++;
   }
 
-  public void next(char expected) {
-    if (!hasNext()) {
-      error("Expected '" + expected + "' instead saw end of input");
+  @Override
+  public void openParen() {
+    if (depth == maxDepth) {
+      if (result != null) {
+        throw ParserEvaluator.checkFailed(result, ErrorKind.MAX_DEPTH_EXCEEDED, index);
+      }
+      error(ErrorKind.MAX_DEPTH_EXCEEDED,
+          "Parentheses are nested deeper than the maximum depth of " + maxDepth);
     }
+    depth++;
+    index++;
+  }
 
-    if (expression[index] != expected) {
-      error("Expected '" + expected + "' instead saw '" + expression[index] + "'");
+  @Override
+  public void closeParen() {
+    if (!hasNext() || expression[index] != ParserEvaluator.CLOSE_PAREN) {
+      if (result != null) {
+        throw ParserEvaluator.checkFailed(result, unexpectedKind(), index);
+      }
+      unexpected("')'");
     }
+    depth--;
     index++;
   }
 
-  public void error(String msg) {
-    error(msg, index);
+  @Override
+  public ParseStack stack() {
+    return stack;
   }
 
-  public void error(String msg, int idx) {
+  @Override
+  public void error(ErrorKind kind, String msg) {
+    error(kind, msg, index);
+  }
+
+  public void error(ErrorKind kind, String msg, int idx) {
+    if (result != null) {
+      throw ParserEvaluator.checkFailed(result, kind, idx);
+    }
+    authorizationToken.options.rejected(kind, len);
     throw new InvalidAccessExpressionException(msg, new String(expression, 0, len), idx);
   }
 
-  char peek() {
+  @Override
+  public void unexpected(String expected) {
+    if (result != null) {
+      throw ParserEvaluator.checkFailed(result, unexpectedKind(), index);
+    }
+    String seen = hasNext() ? "'" + expression[index] + "'" : "end of input";
+    error(unexpectedKind(), expected == null ? "Unexpected character " + seen
+        : "Expected " + expected + " instead saw " + seen);
+  }
+
+  private ErrorKind unexpectedKind() {
+    return hasNext() ? ErrorKind.UNEXPECTED_CHARACTER : ErrorKind.UNEXPECTED_END;
+  }
+
+  /**
+   * Fails because the authorization validator rejected the last authorization returned by
+   * {@link #nextAuthorization()}. Only used when checking an expression.
+   */
+  void invalidAuthorization(AuthorizationToken token) {
+    // quoted authorizations start after their quote
+    int idx = token.quoting == AuthorizationValidator.AuthorizationCharacters.ANY ? token.start - 1
+        : token.start;
+    throw ParserEvaluator.checkFailed(result, ErrorKind.INVALID_AUTHORIZATION, idx);
+  }
+
+  @Override
+  public char peek() {
     return expression[index];
   }
 
@@ -112,34 +222,44 @@ public final class Tokenizer {
     return index;
   }
 
+  @Override
+  public AuthorizationToken nextAuthorization() {
+    return nextAuthorization(false);
+  }
+
   AuthorizationToken nextAuthorization(boolean includeQuotes) {
     if (isQuoteSymbol(expression[index])) {
       int start = ++index;
 
       boolean hasEscapes = false;
-      while (index < len && !isQuoteSymbol(expression[index])) {
-        if (isBackslashSymbol(expression[index])) {
-          index++;
-          if (index == len || !isQuoteOrSlash(expression[index])) {
-            error("Invalid escaping within quotes", index - 1);
-          }
-          hasEscapes = true;
+      while (true) {
+        index = CharScanner.findQuoteOrBackslash(expression, index, len);
+        if (index == len || isQuoteSymbol(expression[index])) {
+          break;
         }
+        // found a backslash
+        index++;
+        if (index == len || !isQuoteOrSlash(expression[index])) {
+          error(ErrorKind.INVALID_ESCAPE, "Invalid escaping within quotes", index - 1);
+        }
+        hasEscapes = true;
         index++;
       }
 
       if (index == len) {
-        error("Unclosed quote", start - 1);
+        error(ErrorKind.UNCLOSED_QUOTE, "Unclosed quote", start - 1);
       }
 
       if (start == index) {
-        error("Empty authorization token in quotes", start - 1);
+        error(ErrorKind.EMPTY_QUOTED_AUTHORIZATION, "Empty authorization token in quotes",
+            start - 1);
       }
 
       authorizationToken.start = start;
       authorizationToken.len = index - start;
       authorizationToken.hasEscapes = hasEscapes;
       authorizationToken.quoting = AuthorizationValidator.AuthorizationCharacters.ANY;
+      authorizationToken.trieNode = -1;
 
       if (includeQuotes) {
         authorizationToken.start--;
@@ -152,16 +272,15 @@ public final class Tokenizer {
 
     } else if (isValidAuthChar(expression[index])) {
       int start = index;
-      do {
-        index++;
-      } while (index < len && isValidAuthChar(expression[index]));
+      index = CharScanner.skipAuthChars(expression, index + 1, len);
+      authorizationToken.trieNode = trie == null ? -1 : trie.find(expression, start, index);
       authorizationToken.start = start;
       authorizationToken.len = index - start;
       authorizationToken.hasEscapes = false;
       authorizationToken.quoting = AuthorizationValidator.AuthorizationCharacters.BASIC;
       return authorizationToken;
     } else {
-      error("Expected a '(' character or an authorization token instead saw '" + peek() + "'");
+      unexpected("a '(' character or an authorization token");
       return null;
     }
   }
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.AuthorizationValidator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+
+/**
+ * An evaluator that looks up authorizations in an {@link AuthorizationTrie}. When evaluating an
+ * expression string, unquoted authorizations are looked up by the tokenizer as it finds them.
+ */
+public final class TrieAccessEvaluatorImpl implements AccessEvaluator {
+
+  private final AuthorizationTrie trie;
+  private final AuthorizationValidator authorizationValidator;
+  private final ParseOptions options;
+  // created once, so that evaluating does not create a predicate for the trie each time
+  private final Predicate<CharSequence> authorizedPredicate;
+  // ASCII bytes are walked as chars without decoding anything
+  private final Predicate<BytesWrapper> bytesAuthorizedPredicate;
+
+  TrieAccessEvaluatorImpl(Set<String> authorizations, Consumer<String> authArgumentValidator,
+      AuthorizationValidator authorizationValidator, ParseOptions options) {
+    authorizations.forEach(authArgumentValidator);
+    this.trie = new AuthorizationTrie(authorizations);
+    this.authorizationValidator = authorizationValidator;
+    this.options = options;
+    this.authorizedPredicate = trie::contains;
+    this.bytesAuthorizedPredicate = trie::contains;
+  }
+
+  @Override
+  public boolean canAccess(String expression) throws InvalidAccessExpressionException {
+    // The lookup is reused by the context, so evaluating an expression does not allocate.
+    try (var context = ParseContext.acquire()) {
+      var lookup = context.trieLookup.set(authorizationValidator, trie);
+      return ParserEvaluator.evaluate(context.tokenizer(expression, options).withTrie(trie), lookup,
+          lookup.shortCircuit, options);
+    }
+  }
+
+  @Override
+  public boolean canAccess(CompiledAccessExpression compiledExpression) {
+    return ((CompiledAccessExpressionImpl) compiledExpression).evaluate(authorizedPredicate,
+        options);
+  }
+
+  @Override
+  public boolean canAccess(byte[] expression, int offset, int length)
+      throws InvalidAccessExpressionException {
+    Objects.checkFromIndexSize(offset, length, expression.length);
+    try (var context = ParseContext.acquire()) {
+      var lookup = context.bytesLookup.set(authorizationValidator, bytesAuthorizedPredicate);
+      return ParserEvaluator.evaluate(context.tokenizer(expression, offset, length, options),
+          lookup, lookup.shortCircuit, options);
+    }
+  }
+}
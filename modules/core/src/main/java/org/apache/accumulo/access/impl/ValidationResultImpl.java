@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import org.apache.accumulo.access.ValidationResult;
+
+public final class ValidationResultImpl implements ValidationResult {
+
+  private ErrorKind errorKind;
+  private int index = -1;
+
+  void setValid() {
+    errorKind = null;
+    index = -1;
+  }
+
+  void setError(ErrorKind errorKind, int index) {
+    this.errorKind = errorKind;
+    this.index = index;
+  }
+
+  @Override
+  public boolean isValid() {
+    return errorKind == null;
+  }
+
+  @Override
+  public ErrorKind getErrorKind() {
+    return errorKind;
+  }
+
+  @Override
+  public int getIndex() {
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    return isValid() ? "valid" : errorKind + " at index " + index;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static org.apache.accumulo.access.impl.CharUtils.BACKSLASH;
+import static org.apache.accumulo.access.impl.CharUtils.QUOTE;
+
+/**
+ * Scans runs of chars or UTF-8 bytes in an expression for the tokenizers. This is the Java 21
+ * version of this class in the multi-release jar. When the {@code jdk.incubator.vector} module was
+ * added to the JVM, runs that are long enough are scanned by {@link VectorCharScanner}. Otherwise
+ * the chars are scanned one at a time like the Java 17 version does.
+ */
+final class CharScanner {
+
+  private static final boolean VECTORIZED = addVectorModule();
+
+  private static boolean addVectorModule() {
+    var vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector");
+    // when on the module path this module does not require the incubating module, so must read it
+    vectorModule.ifPresent(CharScanner.class.getModule()::addReads);
+    return vectorModule.isPresent();
+  }
+
+  private CharScanner() {}
+
+  static int skipAuthChars(char[] chars, int from, int to) {
+    int i = from;
+    if (VECTORIZED && to - i >= VectorCharScanner.MIN_CHARS) {
+      i = VectorCharScanner.skipAuthChars(chars, i, to);
+    }
+    while (i < to && Tokenizer.isValidAuthChar(chars[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  static int skipAuthBytes(byte[] bytes, int from, int to) {
+    int i = from;
+    if (VECTORIZED && to - i >= VectorCharScanner.MIN_BYTES) {
+      i = VectorCharScanner.skipAuthBytes(bytes, i, to);
+    }
+    while (i < to && Tokenizer.isValidAuthByte(bytes[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  static int findQuoteOrBackslash(char[] chars, int from, int to) {
+    int i = from;
+    if (VECTORIZED && to - i >= VectorCharScanner.MIN_CHARS) {
+      i = VectorCharScanner.findQuoteOrBackslash(chars, i, to);
+    }
+    while (i < to && chars[i] != QUOTE && chars[i] != BACKSLASH) {
+      i++;
+    }
+    return i;
+  }
+
+  static int findQuoteOrBackslash(byte[] bytes, int from, int to) {
+    int i = from;
+    if (VECTORIZED && to - i >= VectorCharScanner.MIN_BYTES) {
+      i = VectorCharScanner.findQuoteOrBackslash(bytes, i, to);
+    }
+    while (i < to && bytes[i] != QUOTE && bytes[i] != BACKSLASH) {
+      i++;
+    }
+    return i;
+  }
+}
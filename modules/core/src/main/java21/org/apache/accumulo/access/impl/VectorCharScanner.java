@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.impl;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.OR;
+import static jdk.incubator.vector.VectorOperators.SUB;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_LT;
+import static org.apache.accumulo.access.impl.CharUtils.BACKSLASH;
+import static org.apache.accumulo.access.impl.CharUtils.QUOTE;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scans chars or UTF-8 bytes a vector at a time. Chars are compared as shorts, which compare the
+ * same way when the comparisons are unsigned. Each method scans whole vectors and returns where it
+ * stopped, which is either the position of the char it found or where fewer chars than a vector are
+ * left. The caller scans the rest one char at a time.
+ *
+ * <p>
+ * This class is only loaded when the {@code jdk.incubator.vector} module is present.
+ */
+final class VectorCharScanner {
+
+  private static final VectorSpecies<Short> CHAR_SPECIES = ShortVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_PREFERRED;
+
+  static final int MIN_CHARS = CHAR_SPECIES.length();
+  static final int MIN_BYTES = BYTE_SPECIES.length();
+
+  private VectorCharScanner() {}
+
+  // The chars allowed in an unquoted authorization are [0-9a-zA-Z_-:./]. Ranges are checked with a
+  // single unsigned compare after subtracting the start of the range, and setting bit 0x20 maps
+  // [A-Z] to [a-z] without mapping any other char into [a-z].
+
+  private static VectorMask<Short> validAuthChars(ShortVector v) {
+    var digits = v.lanewise(SUB, (short) '0').compare(UNSIGNED_LT, (short) 10);
+    var letters =
+        v.lanewise(OR, (short) 0x20).lanewise(SUB, (short) 'a').compare(UNSIGNED_LT, (short) 26);
+    return digits.or(letters).or(v.compare(EQ, (short) '_')).or(v.compare(EQ, (short) '-'))
+        .or(v.compare(EQ, (short) ':')).or(v.compare(EQ, (short) '.'))
+        .or(v.compare(EQ, (short) '/'));
+  }
+
+  private static VectorMask<Byte> validAuthBytes(ByteVector v) {
+    var digits = v.lanewise(SUB, (byte) '0').compare(UNSIGNED_LT, (byte) 10);
+    var letters =
+        v.lanewise(OR, (byte) 0x20).lanewise(SUB, (byte) 'a').compare(UNSIGNED_LT, (byte) 26);
+    return digits.or(letters).or(v.compare(EQ, (byte) '_')).or(v.compare(EQ, (byte) '-'))
+        .or(v.compare(EQ, (byte) ':')).or(v.compare(EQ, (byte) '.'))
+        .or(v.compare(EQ, (byte) '/'));
+  }
+
+  static int skipAuthChars(char[] chars, int from, int to) {
+    int i = from;
+    for (int bound = to - MIN_CHARS; i <= bound; i += MIN_CHARS) {
+      var invalid = validAuthChars(ShortVector.fromCharArray(CHAR_SPECIES, chars, i)).not();
+      if (invalid.anyTrue()) {
+        return i + invalid.firstTrue();
+      }
+    }
+    return i;
+  }
+
+  static int skipAuthBytes(byte[] bytes, int from, int to) {
+    int i = from;
+    for (int bound = to - MIN_BYTES; i <= bound; i += MIN_BYTES) {
+      var invalid = validAuthBytes(ByteVector.fromArray(BYTE_SPECIES, bytes, i)).not();
+      if (invalid.anyTrue()) {
+        return i + invalid.firstTrue();
+      }
+    }
+    return i;
+  }
+
+  static int findQuoteOrBackslash(char[] chars, int from, int to) {
+    int i = from;
+    for (int bound = to - MIN_CHARS; i <= bound; i += MIN_CHARS) {
+      var v = ShortVector.fromCharArray(CHAR_SPECIES, chars, i);
+      var found = v.compare(EQ, (short) QUOTE).or(v.compare(EQ, (short) BACKSLASH));
+      if (found.anyTrue()) {
+        return i + found.firstTrue();
+      }
+    }
+    return i;
+  }
+
+  static int findQuoteOrBackslash(byte[] bytes, int from, int to) {
+    int i = from;
+    for (int bound = to - MIN_BYTES; i <= bound; i += MIN_BYTES) {
+      var v = ByteVector.fromArray(BYTE_SPECIES, bytes, i);
+      var found = v.compare(EQ, (byte) QUOTE).or(v.compare(EQ, (byte) BACKSLASH));
+      if (found.anyTrue()) {
+        return i + found.firstTrue();
+      }
+    }
+    return i;
+  }
+}
@@ -21,14 +21,24 @@ package org.apache.accumulo.access.benchmark;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.accumulo.access.Access;
 import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.AccessExpression;
+import org.apache.accumulo.access.BulkAccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
 import org.apache.accumulo.access.testdata.TestDataLoader;
 import org.apache.accumulo.access.testdata.TestDataLoader.ExpectedResult;
 import org.apache.accumulo.access.testdata.TestDataLoader.TestDataSet;
@@ -40,6 +50,7 @@ import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.profile.JavaFlightRecorderProfiler;
 import org.openjdk.jmh.runner.NoBenchmarksException;
@@ -76,6 +87,30 @@ public class AccessExpressionBenchmark {
     AccessEvaluator evaluator;
 
     List<String> expressions;
+
+    List<CompiledAccessExpression> compiledExpressions;
+
+    List<AccessExpression> accessExpressions;
+
+    AccessEvaluator cachingEvaluator;
+
+    AccessEvaluator samplingEvaluator;
+
+    List<String> skewedExpressions;
+
+    // only set when there is a single set of authorizations
+    AccessEvaluator dictionaryEvaluator;
+
+    // only set when there is a single set of authorizations
+    AccessEvaluator predicateEvaluator;
+
+    // only set when there is a single set of authorizations
+    AccessEvaluator charSequencePredicateEvaluator;
+
+    boolean multipleAuthorizationSets;
+
+    // only set when there is a single set of authorizations
+    BulkAccessEvaluator bulkEvaluator;
   }
 
   @State(Scope.Benchmark)
@@ -91,9 +126,25 @@ public class AccessExpressionBenchmark {
 
     private ArrayList<VisibilityEvaluatorTests> visibilityEvaluatorTests;
 
+    private ExecutorService platformExecutor;
+
+    // null when running on a version of Java that does not support virtual threads
+    private ExecutorService virtualExecutor;
+
     @Setup
     public void loadData() throws Exception {
+      platformExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try {
+        virtualExecutor = (ExecutorService) Executors.class
+            .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (NoSuchMethodException e) {
+        virtualExecutor = null;
+      }
+
       access = Access.builder().build();
+      var dictionary = access.newAuthorizationDictionary();
+      // use a fixed seed so that every run of the benchmark sees the same workload
+      SplittableRandom random = new SplittableRandom(42);
       List<TestDataSet> testData = TestDataLoader.readTestData();
       allTestExpressions = new ArrayList<>();
       allTestExpressionsStr = new ArrayList<>();
@@ -122,13 +173,31 @@ public class AccessExpressionBenchmark {
         // Create new
         EvaluatorTests et = new EvaluatorTests();
         et.expressions = new ArrayList<>();
+        et.compiledExpressions = new ArrayList<>();
+        et.accessExpressions = new ArrayList<>();
 
         if (testDataSet.getAuths().length == 1) {
           et.evaluator = access.newEvaluator(Set.of(testDataSet.getAuths()[0]));
+          et.dictionaryEvaluator = dictionary.newEvaluator(Set.of(testDataSet.getAuths()[0]));
+          // Both authorizers use a binary search of the same sorted array so that they only differ
+          // in what is passed to them
+          CharSequence[] sortedAuths = testDataSet.getAuths()[0].clone();
+          Arrays.sort(sortedAuths, CharSequence::compare);
+          et.predicateEvaluator = access.newEvaluator(
+              auth -> Arrays.binarySearch(sortedAuths, auth, CharSequence::compare) >= 0);
+          et.charSequencePredicateEvaluator = access.newCharSequenceEvaluator(
+              auth -> Arrays.binarySearch(sortedAuths, auth, CharSequence::compare) >= 0);
+          // a stub for a remote authorizer that responds immediately
+          Set<String> authSet = Set.of(testDataSet.getAuths()[0]);
+          et.bulkEvaluator = access.newBulkEvaluator(
+              auths -> CompletableFuture.completedFuture(
+                  auths.stream().filter(authSet::contains).collect(Collectors.toSet())),
+              Runnable::run);
         } else {
           var authSets =
               Stream.of(testDataSet.getAuths()).map(a -> Set.of(a)).collect(Collectors.toList());
           et.evaluator = access.newEvaluator(authSets);
+          et.multipleAuthorizationSets = true;
         }
 
         for (var tests : testDataSet.getTests()) {
@@ -138,17 +207,52 @@ public class AccessExpressionBenchmark {
               byte[] byteExp = exp.getBytes(UTF_8);
               allTestExpressions.add(byteExp);
               et.expressions.add(exp);
+              et.compiledExpressions.add(access.compile(exp));
+              et.accessExpressions.add(access.newExpression(exp));
               vet.expressions.add(byteExp);
               vet.columnVisibilities.add(new ColumnVisibility(byteExp));
             }
           }
         }
 
+        et.cachingEvaluator = access.newCachingEvaluator(et.evaluator, 32);
+        et.samplingEvaluator = access.newSamplingEvaluator(et.evaluator, 32, 100);
+        et.skewedExpressions = skewedSample(et.expressions, random);
+
         evaluatorTests.add(et);
         visibilityEvaluatorTests.add(vet);
       }
     }
 
+    /**
+     * Draws as many expressions as given from a Zipf distribution over the given expressions. The
+     * first expressions in the list are drawn far more frequently than the last ones, which is
+     * similar to the distribution of column visibilities seen when scanning data.
+     */
+    private static List<String> skewedSample(List<String> expressions, SplittableRandom random) {
+      double[] cumulativeWeights = new double[expressions.size()];
+      double total = 0;
+      for (int rank = 0; rank < expressions.size(); rank++) {
+        total += 1.0 / Math.pow(rank + 1, 1.2);
+        cumulativeWeights[rank] = total;
+      }
+
+      List<String> sample = new ArrayList<>(expressions.size());
+      for (int i = 0; i < expressions.size(); i++) {
+        int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * total);
+        sample.add(expressions.get(index < 0 ? -index - 1 : index));
+      }
+      return sample;
+    }
+
+    @TearDown
+    public void shutdownExecutors() {
+      platformExecutor.shutdownNow();
+      if (virtualExecutor != null) {
+        virtualExecutor.shutdownNow();
+      }
+    }
+
     List<byte[]> getBytesExpressions() {
       return allTestExpressions;
     }
@@ -213,6 +317,202 @@ public class AccessExpressionBenchmark {
     }
   }
 
+  /**
+   * Measures the time it takes to evaluate an expression that was compiled ahead of time. Comparing
+   * this to {@link #measureParseAndEvaluation(BenchmarkState, Blackhole)} shows the cost of
+   * tokenizing and validating an expression on each evaluation.
+   */
+  @Benchmark
+  public void measureCompiledEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      for (CompiledAccessExpression expression : evaluatorTests.compiledExpressions) {
+        blackhole.consume(evaluatorTests.evaluator.canAccess(expression));
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate an expression using an evaluator created from a
+   * {@code Predicate<String>}. Only test sets with a single set of authorizations are evaluated.
+   * Run with {@code -prof gc} to compare allocation rates with
+   * {@link #measureCharSequencePredicateEvaluation(BenchmarkState, Blackhole)}.
+   */
+  @Benchmark
+  public void measurePredicateEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      if (evaluatorTests.predicateEvaluator != null) {
+        for (String expression : evaluatorTests.expressions) {
+          blackhole.consume(evaluatorTests.predicateEvaluator.canAccess(expression));
+        }
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate an expression using an evaluator created from a
+   * {@code Predicate<CharSequence>}. Only test sets with a single set of authorizations are
+   * evaluated.
+   */
+  @Benchmark
+  public void measureCharSequencePredicateEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      if (evaluatorTests.charSequencePredicateEvaluator != null) {
+        for (String expression : evaluatorTests.expressions) {
+          blackhole.consume(evaluatorTests.charSequencePredicateEvaluator.canAccess(expression));
+        }
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate all expressions of a test set as one batch using a bulk
+   * authorizer that responds immediately. This shows the overhead of batching the authorizations
+   * compared to {@link #measurePredicateEvaluation(BenchmarkState, Blackhole)}. Only test sets with
+   * a single set of authorizations are evaluated.
+   */
+  @Benchmark
+  public void measureBulkEvaluation(BenchmarkState state, Blackhole blackhole)
+      throws InterruptedException, ExecutionException {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      if (evaluatorTests.bulkEvaluator != null) {
+        blackhole.consume(evaluatorTests.bulkEvaluator.canAccess(evaluatorTests.expressions).get());
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate expressions against multiple sets of authorizations.
+   * Only test sets with multiple sets of authorizations are evaluated.
+   */
+  @Benchmark
+  public void measureMultiSetEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      if (evaluatorTests.multipleAuthorizationSets) {
+        for (String expression : evaluatorTests.expressions) {
+          blackhole.consume(evaluatorTests.evaluator.canAccess(expression));
+        }
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate an expression that was compiled ahead of time using
+   * evaluators created by an authorization dictionary. Only test sets with a single set of
+   * authorizations are evaluated.
+   */
+  @Benchmark
+  public void measureDictionaryCompiledEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      if (evaluatorTests.dictionaryEvaluator != null) {
+        for (CompiledAccessExpression expression : evaluatorTests.compiledExpressions) {
+          blackhole.consume(evaluatorTests.dictionaryEvaluator.canAccess(expression));
+        }
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate expressions that were validated ahead of time and are
+   * held as {@link AccessExpression} objects rather than Strings.
+   */
+  @Benchmark
+  public void measureAccessExpressionEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      for (AccessExpression expression : evaluatorTests.accessExpressions) {
+        blackhole.consume(evaluatorTests.evaluator.canAccess(expression));
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate a skewed workload, where a few expressions are seen far
+   * more often than the rest, without caching.
+   */
+  @Benchmark
+  public void measureSkewedEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      for (String expression : evaluatorTests.skewedExpressions) {
+        blackhole.consume(evaluatorTests.evaluator.canAccess(expression));
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate the same skewed workload as
+   * {@link #measureSkewedEvaluation(BenchmarkState, Blackhole)} using a caching evaluator.
+   */
+  @Benchmark
+  public void measureSkewedCachedEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      for (String expression : evaluatorTests.skewedExpressions) {
+        blackhole.consume(evaluatorTests.cachingEvaluator.canAccess(expression));
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate the same skewed workload as
+   * {@link #measureSkewedEvaluation(BenchmarkState, Blackhole)} while sampling one in a hundred
+   * evaluations to find the heaviest expressions.
+   */
+  @Benchmark
+  public void measureSkewedSampledEvaluation(BenchmarkState state, Blackhole blackhole) {
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      for (String expression : evaluatorTests.skewedExpressions) {
+        blackhole.consume(evaluatorTests.samplingEvaluator.canAccess(expression));
+      }
+    }
+  }
+
+  /**
+   * Measures the time it takes to evaluate all expressions using a fixed pool of platform threads,
+   * with a task for each expression.
+   */
+  @Benchmark
+  public void measurePlatformThreadEvaluation(BenchmarkState state, Blackhole blackhole)
+      throws InterruptedException, ExecutionException {
+    evaluateConcurrently(state.platformExecutor, state, blackhole);
+  }
+
+  /**
+   * Measures the time it takes to evaluate all expressions using a new virtual thread for each
+   * expression. Comparing this to
+   * {@link #measurePlatformThreadEvaluation(BenchmarkState, Blackhole)} shows the cost of parsing
+   * on short-lived threads.
+   */
+  @Benchmark
+  public void measureVirtualThreadEvaluation(BenchmarkState state, Blackhole blackhole)
+      throws InterruptedException, ExecutionException {
+    if (state.virtualExecutor == null) {
+      throw new UnsupportedOperationException("Virtual threads are not supported");
+    }
+    evaluateConcurrently(state.virtualExecutor, state, blackhole);
+  }
+
+  private static void evaluateConcurrently(ExecutorService executor, BenchmarkState state,
+      Blackhole blackhole) throws InterruptedException, ExecutionException {
+    var futures = new ArrayList<Future<Boolean>>(state.getStringExpressions().size());
+    for (EvaluatorTests evaluatorTests : state.getEvaluatorTests()) {
+      for (String expression : evaluatorTests.expressions) {
+        futures.add(executor.submit(() -> evaluatorTests.evaluator.canAccess(expression)));
+      }
+    }
+    for (Future<Boolean> future : futures) {
+      blackhole.consume(future.get());
+    }
+  }
+
+  /**
+   * Measures the time it takes to compile an expression stored in a String.
+   */
+  @Benchmark
+  public void measureCompile(BenchmarkState state, Blackhole blackhole) {
+    var accumuloAccess = state.access;
+    for (String accessExpression : state.getStringExpressions()) {
+      blackhole.consume(accumuloAccess.compile(accessExpression));
+    }
+  }
+
   /**
    * Measures the time it takes to evaluate a legacy expression.
    *
@@ -263,7 +563,8 @@ public class AccessExpressionBenchmark {
 
     var include = System.getenv().getOrDefault("ACCESS_BENCHMARK", "true");
     if (include.equals("true")) {
-      include = "";
+      // other benchmark classes set their own operations per invocation
+      include = AccessExpressionBenchmark.class.getName();
     }
     LOG.info("Benchmark include pattern: {}", include);
 
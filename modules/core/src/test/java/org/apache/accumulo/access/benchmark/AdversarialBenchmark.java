@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.testdata.AdversarialExpressions;
+import org.apache.accumulo.access.testdata.AdversarialExpressions.Kind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks the worst case of parsing hostile expressions from {@link AdversarialExpressions},
+ * such as long quoted authorizations full of escapes, thousands of levels of nesting, and wide
+ * lists of operands with an error at the very end. Validating measures the tokenizer, evaluating
+ * measures the parser evaluator, compiled evaluation measures compiling and running the program,
+ * and all of them unescape quoted authorizations. The main method runs each length with that many
+ * operations per invocation, so the results are in nanoseconds per char and should not grow with
+ * the length. To run, use the following commands.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.AdversarialBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AdversarialBenchmark {
+
+  private static final String[] LENGTHS = {"1000", "64000", "1000000"};
+
+  @Param
+  public Kind kind;
+
+  @Param({"1000", "64000", "1000000"})
+  public int length;
+
+  private Access access;
+  private AccessEvaluator evaluator;
+  private String expression;
+
+  @Setup
+  public void setup() {
+    access = Access.builder().build();
+    // with no authorizations every operand of an or has to be looked up
+    evaluator = access.newEvaluator(Set.<String>of());
+    expression = AdversarialExpressions.generate(kind, length);
+  }
+
+  @Benchmark
+  public void measureValidation(Blackhole blackhole) {
+    try {
+      access.validateExpression(expression);
+    } catch (InvalidAccessExpressionException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public void measureEvaluation(Blackhole blackhole) {
+    try {
+      blackhole.consume(evaluator.canAccess(expression));
+    } catch (InvalidAccessExpressionException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public void measureParsing(Blackhole blackhole) {
+    try {
+      blackhole.consume(access.newParsedExpression(expression));
+    } catch (InvalidAccessExpressionException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public void measureCompiledEvaluation(Blackhole blackhole) {
+    try {
+      blackhole.consume(evaluator.canAccess(access.compile(expression)));
+    } catch (InvalidAccessExpressionException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public void measureFindAuthorizations(Blackhole blackhole) {
+    try {
+      access.findAuthorizations(expression, blackhole::consume);
+    } catch (InvalidAccessExpressionException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (String length : LENGTHS) {
+      var opt =
+          new OptionsBuilder().include(AdversarialBenchmark.class.getName()).param("length", length)
+              .operationsPerInvocation(Integer.parseInt(length)).warmupTime(TimeValue.seconds(5))
+              .warmupIterations(3).measurementIterations(4).forks(3).build();
+      new Runner(opt).run();
+    }
+  }
+}
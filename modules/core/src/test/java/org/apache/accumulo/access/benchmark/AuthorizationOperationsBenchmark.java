@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AuthorizationDictionary;
+import org.apache.accumulo.access.testdata.CorpusGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks the operations other than validating and evaluating expressions that are done for
+ * every request: creating an evaluator from a set of authorizations, quoting and unquoting
+ * authorizations, and finding the authorizations in an expression. The authorizations are generated
+ * by {@link CorpusGenerator}, with the given length and the given fraction of authorizations that
+ * need quoting. To run, use the following commands.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.AuthorizationOperationsBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthorizationOperationsBenchmark {
+
+  private static final int NUM_OPERATIONS = 1024;
+
+  @Param({"1", "16", "1024", "50000"})
+  public int authorizationSetSize;
+
+  @Param({"8", "64"})
+  public int authorizationLength;
+
+  @Param({"0.0", "0.5"})
+  public double quotingRatio;
+
+  private Access access;
+  private AuthorizationDictionary dictionary;
+  private Set<String> authorizations;
+  private String[] unquoted;
+  private String[] quoted;
+  private String[] expressions;
+
+  @Setup
+  public void setup() {
+    access = Access.builder().build();
+    dictionary = access.newAuthorizationDictionary();
+    var generator = CorpusGenerator.builder().authorizations(authorizationSetSize)
+        .tokenLength(authorizationLength).quotingRatio(quotingRatio)
+        .distinctExpressions(NUM_OPERATIONS).build();
+
+    authorizations = generator.authorizations(1.0);
+    unquoted = new String[NUM_OPERATIONS];
+    quoted = new String[NUM_OPERATIONS];
+    expressions = new String[NUM_OPERATIONS];
+    for (int i = 0; i < NUM_OPERATIONS; i++) {
+      unquoted[i] = generator.authorization(i % authorizationSetSize);
+      quoted[i] = access.quote(unquoted[i]);
+      expressions[i] = generator.expression(i);
+    }
+  }
+
+  /**
+   * Measures creating an evaluator, which validates and copies every authorization.
+   */
+  @Benchmark
+  public void measureNewEvaluator(Blackhole blackhole) {
+    blackhole.consume(access.newEvaluator(authorizations));
+  }
+
+  @Benchmark
+  public void measureNewTrieEvaluator(Blackhole blackhole) {
+    blackhole.consume(access.newTrieEvaluator(authorizations));
+  }
+
+  /**
+   * Measures creating an evaluator from a dictionary that already knows the authorizations, as it
+   * does after the first evaluator is created.
+   */
+  @Benchmark
+  public void measureDictionaryNewEvaluator(Blackhole blackhole) {
+    blackhole.consume(dictionary.newEvaluator(authorizations));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_OPERATIONS)
+  public void measureQuote(Blackhole blackhole) {
+    for (String authorization : unquoted) {
+      blackhole.consume(access.quote(authorization));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_OPERATIONS)
+  public void measureUnquote(Blackhole blackhole) {
+    for (String authorization : quoted) {
+      blackhole.consume(access.unquote(authorization));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_OPERATIONS)
+  public void measureFindAuthorizations(Blackhole blackhole) {
+    for (String expression : expressions) {
+      access.findAuthorizations(expression, blackhole::consume);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    var opt = new OptionsBuilder().include(AuthorizationOperationsBenchmark.class.getName())
+        .warmupTime(TimeValue.seconds(5)).warmupIterations(3).measurementIterations(4).forks(3)
+        .build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks evaluating expressions against sets of authorizations of different sizes, comparing
+ * the evaluators created from a set with an evaluator that looks up authorizations in a
+ * {@link HashSet}. The authorizations are long and namespaced, and half of the authorizations in
+ * the expressions are in the set. To run, use the following commands.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.AuthorizationSetBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+public class AuthorizationSetBenchmark {
+
+  private static final int NUM_EXPRESSIONS = 1024;
+
+  @Param({"1", "4", "8", "16", "64", "1024", "16384"})
+  public int authorizationSetSize;
+
+  private AccessEvaluator setEvaluator;
+  private AccessEvaluator trieEvaluator;
+  private AccessEvaluator hashSetEvaluator;
+  private List<String> expressions;
+  private List<CompiledAccessExpression> compiledExpressions;
+
+  @Setup
+  public void setup() {
+    var access = Access.builder().build();
+    var random = new SplittableRandom(42);
+
+    Set<String> authorizations = new HashSet<>();
+    for (int i = 0; i < authorizationSetSize; i++) {
+      authorizations.add(authorization(i));
+    }
+
+    expressions = new ArrayList<>(NUM_EXPRESSIONS);
+    compiledExpressions = new ArrayList<>(NUM_EXPRESSIONS);
+    for (int i = 0; i < NUM_EXPRESSIONS; i++) {
+      // pair an authorization that is in the set with one that is not, so both are looked up
+      String present = authorization(random.nextInt(authorizationSetSize));
+      String absent = authorization(authorizationSetSize + random.nextInt(authorizationSetSize));
+      String expression = random.nextBoolean() ? absent + "|" + present : present + "&" + absent;
+      expressions.add(expression);
+      compiledExpressions.add(access.compile(expression));
+    }
+
+    setEvaluator = access.newEvaluator(authorizations);
+    trieEvaluator = access.newTrieEvaluator(authorizations);
+    hashSetEvaluator = access.newEvaluator(authorizations::contains);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureSetEvaluation(Blackhole blackhole) {
+    for (String expression : expressions) {
+      blackhole.consume(setEvaluator.canAccess(expression));
+    }
+  }
+
+  private static String authorization(int i) {
+    return "org.unit" + (i % 8) + ".project" + (i % 64) + ":role/level" + i;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureTrieEvaluation(Blackhole blackhole) {
+    for (String expression : expressions) {
+      blackhole.consume(trieEvaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureHashSetEvaluation(Blackhole blackhole) {
+    for (String expression : expressions) {
+      blackhole.consume(hashSetEvaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureSetCompiledEvaluation(Blackhole blackhole) {
+    for (CompiledAccessExpression expression : compiledExpressions) {
+      blackhole.consume(setEvaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureTrieCompiledEvaluation(Blackhole blackhole) {
+    for (CompiledAccessExpression expression : compiledExpressions) {
+      blackhole.consume(trieEvaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureHashSetCompiledEvaluation(Blackhole blackhole) {
+    for (CompiledAccessExpression expression : compiledExpressions) {
+      blackhole.consume(hashSetEvaluator.canAccess(expression));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    var builder = new OptionsBuilder().include(AuthorizationSetBenchmark.class.getName())
+        .mode(Mode.Throughput).timeUnit(TimeUnit.MICROSECONDS).warmupTime(TimeValue.seconds(5))
+        .warmupIterations(3).measurementIterations(4).forks(3);
+    new Runner(builder.build()).run();
+  }
+}
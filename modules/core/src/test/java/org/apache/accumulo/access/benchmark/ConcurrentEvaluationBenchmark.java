@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.testdata.TestDataLoader;
+import org.apache.accumulo.access.testdata.TestDataLoader.ExpectedResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks many threads evaluating expressions with a single shared evaluator, the way a server
+ * evaluates column visibilities from many scan threads. Each invocation evaluates one expression,
+ * so the sample time mode reports latency percentiles for a single evaluation. Comparing the
+ * results for more and more threads shows contention, such as false sharing in an evaluator or the
+ * cost of looking up per thread parse contexts, that a single threaded benchmark can not see.
+ *
+ * <p>
+ * The main method runs the shared benchmarks with 1, 4, 16, and 64 threads. To run, use the
+ * following commands.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.ConcurrentEvaluationBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentEvaluationBenchmark {
+
+  private static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+
+  // the number of expressions each virtual thread evaluates
+  private static final int EXPRESSIONS_PER_VIRTUAL_THREAD = 16;
+
+  /**
+   * The kind of evaluator shared by all threads: one created from a set of authorizations, one
+   * created from a predicate, or one created from multiple sets of authorizations.
+   */
+  @Param({"set", "predicate", "multi"})
+  public String evaluatorType;
+
+  @Param({"1000", "10000"})
+  public int virtualThreads;
+
+  private AccessEvaluator evaluator;
+  private String[] expressions;
+  private byte[][] bytesExpressions;
+  private CompiledAccessExpression[] compiledExpressions;
+
+  // null when running on a version of Java that does not support virtual threads
+  private ExecutorService virtualExecutor;
+
+  /**
+   * The position of a thread in the expressions. Each thread has its own, so threads do not contend
+   * on it.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next;
+
+    int next(int length) {
+      int index = next;
+      next = index + 1 == length ? 0 : index + 1;
+      return index;
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    var access = Access.builder().build();
+    List<Set<String>> authSets = new ArrayList<>();
+    Set<String> allAuths = new HashSet<>();
+    List<String> all = new ArrayList<>();
+    for (var testDataSet : TestDataLoader.readTestData()) {
+      for (String[] auths : testDataSet.getAuths()) {
+        authSets.add(Set.of(auths));
+        allAuths.addAll(List.of(auths));
+      }
+      for (var tests : testDataSet.getTests()) {
+        if (tests.getExpectedResult() != ExpectedResult.ERROR) {
+          all.addAll(List.of(tests.getExpressions()));
+        }
+      }
+    }
+
+    switch (evaluatorType) {
+      case "set":
+        evaluator = access.newEvaluator(allAuths);
+        break;
+      case "predicate":
+        evaluator = access.newEvaluator(allAuths::contains);
+        break;
+      case "multi":
+        evaluator = access.newEvaluator(authSets);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown evaluator type : " + evaluatorType);
+    }
+
+    expressions = all.toArray(String[]::new);
+    bytesExpressions = new byte[expressions.length][];
+    compiledExpressions = new CompiledAccessExpression[expressions.length];
+    for (int i = 0; i < expressions.length; i++) {
+      bytesExpressions[i] = expressions[i].getBytes(UTF_8);
+      compiledExpressions[i] = access.compile(expressions[i]);
+    }
+
+    try {
+      virtualExecutor = (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      virtualExecutor = null;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (virtualExecutor != null) {
+      virtualExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Measures evaluating an expression stored in a String with an evaluator shared by all threads.
+   */
+  @Benchmark
+  public boolean measureSharedEvaluation(Cursor cursor) {
+    return evaluator.canAccess(expressions[cursor.next(expressions.length)]);
+  }
+
+  /**
+   * Measures evaluating an expression stored as UTF-8 with an evaluator shared by all threads.
+   */
+  @Benchmark
+  public boolean measureSharedBytesEvaluation(Cursor cursor) {
+    return evaluator.canAccess(bytesExpressions[cursor.next(bytesExpressions.length)]);
+  }
+
+  /**
+   * Measures evaluating a compiled expression with an evaluator shared by all threads. This does
+   * not use a parse context, so comparing it with {@link #measureSharedEvaluation(Cursor)} shows
+   * the cost of getting a context as the number of threads grows.
+   */
+  @Benchmark
+  public boolean measureSharedCompiledEvaluation(Cursor cursor) {
+    return evaluator.canAccess(compiledExpressions[cursor.next(compiledExpressions.length)]);
+  }
+
+  /**
+   * Measures evaluating Strings while other threads evaluate the same expressions as UTF-8 and as
+   * compiled expressions with the same evaluator.
+   */
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(2)
+  public boolean measureMixedEvaluation(Cursor cursor) {
+    return measureSharedEvaluation(cursor);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean measureMixedBytesEvaluation(Cursor cursor) {
+    return measureSharedBytesEvaluation(cursor);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean measureMixedCompiledEvaluation(Cursor cursor) {
+    return measureSharedCompiledEvaluation(cursor);
+  }
+
+  /**
+   * Measures starting thousands of virtual threads that each evaluate a few expressions with the
+   * shared evaluator, and waiting for all of them. Virtual threads share a pool of parse contexts
+   * instead of using thread locals, so this shows the cost of that pool when it is contended.
+   */
+  @Benchmark
+  @Threads(1)
+  public void measureVirtualThreads(Blackhole blackhole)
+      throws InterruptedException, ExecutionException {
+    if (virtualExecutor == null) {
+      throw new UnsupportedOperationException("Virtual threads are not supported");
+    }
+    var futures = new ArrayList<Future<Integer>>(virtualThreads);
+    for (int t = 0; t < virtualThreads; t++) {
+      int first = t * EXPRESSIONS_PER_VIRTUAL_THREAD;
+      futures.add(virtualExecutor.submit(() -> {
+        int accessible = 0;
+        for (int i = 0; i < EXPRESSIONS_PER_VIRTUAL_THREAD; i++) {
+          if (evaluator.canAccess(expressions[(first + i) % expressions.length])) {
+            accessible++;
+          }
+        }
+        return accessible;
+      }));
+    }
+    for (Future<Integer> future : futures) {
+      blackhole.consume(future.get());
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    String name = ConcurrentEvaluationBenchmark.class.getName();
+    for (int threads : THREAD_COUNTS) {
+      // the number of virtual threads is only used by the virtual thread benchmark
+      run(new OptionsBuilder().include(name + ".measureShared.*").param("virtualThreads", "1000")
+          .threads(threads));
+    }
+    run(new OptionsBuilder().include(name + ".mixed").param("virtualThreads", "1000"));
+    run(new OptionsBuilder().include(name + ".measureVirtualThreads"));
+  }
+
+  private static void run(ChainedOptionsBuilder builder) throws Exception {
+    new Runner(builder.warmupTime(TimeValue.seconds(5)).warmupIterations(3).measurementIterations(4)
+        .forks(3).build()).run();
+  }
+}
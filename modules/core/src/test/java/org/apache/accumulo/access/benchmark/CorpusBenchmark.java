@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.testdata.CorpusGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks a large synthetic workload that looks like production data, generated by
+ * {@link CorpusGenerator}. The distinct expressions are generated once, and each invocation
+ * evaluates the next expression of a stream of a million expressions that repeat following a Zipf
+ * distribution. Comparing the shapes shows how long authorizations, deep nesting and wide operators
+ * affect evaluation, and comparing with the caching evaluator shows how much repetition helps.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.CorpusBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+public class CorpusBenchmark {
+
+  private static final int EXPRESSIONS = 1_000_000;
+
+  /**
+   * The shape of the expressions: short unnamespaced authorizations, long namespaced
+   * authorizations, deeply nested, or wide lists of operands.
+   */
+  @Param({"short", "namespaced", "deep", "wide"})
+  public String shape;
+
+  @Param({"1000", "100000"})
+  public int distinctExpressions;
+
+  @Param({"0.0", "1.2"})
+  public double skew;
+
+  private Access access;
+  private AccessEvaluator evaluator;
+  private AccessEvaluator cachingEvaluator;
+  private String[] distinct;
+  private int[] ranks;
+  private int next;
+
+  @Setup
+  public void setup() {
+    var builder = CorpusGenerator.builder().distinctExpressions(distinctExpressions).skew(skew);
+    switch (shape) {
+      case "short":
+        builder.namespaces(0).tokenLength(4).quotingRatio(0).maxDepth(1).fanOut(3);
+        break;
+      case "namespaced":
+        builder.namespaces(16).tokenLength(40).quotingRatio(0.1).maxDepth(1).fanOut(3);
+        break;
+      case "deep":
+        builder.maxDepth(8).fanOut(2);
+        break;
+      case "wide":
+        builder.maxDepth(0).fanOut(64).maxOperands(64);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown shape : " + shape);
+    }
+    var generator = builder.build();
+
+    access = Access.builder().build();
+    evaluator = access.newEvaluator(generator.authorizations(0.5));
+    cachingEvaluator = access.newCachingEvaluator(evaluator, 1024);
+    distinct = new String[distinctExpressions];
+    for (int i = 0; i < distinct.length; i++) {
+      distinct[i] = generator.expression(i);
+    }
+    ranks = generator.ranks(EXPRESSIONS).toArray();
+  }
+
+  private String nextExpression() {
+    int index = next;
+    next = index + 1 == ranks.length ? 0 : index + 1;
+    return distinct[ranks[index]];
+  }
+
+  @Benchmark
+  public boolean measureEvaluation() {
+    return evaluator.canAccess(nextExpression());
+  }
+
+  @Benchmark
+  public boolean measureCachedEvaluation() {
+    return cachingEvaluator.canAccess(nextExpression());
+  }
+
+  @Benchmark
+  public void measureValidation() {
+    access.validateExpression(nextExpression());
+  }
+
+  public static void main(String[] args) throws Exception {
+    var opt = new OptionsBuilder().include(CorpusBenchmark.class.getName()).mode(Mode.Throughput)
+        .timeUnit(TimeUnit.MICROSECONDS).warmupTime(TimeValue.seconds(5)).warmupIterations(3)
+        .measurementIterations(4).forks(3).build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks expressions with extreme shapes. A nested expression such as {@code (((A&B)|C)&D)}
+ * nests parentheses as deep as its size, and a wide expression such as {@code A|B|C|D} has a single
+ * operator with as many operands as its size. Nested expressions were handled by recursion and
+ * could overflow the stack, these show what parsing them without recursion costs.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.ExpressionShapeBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+public class ExpressionShapeBenchmark {
+
+  @Param({"16", "1024", "65536"})
+  public int size;
+
+  @Param({"nested", "wide"})
+  public String shape;
+
+  private Access access;
+  private AccessEvaluator evaluator;
+  private String expression;
+
+  @Setup
+  public void setup() {
+    access = Access.builder().build();
+    evaluator = access.newEvaluator(Set.of("A0", "A2", "A4"));
+    var sb = new StringBuilder();
+    if (shape.equals("nested")) {
+      // alternate operators so that every level needs its own parentheses
+      sb.append("(".repeat(size - 1)).append("A0");
+      for (int i = 1; i < size; i++) {
+        sb.append(i % 2 == 0 ? '&' : '|').append('A').append(i).append(')');
+      }
+    } else {
+      sb.append("A0");
+      for (int i = 1; i < size; i++) {
+        sb.append('|').append('A').append(i);
+      }
+    }
+    expression = sb.toString();
+  }
+
+  @Benchmark
+  public void measureValidation() {
+    access.validateExpression(expression);
+  }
+
+  @Benchmark
+  public void measureEvaluation(Blackhole blackhole) {
+    blackhole.consume(evaluator.canAccess(expression));
+  }
+
+  @Benchmark
+  public void measureFindAuthorizations(Blackhole blackhole) {
+    access.findAuthorizations(expression, blackhole::consume);
+  }
+
+  @Benchmark
+  public void measureParsing(Blackhole blackhole) {
+    blackhole.consume(access.newParsedExpression(expression));
+  }
+
+  public static void main(String[] args) throws Exception {
+    var opt = new OptionsBuilder().include(ExpressionShapeBenchmark.class.getName())
+        .mode(Mode.AverageTime).timeUnit(TimeUnit.MICROSECONDS).warmupTime(TimeValue.seconds(5))
+        .warmupIterations(3).measurementIterations(4).forks(3).build();
+    new Runner(opt).run();
+  }
+}
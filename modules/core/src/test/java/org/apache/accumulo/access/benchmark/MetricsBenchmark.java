@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.JmxAccessMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks the overhead of metrics. With metrics off the default metrics that do nothing are
+ * used, with metrics on {@link JmxAccessMetrics} counts every expression. Run with several threads
+ * to see if counting from many threads contends.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.MetricsBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+  private static final String[] EXPRESSIONS = {"PUBLIC", "(ADMIN|AUDIT)&PRIVATE",
+      "\"team:alpha\"&(ADMIN|DEV|OPS)", "(A&B&C)|(D&E)|(F&(G|H|PUBLIC))", "SECRET&(EU|US)&!"};
+
+  @Param({"false", "true"})
+  public boolean metrics;
+
+  private JmxAccessMetrics jmxMetrics;
+  private Access access;
+  private AccessEvaluator evaluator;
+  private String[] expressions;
+  private CompiledAccessExpression[] compiled;
+
+  @Setup
+  public void setup() {
+    var builder = Access.builder();
+    if (metrics) {
+      jmxMetrics = JmxAccessMetrics.register(MetricsBenchmark.class.getSimpleName());
+      builder.metrics(jmxMetrics);
+    }
+    access = builder.build();
+    evaluator = access.newEvaluator(Set.of("PUBLIC", "PRIVATE", "DEV", "US", "G", "team:alpha"));
+    // the last expression is not valid, it is only used to measure rejections
+    expressions = new String[EXPRESSIONS.length - 1];
+    compiled = new CompiledAccessExpression[expressions.length];
+    for (int i = 0; i < expressions.length; i++) {
+      expressions[i] = EXPRESSIONS[i];
+      compiled[i] = access.compile(expressions[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (jmxMetrics != null) {
+      jmxMetrics.close();
+    }
+  }
+
+  @Benchmark
+  public void measureEvaluation(Blackhole blackhole) {
+    for (String expression : expressions) {
+      blackhole.consume(evaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  public void measureCompiledEvaluation(Blackhole blackhole) {
+    for (CompiledAccessExpression expression : compiled) {
+      blackhole.consume(evaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  public void measureValidation() {
+    for (String expression : expressions) {
+      access.validateExpression(expression);
+    }
+  }
+
+  @Benchmark
+  public void measureCheck(Blackhole blackhole) {
+    blackhole.consume(access.check(EXPRESSIONS[EXPRESSIONS.length - 1]).isValid());
+  }
+
+  public static void main(String[] args) throws Exception {
+    var opt = new OptionsBuilder().include(MetricsBenchmark.class.getName()).mode(Mode.Throughput)
+        .timeUnit(TimeUnit.MICROSECONDS).warmupTime(TimeValue.seconds(5)).warmupIterations(3)
+        .measurementIterations(4).forks(3).threads(4).build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmarks tokenizing expressions with authorizations of different lengths. Each expression ORs
+ * four authorizations that are not in the evaluators set, so every authorization is scanned and
+ * looked up.
+ *
+ * <p>
+ * On Java 21 or later the tokenizer can scan using the incubating vector API. The vector API is
+ * only used from the packaged core jar, because it is a multi-release jar, and only when the
+ * {@code jdk.incubator.vector} module is added to the JVM. To compare the two, run this with the
+ * core jar in place of {@code target/classes} on the classpath, once as below and once with
+ * {@code -Dvector=true} before the class name, which adds the module to the forked JVMs.
+ *
+ * <p>
+ * <blockquote>
+ *
+ * <pre>
+ * mvn clean package
+ * mvn exec:exec -Dexec.executable="java" -Dexec.classpathScope=test -Dexec.args="-classpath %classpath org.apache.accumulo.access.benchmark.TokenizerBenchmark"
+ * </pre>
+ *
+ * </blockquote>
+ */
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+  private static final int NUM_EXPRESSIONS = 256;
+  private static final String AUTH_CHARS =
+      "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_-:./";
+
+  @Param({"4", "16", "64", "256"})
+  public int authorizationLength;
+
+  private Access access;
+  private AccessEvaluator evaluator;
+  private List<String> expressions;
+  private List<String> quotedExpressions;
+  private List<byte[]> bytesExpressions;
+
+  @Setup
+  public void setup() {
+    access = Access.builder().build();
+    var random = new SplittableRandom(42);
+
+    Set<String> auths = new HashSet<>();
+    expressions = new ArrayList<>(NUM_EXPRESSIONS);
+    quotedExpressions = new ArrayList<>(NUM_EXPRESSIONS);
+    bytesExpressions = new ArrayList<>(NUM_EXPRESSIONS);
+    for (int i = 0; i < NUM_EXPRESSIONS; i++) {
+      List<String> tokens = new ArrayList<>();
+      List<String> quotedTokens = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        var sb = new StringBuilder(authorizationLength);
+        for (int c = 0; c < authorizationLength; c++) {
+          sb.append(AUTH_CHARS.charAt(random.nextInt(AUTH_CHARS.length())));
+        }
+        tokens.add(sb.toString());
+        quotedTokens.add("\"" + sb + "\"");
+        // an authorization that differs only in its last char, so lookups compare all chars
+        auths.add(sb.substring(0, authorizationLength - 1) + "#");
+      }
+      String expression = String.join("|", tokens);
+      expressions.add(expression);
+      quotedExpressions.add(String.join("|", quotedTokens));
+      bytesExpressions.add(expression.getBytes(UTF_8));
+    }
+    evaluator = access.newEvaluator(auths);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureEvaluation(Blackhole blackhole) {
+    for (String expression : expressions) {
+      blackhole.consume(evaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureQuotedEvaluation(Blackhole blackhole) {
+    for (String expression : quotedExpressions) {
+      blackhole.consume(evaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureBytesEvaluation(Blackhole blackhole) {
+    for (byte[] expression : bytesExpressions) {
+      blackhole.consume(evaluator.canAccess(expression));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_EXPRESSIONS)
+  public void measureValidation() {
+    for (String expression : expressions) {
+      access.validateExpression(expression);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    var builder = new OptionsBuilder().include(TokenizerBenchmark.class.getName())
+        .mode(Mode.Throughput).timeUnit(TimeUnit.MICROSECONDS).warmupTime(TimeValue.seconds(5))
+        .warmupIterations(3).measurementIterations(4).forks(3);
+    if (Boolean.getBoolean("vector")) {
+      builder.jvmArgsAppend("--add-modules", "jdk.incubator.vector");
+    }
+    new Runner(builder.build()).run();
+  }
+}
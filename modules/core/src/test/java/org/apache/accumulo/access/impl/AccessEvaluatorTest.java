@@ -18,27 +18,54 @@
  */
 package org.apache.accumulo.access.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Map.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.management.ObjectName;
+
 import org.apache.accumulo.access.Access;
 import org.apache.accumulo.access.AccessEvaluator;
 import org.apache.accumulo.access.AuthorizationValidator;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
 import org.apache.accumulo.access.InvalidAuthorizationException;
+import org.apache.accumulo.access.JmxAccessMetrics;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
 import org.apache.accumulo.access.testdata.TestDataLoader;
 import org.apache.accumulo.access.testdata.TestDataLoader.ExpectedResult;
 import org.apache.accumulo.access.testdata.TestDataLoader.TestDataSet;
 import org.junit.jupiter.api.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
 class AccessEvaluatorTest {
 
   @Test
@@ -48,6 +75,7 @@ class AccessEvaluatorTest {
     assertFalse(testData.isEmpty());
 
     var access = Access.builder().build();
+    var dictionary = access.newAuthorizationDictionary();
 
     for (var testSet : testData) {
       System.out.println("runTestCases for " + testSet.getDescription());
@@ -56,15 +84,24 @@ class AccessEvaluatorTest {
       if (testSet.getAuths().length == 1) {
         evaluator = access.newEvaluator(Set.of(testSet.getAuths()[0]));
         runTestCases(access, testSet, evaluator);
+        runTestCases(access, testSet, access.newCachingEvaluator(evaluator, 5));
+        runTestCases(access, testSet, dictionary.newEvaluator(Set.of(testSet.getAuths()[0])));
+        runTestCases(access, testSet, access.newTrieEvaluator(Set.of(testSet.getAuths()[0])));
 
         Set<String> auths = Stream.of(testSet.getAuths()[0]).collect(Collectors.toSet());
         evaluator = access.newEvaluator(auths::contains);
         runTestCases(access, testSet, evaluator);
+        runTestCases(access, testSet, access.newCachingEvaluator(evaluator, 5));
+
+        runTestCases(access, testSet,
+            access.newCharSequenceEvaluator(auth -> auths.contains(auth.toString())));
+        runTestCases(access, testSet, access.newMemoizingEvaluator(auths::contains, 3));
       } else {
         var authSets =
             Stream.of(testSet.getAuths()).map(a -> Set.of(a)).collect(Collectors.toList());
         evaluator = access.newEvaluator(authSets);
         runTestCases(access, testSet, evaluator);
+        runTestCases(access, testSet, access.newCachingEvaluator(evaluator, 5));
       }
     }
   }
@@ -85,6 +122,7 @@ class AccessEvaluatorTest {
         if (tests.getExpectedResult() == ExpectedResult.ACCESSIBLE
             || tests.getExpectedResult() == ExpectedResult.INACCESSIBLE) {
           accumuloAccess.validateExpression(expression);
+          accumuloAccess.validateExpression(padded(expression), 3, utf8Length(expression));
           assertEquals(expression, accumuloAccess.newExpression(expression).getExpression());
           // parsing an expression will strip unneeded outer parens
           assertTrue(
@@ -101,6 +139,15 @@ class AccessEvaluatorTest {
             assertTrue(
                 evaluator.canAccess(accumuloAccess.newParsedExpression(expression).getExpression()),
                 expression);
+            assertTrue(evaluator.canAccess(accumuloAccess.compile(expression)), expression);
+            assertTrue(evaluator.canAccess(expression.getBytes(UTF_8)), expression);
+            assertTrue(evaluator.canAccess(padded(expression), 3, utf8Length(expression)),
+                expression);
+            assertTrue(evaluator.canAccess(accumuloAccess.newExpression(expression).compile()),
+                expression);
+            assertTrue(
+                evaluator.canAccess(accumuloAccess.newParsedExpression(expression).compile()),
+                expression);
           }
           case INACCESSIBLE -> {
             assertFalse(evaluator.canAccess(expression), expression);
@@ -110,6 +157,15 @@ class AccessEvaluatorTest {
             assertFalse(
                 evaluator.canAccess(accumuloAccess.newParsedExpression(expression).getExpression()),
                 expression);
+            assertFalse(evaluator.canAccess(accumuloAccess.compile(expression)), expression);
+            assertFalse(evaluator.canAccess(expression.getBytes(UTF_8)), expression);
+            assertFalse(evaluator.canAccess(padded(expression), 3, utf8Length(expression)),
+                expression);
+            assertFalse(evaluator.canAccess(accumuloAccess.newExpression(expression).compile()),
+                expression);
+            assertFalse(
+                evaluator.canAccess(accumuloAccess.newParsedExpression(expression).compile()),
+                expression);
           }
           case ERROR -> {
             assertThrows(InvalidAccessExpressionException.class,
@@ -120,12 +176,141 @@ class AccessEvaluatorTest {
                 () -> accumuloAccess.newExpression(expression), expression);
             assertThrows(InvalidAccessExpressionException.class,
                 () -> accumuloAccess.newParsedExpression(expression), expression);
+            assertThrows(InvalidAccessExpressionException.class,
+                () -> accumuloAccess.compile(expression), expression);
+            assertThrows(InvalidAccessExpressionException.class,
+                () -> evaluator.canAccess(expression.getBytes(UTF_8)), expression);
+            assertThrows(InvalidAccessExpressionException.class, () -> accumuloAccess
+                .validateExpression(padded(expression), 3, utf8Length(expression)), expression);
           }
         }
       }
     }
   }
 
+  private static int utf8Length(String expression) {
+    return expression.getBytes(UTF_8).length;
+  }
+
+  /**
+   * Encodes the expression as UTF-8 in the middle of a larger array of bytes that are not valid in
+   * an expression.
+   */
+  private static byte[] padded(String expression) {
+    byte[] bytes = expression.getBytes(UTF_8);
+    byte[] padded = new byte[bytes.length + 6];
+    Arrays.fill(padded, (byte) '#');
+    System.arraycopy(bytes, 0, padded, 3, bytes.length);
+    return padded;
+  }
+
+  @Test
+  public void testBytes() {
+    var access = Access.builder().build();
+    var evaluator = access.newEvaluator(Set.of("九", "A\"B", "C"));
+    assertTrue(evaluator.canAccess("\"九\"&C".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess("\"A\\\"B\"&\"C\"".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("\"五十\"&C".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess("\"五十\"|C".getBytes(UTF_8)));
+
+    var predicateEvaluator = access.newEvaluator(auth -> auth.equals("九"));
+    assertTrue(predicateEvaluator.canAccess("\"九\"".getBytes(UTF_8)));
+    assertFalse(predicateEvaluator.canAccess("\"五十\"".getBytes(UTF_8)));
+
+    // invalid UTF-8 is decoded to the replacement character which is not valid by default
+    byte[] invalidUtf8 = {'"', (byte) 0xff, '"'};
+    assertThrows(InvalidAuthorizationException.class, () -> evaluator.canAccess(invalidUtf8));
+    assertThrows(InvalidAuthorizationException.class,
+        () -> access.validateExpression(invalidUtf8, 0, 3));
+
+    var e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression(padded("A&B&九"), 3, utf8Length("A&B&九")));
+    assertTrue(e.getMessage().contains("instead saw '九'"), e::getMessage);
+    assertEquals(4, e.getIndex());
+
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> evaluator.canAccess("A&B".getBytes(UTF_8), 1, 3));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> access.validateExpression("A&B".getBytes(UTF_8), -1, 2));
+    assertTrue(evaluator.canAccess(new byte[0]));
+    access.validateExpression(new byte[0], 0, 0);
+  }
+
+  @Test
+  public void testAuthorizationSetSizes() {
+    var access = Access.builder().build();
+    // sizes on both sides of where the representation of the set changes
+    for (int size : new int[] {1, AuthorizationSet.MAX_LINEAR_SIZE,
+        AuthorizationSet.MAX_LINEAR_SIZE + 1, 100, AuthorizationSet.MIN_BLOOM_FILTER_SIZE,
+        20_000}) {
+      Set<String> auths = new HashSet<>();
+      for (int i = 0; i < size; i++) {
+        auths.add("A" + i);
+      }
+      auths.add("九");
+
+      var authorizationSet = AuthorizationSet.of(auths);
+      assertEquals(auths.size(), authorizationSet.size());
+      Set<String> copied = new HashSet<>();
+      authorizationSet.forEach(copied::add);
+      assertEquals(auths, copied);
+
+      var evaluator = access.newEvaluator(auths);
+      for (int i = 0; i < size; i++) {
+        assertTrue(evaluator.canAccess("A" + i));
+        assertTrue(evaluator.canAccess(("\"A" + i + "\"").getBytes(UTF_8)));
+        assertFalse(evaluator.canAccess("A" + (i + size)));
+        assertFalse(evaluator.canAccess("B" + i));
+        assertFalse(evaluator.canAccess(("A" + i + "0" + size).getBytes(UTF_8)));
+      }
+      assertTrue(evaluator.canAccess("\"九\"|A" + size));
+      assertTrue(evaluator.canAccess(access.compile("A0&\"九\"")));
+      assertFalse(evaluator.canAccess("A"));
+      assertFalse(evaluator.canAccess("A0&\"A\\\"B\""));
+    }
+  }
+
+  @Test
+  public void testTrieEvaluator() {
+    var access = Access.builder().build();
+    var evaluator = access.newTrieEvaluator(Set.of("org.unit.project:role/level",
+        "org.unit.project:role", "org.unit.other:admin", "org.unit.九", "九", "A\"B", "x"));
+
+    assertTrue(evaluator.canAccess("org.unit.project:role/level"));
+    assertTrue(evaluator.canAccess("org.unit.project:role"));
+    assertTrue(evaluator.canAccess("\"org.unit.project:role\""));
+    // prefixes and extensions of authorizations in the set
+    assertFalse(evaluator.canAccess("org.unit.project:role/"));
+    assertFalse(evaluator.canAccess("org.unit.project:role/levels"));
+    assertFalse(evaluator.canAccess("org.unit"));
+    assertFalse(evaluator.canAccess("org"));
+    // diverges from every authorization at the first char and at the last
+    assertFalse(evaluator.canAccess("zorg.unit.project:role"));
+    assertFalse(evaluator.canAccess("org.unit.other:admiN"));
+    assertTrue(evaluator.canAccess("zzz|org.unit.other:admin"));
+    assertFalse(evaluator.canAccess("zzz&org.unit.other:admin"));
+    assertTrue(evaluator.canAccess("(zzz|x)&(org.unit.project:role|org.unit.project:rol)"));
+
+    assertTrue(evaluator.canAccess("\"九\"&\"A\\\"B\""));
+    assertFalse(evaluator.canAccess("\"九九\""));
+    assertFalse(evaluator.canAccess("\"A\\\"\""));
+    assertTrue(evaluator.canAccess("\"A\\\"B\"".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess("\"九\"|y".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("\"九\"&y".getBytes(UTF_8)));
+    // bytes are walked without decoding until a non-ASCII byte is reached
+    assertTrue(evaluator.canAccess("org.unit.project:role/level".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("org.unit.project:role/".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("org.unit.project:rolf".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("\"org.unit.project:role/level九\"".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess("\"org.unit.九\"".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("\"org.unit.九九\"".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("\"org.unit九\"".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess(access.compile("x&org.unit.project:role/level")));
+    assertFalse(evaluator.canAccess(access.compile("x&org.unit.project:role/leve")));
+
+    assertThrows(InvalidAuthorizationException.class, () -> access.newTrieEvaluator(Set.of("")));
+  }
+
   @Test
   public void testEmptyAuthorizations() {
     var access = Access.builder().build();
@@ -250,6 +435,676 @@ class AccessEvaluatorTest {
     assertEquals(Set.of("A", "B/C", "D\\E"), seenAuths);
     seenAuths.clear();
 
+    assertFalse(eval.canAccess((qa1 + "&" + qa2 + "&" + qa3).getBytes(UTF_8)));
+    assertEquals(Set.of("A", "B/C", "D\\E"), seenAuths);
+    seenAuths.clear();
+
+    var compiled = access.compile(qa1 + "&" + qa2 + "&" + qa3);
+    assertEquals(Set.of("A", "B/C", "D\\E"), seenAuths);
+    seenAuths.clear();
+    // evaluating a compiled expression should not validate authorizations again
+    assertFalse(eval.canAccess(compiled));
+    assertEquals(Set.of(), seenAuths);
+
+    var expression = access.newExpression(qa1 + "|" + qa2);
+    var parsed = access.newParsedExpression(qa1 + "|" + qa3);
+    assertEquals(Set.of("A", "B/C", "D\\E"), seenAuths);
+    seenAuths.clear();
+    // evaluating a validated expression should not validate authorizations again
+    for (int i = 0; i < 2; i++) {
+      assertTrue(eval.canAccess(expression));
+      assertTrue(eval.canAccess(parsed));
+      assertFalse(eval.canAccess(parsed.getChildren().get(1)));
+    }
+    assertEquals(Set.of(), seenAuths);
+    assertSame(expression.compile(), expression.compile());
+    assertSame(parsed.compile(), parsed.compile());
+  }
+
+  @Test
+  public void testCompiledShortCircuit() {
+    var access = Access.builder().build();
+    // Each of these expressions evaluates to the given result for the auths A and B, includes
+    // nested expressions that exercise jumping over sub expressions.
+    var expected = Map.ofEntries(entry("A&(C|(D&E))", false), entry("C|(D&E)|(A&B)", true),
+        entry("(C&(D|E))|A", true), entry("(A|C)&(B|D)&((E&F)|A)", true),
+        entry("((A&C)|(B&D))&E", false), entry("(((A|C)))&(((B)))", true),
+        entry("(A&B)|(C&D)|(E&F)", true), entry("(C&D)|(E&F)|(A&C)", false),
+        entry("A&A&(B|B)", true), entry("\"A\"&B", true), entry("", true));
+
+    List<String> seen = new ArrayList<>();
+    var evaluator = access.newEvaluator(auth -> {
+      seen.add(auth);
+      return auth.equals("A") || auth.equals("B");
+    });
+    var setEvaluator = access.newEvaluator(Set.of("A", "B"));
+    for (var testCase : expected.entrySet()) {
+      var expression = testCase.getKey();
+      boolean result = testCase.getValue();
+      var compiled = access.compile(expression);
+      assertEquals(expression, compiled.getExpression());
+      assertEquals(compiled, access.newExpression(expression).compile());
+      assertEquals(result, evaluator.canAccess(compiled), expression);
+      assertEquals(result, setEvaluator.canAccess(compiled), expression);
+      assertEquals(result, evaluator.canAccess(expression), expression);
+    }
+
+    // once an and expression is false or an or expression is true, the rest should not be checked
+    seen.clear();
+    assertFalse(evaluator.canAccess(access.compile("C&(A|B)&A")));
+    assertEquals(List.of("C"), seen);
+    seen.clear();
+    assertTrue(evaluator.canAccess(access.compile("(C&D)|A|(B&E)")));
+    assertEquals(List.of("C", "A"), seen);
+  }
+
+  @Test
+  public void testCachingEvaluator() {
+    var access = Access.builder().build();
+    var evaluated = new ArrayList<String>();
+    var evaluator = access.newCachingEvaluator(access.newEvaluator(auth -> {
+      evaluated.add(auth);
+      return auth.equals("A");
+    }), 2);
+    assertEquals(2, evaluator.getCapacity());
+
+    assertTrue(evaluator.canAccess("A"));
+    assertTrue(evaluator.canAccess("A"));
+    assertFalse(evaluator.canAccess("B"));
+    assertFalse(evaluator.canAccess("B"));
+    assertTrue(evaluator.canAccess(access.newExpression("A")));
+    assertEquals(List.of("A", "B"), evaluated);
+    assertEquals(3, evaluator.getHitCount());
+    assertEquals(2, evaluator.getMissCount());
+
+    // A and B were both used, so the clock should evict one of them and the cache should still
+    // give correct answers
+    assertTrue(evaluator.canAccess("A|C"));
+    assertTrue(evaluator.canAccess("A|C"));
+    assertFalse(evaluator.canAccess("B"));
+    assertTrue(evaluator.canAccess("A"));
+    assertEquals(5, evaluator.getHitCount());
+    assertEquals(4, evaluator.getMissCount());
+
+    // errors should not be cached
+    for (int i = 0; i < 2; i++) {
+      assertThrows(InvalidAccessExpressionException.class, () -> evaluator.canAccess("A&"));
+    }
+
+    assertThrows(IllegalArgumentException.class,
+        () -> access.newCachingEvaluator(access.newEvaluator(Set.of("A")), 0));
+    assertThrows(NullPointerException.class, () -> access.newCachingEvaluator(null, 10));
+  }
+
+  @Test
+  public void testAuthorizationDictionary() {
+    var access = Access.builder().build();
+    var dictionary = access.newAuthorizationDictionary();
+    assertEquals(0, dictionary.size());
+    assertEquals(-1, dictionary.getId("A"));
+
+    var evaluator1 = dictionary.newEvaluator(Set.of("A", "B"));
+    assertEquals(2, dictionary.size());
+    assertEquals(dictionary.getId("A"), dictionary.add("A"));
+    assertEquals(2, dictionary.size());
+
+    var expression = access.compile("A&C");
+    assertFalse(evaluator1.canAccess(expression));
+
+    // C was not in the dictionary when the expression was first evaluated, the compiled expression
+    // should see that it was added
+    var evaluator2 = dictionary.newEvaluator(Set.of("A", "C"));
+    assertEquals(3, dictionary.size());
+    assertTrue(evaluator2.canAccess(expression));
+    assertFalse(evaluator1.canAccess(expression));
+    assertTrue(evaluator2.canAccess("A&C"));
+    assertTrue(evaluator2.canAccess("A&C".getBytes(UTF_8)));
+
+    // evaluators only know about ids that existed when they were created, enough ids to need more
+    // than one word should not change this
+    for (int i = 0; i < 200; i++) {
+      dictionary.add("X" + i);
+    }
+    var evaluator3 = dictionary.newEvaluator(Set.of("X150", "\u4e5d"));
+    assertTrue(evaluator3.canAccess("X150|X20"));
+    assertFalse(evaluator3.canAccess("X150&X20"));
+    assertFalse(evaluator1.canAccess(access.compile("X150")));
+    assertTrue(evaluator3.canAccess(access.compile("X150&\"\u4e5d\"")));
+    assertTrue(evaluator3.canAccess("X150&\"\u4e5d\"".getBytes(UTF_8)));
+    assertFalse(evaluator3.canAccess(expression));
+
+    // an expression can be evaluated against different dictionaries
+    var evaluator4 = access.newAuthorizationDictionary().newEvaluator(Set.of("C", "A"));
+    assertTrue(evaluator4.canAccess(expression));
+    assertTrue(evaluator2.canAccess(expression));
+
+    assertThrows(InvalidAuthorizationException.class, () -> dictionary.add(""));
+    assertThrows(InvalidAuthorizationException.class,
+        () -> dictionary.newEvaluator(Set.of("A", "")));
+    assertThrows(InvalidAccessExpressionException.class, () -> evaluator1.canAccess("A&"));
+  }
+
+  @Test
+  public void testMultipleAuthorizationSets() {
+    var access = Access.builder().build();
+
+    // the superset {A,B,C} can not change any result and should be pruned
+    var evaluator = access.newEvaluator(
+        List.of(Set.of("A", "B", "C"), Set.of("A", "B"), Set.of("A", "D"), Set.of("A", "B")));
+    assertTrue(evaluator.canAccess("A"));
+    assertTrue(evaluator.canAccess("A&(B|D)"));
+    assertFalse(evaluator.canAccess("A&B"));
+    assertFalse(evaluator.canAccess("C"));
+    assertTrue(evaluator.canAccess(""));
+    assertTrue(evaluator.canAccess("(A|C)&(B|D|C)".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess(access.compile("B|D|C")));
+    assertFalse(evaluator.canAccess(access.compile("C|E")));
+    assertThrows(InvalidAccessExpressionException.class, () -> evaluator.canAccess("A|B&C"));
+    // authorizations must still be validated after the result is known
+    assertThrows(InvalidAccessExpressionException.class, () -> evaluator.canAccess("C&(A|B"));
+    assertThrows(InvalidAuthorizationException.class,
+        () -> access.newEvaluator(List.of(Set.of("A"), Set.of("A", ""))));
+
+    // more than 64 sets need more than one mask
+    var authSets = new ArrayList<Set<String>>();
+    for (int i = 0; i < 130; i++) {
+      authSets.add(Set.of("A", "X" + i));
+    }
+    var evaluator2 = access.newEvaluator(authSets);
+    assertTrue(evaluator2.canAccess("A"));
+    assertTrue(evaluator2.canAccess("A".getBytes(UTF_8)));
+    assertFalse(evaluator2.canAccess("A&X0"));
+    assertFalse(evaluator2.canAccess("X129"));
+    authSets.add(Set.of("B"));
+    var evaluator3 = access.newEvaluator(authSets);
+    assertFalse(evaluator3.canAccess("A"));
+    assertFalse(evaluator3.canAccess("A".getBytes(UTF_8)));
+    assertFalse(evaluator3.canAccess(access.compile("A")));
+    assertTrue(evaluator3.canAccess("A|B"));
+
+    // the sets take different jumps through a compiled expression and must all agree with parsing
+    var pool = List.of(Set.of("A", "B"), Set.of("A", "D"), Set.of("C", "E"), Set.of("B", "C", "F"),
+        Set.of("A", "B", "E", "F"));
+    var expressions = List.of("A&(C|(D&E))", "C|(D&E)|(A&B)", "(C&(D|E))|A",
+        "(A|C)&(B|D)&((E&F)|A)", "((A&C)|(B&D))&E", "(A&B)|(C&D)|(E&F)", "(C&D)|(E&F)|(A&C)",
+        "(A|C|F)&(B|E|D)", "((A|C)&(B|E))|((D|F)&C)", "A", "");
+    for (var set1 : pool) {
+      for (var set2 : pool) {
+        var multiEvaluator = access.newEvaluator(List.of(set1, set2));
+        for (var expression : expressions) {
+          boolean expected = access.newEvaluator(set1).canAccess(expression)
+              && access.newEvaluator(set2).canAccess(expression);
+          assertEquals(expected, multiEvaluator.canAccess(expression), expression);
+          assertEquals(expected, multiEvaluator.canAccess(access.compile(expression)), expression);
+        }
+      }
+    }
+
+    var evaluator4 = access.newEvaluator(List.of());
+    assertTrue(evaluator4.canAccess("A"));
+    assertThrows(InvalidAccessExpressionException.class, () -> evaluator4.canAccess("A&"));
+    assertTrue(evaluator4.canAccess(access.compile("A")));
+  }
+
+  @Test
+  public void testGroupEvaluator() throws Exception {
+    var access = Access.builder().build();
+
+    // compare the group evaluator to separate evaluators for each set of authorizations using every
+    // expression in the test data
+    var authSets = new ArrayList<Set<String>>();
+    var expressions = new ArrayList<String>();
+    for (var testSet : TestDataLoader.readTestData()) {
+      for (var auths : testSet.getAuths()) {
+        authSets.add(Set.of(auths));
+      }
+      for (var tests : testSet.getTests()) {
+        if (tests.getExpectedResult() != ExpectedResult.ERROR) {
+          expressions.addAll(List.of(tests.getExpressions()));
+        }
+      }
+    }
+    // use enough sets of authorizations to need many blocks of words
+    while (authSets.size() < 10_000) {
+      authSets.addAll(authSets.subList(0, Math.min(authSets.size(), 10_000 - authSets.size())));
+    }
+    authSets.set(9_999, Set.of());
+
+    var evaluators = authSets.stream().map(access::newEvaluator).collect(Collectors.toList());
+    var groupEvaluator = access.newGroupEvaluator(authSets);
+    assertEquals(10_000, groupEvaluator.size());
+    var allBitSets = groupEvaluator.whoCanAccess(expressions);
+    assertEquals(expressions.size(), allBitSets.size());
+    for (int e = 0; e < expressions.size(); e++) {
+      var expected = new BitSet();
+      for (int i = 0; i < evaluators.size(); i++) {
+        if (evaluators.get(i).canAccess(expressions.get(e))) {
+          expected.set(i);
+        }
+      }
+      assertEquals(expected, allBitSets.get(e), expressions.get(e));
+      if (e % 100 == 0) {
+        assertEquals(expected, groupEvaluator.whoCanAccess(expressions.get(e)), expressions.get(e));
+      }
+    }
+
+    var small = access.newGroupEvaluator(List.of(Set.of("A"), Set.of("B"), Set.of("A", "B")));
+    assertEquals(BitSet.valueOf(new long[] {0b101}), small.whoCanAccess("A"));
+    assertEquals(BitSet.valueOf(new long[] {0b110}), small.whoCanAccess("B|(A&B)"));
+    assertEquals(BitSet.valueOf(new long[] {0b111}), small.whoCanAccess(""));
+    assertEquals(new BitSet(), small.whoCanAccess("C|(A&B&C)"));
+    assertEquals(List.of(), small.whoCanAccess(List.of()));
+    assertThrows(InvalidAccessExpressionException.class, () -> small.whoCanAccess("A|B&C"));
+    assertThrows(InvalidAccessExpressionException.class,
+        () -> small.whoCanAccess(List.of("A", "(A")));
+    assertThrows(InvalidAuthorizationException.class,
+        () -> access.newGroupEvaluator(List.of(Set.of("A"), Set.of(""))));
+    assertEquals(new BitSet(), access.newGroupEvaluator(List.of()).whoCanAccess("A|B"));
+  }
+
+  @Test
+  public void testReentrantEvaluation() {
+    var access = Access.builder().build();
+    // the predicate evaluates other expressions while the outer expression is being parsed
+    var inner = access.newEvaluator(Set.of("A", "B"));
+    var evaluator = access.newEvaluator(auth -> inner.canAccess(auth + "|(B&C)"));
+    assertTrue(evaluator.canAccess("A&(B|C)"));
+    assertFalse(evaluator.canAccess("A&C"));
+    assertTrue(evaluator.canAccess("(A&C)|(B&A)".getBytes(UTF_8)));
+    assertEquals("A&(B|C)", access.newParsedExpression("A&(B|C)").getExpression());
+  }
+
+  @Test
+  public void testLargeExpression() {
+    var access = Access.builder().build();
+    var evaluator = access.newEvaluator(Set.of("A999"));
+    // larger than the buffers that are kept after parsing
+    var expression = Stream.iterate(0, i -> i + 1).limit(5000).map(i -> "A" + i)
+        .collect(Collectors.joining("|"));
+    assertTrue(expression.length() > ParseContext.MAX_RETAINED_CAPACITY);
+    assertTrue(evaluator.canAccess(expression));
+    assertFalse(evaluator.canAccess(expression.replace("A999|", "")));
+    assertTrue(evaluator.canAccess("A999"));
+    assertFalse(evaluator.canAccess("A99"));
+  }
+
+  @Test
+  public void testVirtualThreads() throws Exception {
+    ExecutorService executor;
+    try {
+      // virtual threads do not exist in Java 17
+      executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (NoSuchMethodException e) {
+      executor = null;
+    }
+    assumeTrue(executor != null, "virtual threads are not supported");
+
+    var access = Access.builder().build();
+    var evaluator = access.newEvaluator(Set.of("A", "B"));
+    var futures = new ArrayList<Future<Boolean>>();
+    try {
+      for (int i = 0; i < 1000; i++) {
+        var expression = i % 2 == 0 ? "A&(B|C" + i + ")" : "A&C" + i;
+        futures.add(executor.submit(() -> ParseContext.isVirtual(Thread.currentThread())
+            && evaluator.canAccess(expression) && evaluator.canAccess(access.compile(expression))
+            && evaluator.canAccess(expression.getBytes(UTF_8))));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals(i % 2 == 0, futures.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testMemoizingEvaluator() throws Exception {
+    var access = Access.builder().build();
+    var authorized = new ArrayList<String>();
+    var evaluator = access.newMemoizingEvaluator(auth -> {
+      authorized.add(auth);
+      return auth.equals("A") || auth.equals("九");
+    }, 2);
+    assertEquals(2, evaluator.getCapacity());
+
+    assertTrue(evaluator.canAccess("A&(B|A)"));
+    assertFalse(evaluator.canAccess("B&A"));
+    assertTrue(evaluator.canAccess(access.compile("B|A")));
+    assertEquals(List.of("A", "B"), authorized);
+    assertEquals(4, evaluator.getHitCount());
+    assertEquals(2, evaluator.getMissCount());
+    // authorizations from UTF-8 bytes are cached separately, without decoding them
+    assertTrue(evaluator.canAccess("A".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess("A|B".getBytes(UTF_8)));
+    assertFalse(evaluator.canAccess("B&A".getBytes(UTF_8)));
+    assertEquals(List.of("A", "B", "A", "B"), authorized);
+    assertEquals(5, evaluator.getHitCount());
+    assertEquals(4, evaluator.getMissCount());
+    authorized.subList(2, 4).clear();
+
+    // the cache is full so one of A or B will be evicted, and the decisions should still be correct
+    assertTrue(evaluator.canAccess("\"九\"&A"));
+    assertTrue(evaluator.canAccess("\"九\"&A"));
+    assertFalse(evaluator.canAccess("B&A"));
+    assertFalse(evaluator.canAccess("C"));
+    assertEquals("九", authorized.get(2));
+    assertEquals(authorized.size() + 2, evaluator.getMissCount());
+
+    assertThrows(InvalidAccessExpressionException.class, () -> evaluator.canAccess("A&"));
+
+    // decisions should be forgotten after the time to live, time is faked so the test can not be
+    // affected by a slow machine
+    authorized.clear();
+    var now = new AtomicLong();
+    var expiring = new MemoizingAccessEvaluatorImpl(auth -> {
+      authorized.add(auth);
+      return true;
+    }, 10, 50, now::get, AuthorizationValidator.DEFAULT, ParseOptions.NONE);
+    assertTrue(expiring.canAccess("A&B"));
+    now.set(49);
+    assertTrue(expiring.canAccess("A&B"));
+    assertTrue(expiring.canAccess("A&B".getBytes(UTF_8)));
+    assertEquals(List.of("A", "B", "A", "B"), authorized);
+    now.set(50);
+    assertTrue(expiring.canAccess("A&B"));
+    assertEquals(List.of("A", "B", "A", "B", "A", "B"), authorized);
+    now.set(98);
+    assertTrue(expiring.canAccess("A&B".getBytes(UTF_8)));
+    assertEquals(6, authorized.size());
+    now.set(99);
+    assertTrue(expiring.canAccess("A&B".getBytes(UTF_8)));
+    assertEquals(8, authorized.size());
+    assertEquals(4, expiring.getHitCount());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> access.newMemoizingEvaluator(auth -> true, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> access.newMemoizingEvaluator(auth -> true, 10, Duration.ZERO));
+    assertThrows(NullPointerException.class, () -> access.newMemoizingEvaluator(null, 10));
+    assertTrue(access.newMemoizingEvaluator(auth -> true, 10, Duration.ofSeconds(Long.MAX_VALUE))
+        .canAccess("A"));
+  }
+
+  @Test
+  public void testBulkEvaluator() throws Exception {
+    var access = Access.builder().build();
+    var requests = new ArrayList<Set<String>>();
+    var executor = Executors.newFixedThreadPool(2);
+    try {
+      // a stub for a remote service that authorizes A and B
+      var evaluator = access.newBulkEvaluator(auths -> {
+        synchronized (requests) {
+          requests.add(auths);
+        }
+        return CompletableFuture.supplyAsync(() -> auths.stream()
+            .filter(auth -> auth.equals("A") || auth.equals("B")).collect(Collectors.toSet()));
+      }, executor);
+
+      assertEquals(List.of(true, false, true, true, false),
+          evaluator.canAccess(List.of("A&B", "A&C", "(A&C)|B", "", "\"C\"|(D&A)")).get());
+      assertEquals(List.of(Set.of("A", "B", "C", "D")), requests);
+
+      assertTrue(evaluator.canAccess("A|B").get());
+      assertEquals(Set.of("A", "B"), requests.get(1));
+
+      // no authorizations means no call to the authorizer
+      assertEquals(List.of(true), evaluator.canAccess(List.of("")).get());
+      assertEquals(2, requests.size());
+
+      // invalid expressions should fail before calling the authorizer
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> evaluator.canAccess(List.of("A", "A&")));
+      assertEquals(2, requests.size());
+
+      // many batches at once
+      var futures = new ArrayList<CompletableFuture<List<Boolean>>>();
+      for (int i = 0; i < 100; i++) {
+        futures.add(evaluator.canAccess(List.of("A&X" + i, "B|X" + i), Duration.ofSeconds(30)));
+      }
+      for (var future : futures) {
+        assertEquals(List.of(false, true), future.get());
+      }
+
+      // an authorizer that never responds should time out and be cancelled
+      var neverCompletes = new CompletableFuture<Set<String>>();
+      var slowEvaluator = access.newBulkEvaluator(auths -> neverCompletes, executor);
+      var timedOut = slowEvaluator.canAccess(List.of("A"), Duration.ofMillis(10));
+      var exception = assertThrows(ExecutionException.class, timedOut::get);
+      assertTrue(exception.getCause() instanceof TimeoutException);
+      assertTrue(neverCompletes.isCancelled());
+
+      // failures of the authorizer should be passed to the caller
+      var failingEvaluator = access.newBulkEvaluator(
+          auths -> CompletableFuture.failedFuture(new IllegalStateException("down")), executor);
+      exception = assertThrows(ExecutionException.class, failingEvaluator.canAccess("A")::get);
+      assertTrue(exception.getCause() instanceof IllegalStateException);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    var metrics = JmxAccessMetrics.register("AccessEvaluatorTest");
+    var server = ManagementFactory.getPlatformMBeanServer();
+    var name = new ObjectName(
+        "org.apache.accumulo.access:type=AccessMetrics,name=".concat(metrics.getName()));
+    try {
+      var access = Access.builder().metrics(metrics).maxExpressionLength(100).build();
+      var evaluator = access.newEvaluator(Set.of("A", "B"));
+
+      assertTrue(evaluator.canAccess("A&B"));
+      // once C is not authorized, A and B are only validated
+      assertFalse(evaluator.canAccess("C&(A|B)"));
+      // compiling parses the expression, then A is the only lookup
+      assertTrue(evaluator.canAccess(access.compile("A|C")));
+      access.validateExpression("(A|B)&C");
+
+      assertThrows(InvalidAccessExpressionException.class, () -> evaluator.canAccess("\"\""));
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> access.validateExpression("A&B|C"));
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> access.validateExpression("A".repeat(101)));
+      assertFalse(access.check("A&").isValid());
+
+      assertEquals(3, metrics.getEvaluatedExpressions());
+      assertEquals(2, metrics.getAccessibleExpressions());
+      assertEquals(7, metrics.getEvaluatedAuthorizations());
+      assertEquals(4, metrics.getAuthorizationLookups());
+      assertEquals(2, metrics.getParsedExpressions());
+      assertEquals(4, metrics.getRejectedExpressions());
+      var byReason = metrics.getRejectedExpressionsByReason();
+      assertEquals(1, byReason.get(ErrorKind.EMPTY_QUOTED_AUTHORIZATION.name()));
+      assertEquals(1, byReason.get(ErrorKind.MIXED_OPERATORS.name()));
+      assertEquals(1, byReason.get(ErrorKind.MAX_LENGTH_EXCEEDED.name()));
+      assertEquals(1, byReason.get(ErrorKind.UNEXPECTED_END.name()));
+      assertEquals(1 - 4.0 / 7, metrics.getShortCircuitRate(), 1e-9);
+
+      // the metrics are published per instance using JMX
+      assertEquals(3L, server.getAttribute(name, "EvaluatedExpressions"));
+      assertEquals(4L, server.getAttribute(name, "AuthorizationLookups"));
+
+      // a compiled expression is evaluated once for all the sets of authorizations
+      var multiEvaluator = access.newEvaluator(List.of(Set.of("A"), Set.of("B"), Set.of("C")));
+      assertTrue(multiEvaluator.canAccess(access.compile("A|B|C")));
+      assertEquals(4, metrics.getEvaluatedExpressions());
+      assertEquals(3, metrics.getAccessibleExpressions());
+      assertEquals(7, metrics.getAuthorizationLookups());
+      assertThrows(IllegalStateException.class,
+          () -> JmxAccessMetrics.register("AccessEvaluatorTest"));
+    } finally {
+      metrics.close();
+    }
+    assertFalse(server.isRegistered(name));
+    // closing again does nothing
+    metrics.close();
+    assertThrows(IllegalArgumentException.class, () -> JmxAccessMetrics.register("a,b=c"));
+  }
+
+  @Test
+  public void testFlightRecorderEvents() throws Exception {
+    var file = Files.createTempFile("access", ".jfr");
+    try (var recording = new Recording()) {
+      recording.enable("org.apache.accumulo.access.Evaluation").withThreshold(Duration.ZERO);
+      recording.enable("org.apache.accumulo.access.ValidationFailure");
+      recording.enable("org.apache.accumulo.access.EvaluatorCreation");
+      recording.start();
+
+      var access = Access.builder().build();
+      var evaluator = access.newEvaluator(Set.of("A", "B"));
+      // A and B are looked up, C, D, and E are short circuited
+      assertTrue(evaluator.canAccess("(A|C)&(B|(D&E))"));
+      assertFalse(evaluator.canAccess(access.compile("C&(A|B)")));
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> access.validateExpression("A&B|C"));
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    try {
+      var events = RecordingFile.readAllEvents(file).stream()
+          .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+      var created = events.get("org.apache.accumulo.access.EvaluatorCreation");
+      assertEquals(1, created.size());
+      assertEquals("AccessEvaluatorImpl", created.get(0).getString("evaluator"));
+      assertEquals(2, created.get(0).getInt("authorizations"));
+
+      var evaluated = events.get("org.apache.accumulo.access.Evaluation");
+      assertEquals(2, evaluated.size());
+      var parsed = evaluated.stream().filter(event -> !event.getBoolean("compiled")).findFirst()
+          .orElseThrow();
+      assertEquals(15, parsed.getInt("length"));
+      assertEquals(2, parsed.getInt("depth"));
+      assertEquals(5, parsed.getInt("authorizations"));
+      assertEquals(2, parsed.getInt("lookups"));
+      assertTrue(parsed.getBoolean("accessible"));
+      var compiled = evaluated.stream().filter(event -> event.getBoolean("compiled")).findFirst()
+          .orElseThrow();
+      assertEquals(1, compiled.getInt("depth"));
+      assertEquals(3, compiled.getInt("authorizations"));
+      assertEquals(1, compiled.getInt("lookups"));
+      assertFalse(compiled.getBoolean("accessible"));
+
+      var failed = events.get("org.apache.accumulo.access.ValidationFailure");
+      assertEquals(1, failed.size());
+      assertEquals(ErrorKind.MIXED_OPERATORS.name(), failed.get(0).getString("reason"));
+      assertEquals(5, failed.get(0).getInt("length"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testSamplingEvaluator() {
+    var access = Access.builder().build();
+    var evaluator = access.newSamplingEvaluator(access.newEvaluator(Set.of("A", "B")), 3, 1);
+    assertEquals(3, evaluator.getCapacity());
+    assertEquals(1, evaluator.getSampleInterval());
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(evaluator.canAccess("A"));
+    }
+    assertTrue(evaluator.canAccess("A".getBytes(UTF_8)));
+    assertTrue(evaluator.canAccess(access.compile("A")));
+    for (int i = 0; i < 3; i++) {
+      assertTrue(evaluator.canAccess("B"));
+    }
+    assertTrue(evaluator.canAccess("A&B"));
+    // there is no space for C, so it replaces A&B and inherits its count
+    assertFalse(evaluator.canAccess("C"));
+
+    var mostFrequent = evaluator.getMostFrequent();
+    assertEquals(List.of("A", "B", "C"),
+        mostFrequent.stream().map(sample -> sample.getExpression()).collect(Collectors.toList()));
+    assertEquals(List.of(7L, 3L, 2L),
+        mostFrequent.stream().map(sample -> sample.getCount()).collect(Collectors.toList()));
+    assertEquals(List.of(0L, 0L, 1L),
+        mostFrequent.stream().map(sample -> sample.getError()).collect(Collectors.toList()));
+    assertTrue(mostFrequent.get(0).getNanos() > 0);
+    var mostExpensive = evaluator.getMostExpensive();
+    assertEquals(3, mostExpensive.size());
+    for (int i = 1; i < mostExpensive.size(); i++) {
+      assertTrue(mostExpensive.get(i - 1).getNanos() >= mostExpensive.get(i).getNanos());
+    }
+
+    evaluator.reset();
+    assertTrue(evaluator.getMostFrequent().isEmpty());
+    assertTrue(evaluator.getMostExpensive().isEmpty());
+
+    // counts are scaled by the sample interval
+    var sampled = access.newSamplingEvaluator(access.newEvaluator(Set.of("A")), 10, 100);
+    for (int i = 0; i < 10_000; i++) {
+      sampled.canAccess("A|B");
+    }
+    var samples = sampled.getMostFrequent();
+    assertEquals(1, samples.size());
+    assertEquals(0, samples.get(0).getCount() % 100);
+    assertTrue(samples.get(0).getCount() > 5_000 && samples.get(0).getCount() < 20_000);
+
+    assertThrows(InvalidAccessExpressionException.class, () -> sampled.canAccess("A&|B"));
+    assertThrows(IllegalArgumentException.class,
+        () -> access.newSamplingEvaluator(access.newEvaluator(Set.of("A")), 0, 1));
+    assertThrows(IllegalArgumentException.class,
+        () -> access.newSamplingEvaluator(access.newEvaluator(Set.of("A")), 1, 0));
+    assertThrows(NullPointerException.class, () -> access.newSamplingEvaluator(null, 1, 1));
+  }
+
+  @Test
+  public void testSpaceSaving() {
+    // A skewed stream where a few keys are heavy and many keys are seen a few times. Only keys
+    // heavier than the total weight divided by the capacity are guaranteed to be kept.
+    var random = new SplittableRandom(42);
+    var counts = new HashMap<String,Long>();
+    var nanos = new HashMap<String,Long>();
+    var byCount = new SpaceSaving(32, false);
+    var byNanos = new SpaceSaving(32, true);
+    int total = 100_000;
+    for (int i = 0; i < total; i++) {
+      var key = random.nextInt(2) == 0 ? "K" + random.nextInt(5) : "R" + random.nextInt(10_000);
+      long time = random.nextLong(1, 1000);
+      counts.merge(key, 1L, Long::sum);
+      nanos.merge(key, time, Long::sum);
+      byCount.add(key, time);
+      byNanos.add(key, time);
+    }
+
+    for (var sketch : List.of(byCount, byNanos)) {
+      var entries = sketch.entries();
+      assertEquals(32, entries.size());
+      long totalCount = 0;
+      for (var entry : entries) {
+        totalCount += entry.count;
+      }
+      // every kept count includes all the evaluations of its key since it was last added
+      assertEquals(total, totalCount);
+    }
+
+    // the heavy keys are kept and their counts are over estimated by at most their error
+    var kept = byCount.entries();
+    for (int i = 0; i < 5; i++) {
+      var entry = kept.get(i);
+      assertTrue(entry.key.startsWith("K"), entry.key);
+      long actual = counts.get(entry.key);
+      assertTrue(entry.count >= actual && entry.count - entry.error <= actual, entry.key);
+    }
+    for (int i = 1; i < kept.size(); i++) {
+      assertTrue(kept.get(i - 1).count >= kept.get(i).count);
+    }
+    var expensive = byNanos.entries();
+    for (int i = 0; i < 5; i++) {
+      var entry = expensive.get(i);
+      assertTrue(entry.key.startsWith("K"), entry.key);
+      long actual = nanos.get(entry.key);
+      assertTrue(entry.nanos >= actual && entry.nanos - entry.error <= actual, entry.key);
+    }
+
+    byCount.clear();
+    assertTrue(byCount.entries().isEmpty());
+    byCount.add("A", 1);
+    assertEquals(1, byCount.entries().get(0).count);
   }
 
   // TODO need to copy all test from Accumulo
@@ -20,9 +20,11 @@ package org.apache.accumulo.access.impl;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -31,8 +33,12 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -40,7 +46,10 @@ import org.apache.accumulo.access.Access;
 import org.apache.accumulo.access.AccessExpression;
 import org.apache.accumulo.access.AuthorizationValidator;
 import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.InvalidAuthorizationException;
 import org.apache.accumulo.access.ParsedAccessExpression;
+import org.apache.accumulo.access.ValidationResult;
+import org.apache.accumulo.access.ValidationResult.ErrorKind;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
@@ -89,6 +98,15 @@ class AccessExpressionTest {
     checkError(() -> access.validateExpression(expression), expected, index);
     checkError(() -> access.newExpression(expression), expected, index);
     checkError(() -> access.newParsedExpression(expression), expected, index);
+    checkError(() -> access.compile(expression), expected, index);
+    byte[] bytes = expression.getBytes(UTF_8);
+    checkError(() -> access.validateExpression(bytes, 0, bytes.length), expected, index);
+
+    var result = access.check(expression);
+    assertFalse(result.isValid(), expression);
+    assertEquals(index, result.getIndex(), expression);
+    assertFalse(access.check(bytes, 0, bytes.length, result), expression);
+    assertEquals(index, result.getIndex(), expression);
   }
 
   void checkError(Executable executable, String expected, int index) {
@@ -132,6 +150,246 @@ class AccessExpressionTest {
     checkError("ERR&\"\\9\"", "Invalid escaping within quotes", 5);
   }
 
+  private static void assertCheck(Access access, ValidationResult result, String expression,
+      ErrorKind kind, int index) {
+    assertEquals(kind == null, access.check(expression, result), expression);
+    assertEquals(kind, result.getErrorKind(), expression);
+    assertEquals(index, result.getIndex(), expression);
+
+    // check the expression as bytes in the middle of a larger array
+    byte[] bytes = ("##" + expression + "##").getBytes(UTF_8);
+    int length = expression.getBytes(UTF_8).length;
+    assertEquals(kind == null, access.check(bytes, 2, length, result), expression);
+    assertEquals(kind, result.getErrorKind(), expression);
+    assertEquals(index, result.getIndex(), expression);
+  }
+
+  @Test
+  public void testCheck() {
+    var access = Access.builder().build();
+    var result = access.newValidationResult();
+
+    assertCheck(access, result, "", null, -1);
+    assertCheck(access, result, "A&(B|\"C\\\"D\")", null, -1);
+    assertCheck(access, result, "a|b&c", ErrorKind.MIXED_OPERATORS, 3);
+    assertCheck(access, result, "((a|b)", ErrorKind.UNEXPECTED_END, 6);
+    assertCheck(access, result, "a&", ErrorKind.UNEXPECTED_END, 2);
+    assertCheck(access, result, "((a|b)~", ErrorKind.UNEXPECTED_CHARACTER, 6);
+    assertCheck(access, result, "a|b#", ErrorKind.UNEXPECTED_CHARACTER, 3);
+    assertCheck(access, result, "A&\"\"", ErrorKind.EMPTY_QUOTED_AUTHORIZATION, 2);
+    assertCheck(access, result, "A&\"B", ErrorKind.UNCLOSED_QUOTE, 2);
+    assertCheck(access, result, "ERR&\"\\9\"", ErrorKind.INVALID_ESCAPE, 5);
+    assertCheck(access, result, "A|\"\u0001\"", ErrorKind.INVALID_AUTHORIZATION, 2);
+    // the result is reused, so a valid expression clears the previous error
+    assertCheck(access, result, "A|B", null, -1);
+
+    // the index of multibyte characters is a char index for strings and a byte index for bytes
+    assertFalse(access.check("\"九\"&#", result));
+    assertEquals(4, result.getIndex());
+    byte[] bytes = "\"九\"&#".getBytes(UTF_8);
+    assertFalse(access.check(bytes, 0, bytes.length, result));
+    assertEquals(6, result.getIndex());
+
+    var strict = Access.builder()
+        .authorizationValidator((auth, chars) -> !auth.toString().startsWith("X")).build();
+    assertCheck(strict, result, "A&(B|XY)", ErrorKind.INVALID_AUTHORIZATION, 5);
+    assertCheck(strict, result, "A&(B|\"X\")", ErrorKind.INVALID_AUTHORIZATION, 5);
+
+    var newResult = access.check("A&B");
+    assertTrue(newResult.isValid());
+    assertNull(newResult.getErrorKind());
+    assertEquals(-1, newResult.getIndex());
+
+    assertThrows(NullPointerException.class, () -> access.check(null, result));
+    assertThrows(NullPointerException.class, () -> access.check("A", null));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> access.check(bytes, 1, bytes.length, result));
+  }
+
+  @Test
+  public void testStacklessExceptions() {
+    var e1 = new InvalidAccessExpressionException("Unclosed quote", "\"A", 0, false);
+    assertEquals(0, e1.getStackTrace().length);
+    assertEquals(0, e1.getIndex());
+    assertEquals("\"A", e1.getPattern());
+    assertTrue(e1.getMessage().contains("Unclosed quote"));
+    assertTrue(
+        new InvalidAccessExpressionException("Unclosed quote", "\"A", 0).getStackTrace().length
+            > 0);
+
+    var e2 = new InvalidAuthorizationException("\u0001", "invalid characters", false);
+    assertEquals(0, e2.getStackTrace().length);
+    assertTrue(e2.getMessage().contains("invalid characters"));
+    assertTrue(new InvalidAuthorizationException("\u0001", "invalid characters", true)
+        .getStackTrace().length > 0);
+  }
+
+  @Test
+  public void testValidationMatchesParsing() {
+    // validation only parses an expression again when it is not valid, so compare it to parsing
+    // for many small expressions made of the chars that matter to the grammar
+    var access = Access.builder().maxExpressionDepth(2).build();
+    var chars = "AB\"\\&|()#\u00e9\u0001";
+    var random = new SplittableRandom(42);
+    for (int i = 0; i < 20_000; i++) {
+      var sb = new StringBuilder();
+      int len = random.nextInt(1, 10);
+      for (int c = 0; c < len; c++) {
+        sb.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      var exp = sb.toString();
+      var bytes = ("#" + exp).getBytes(UTF_8);
+
+      RuntimeException expected = null;
+      try {
+        access.newParsedExpression(exp);
+      } catch (InvalidAccessExpressionException | InvalidAuthorizationException e) {
+        expected = e;
+      }
+      if (expected == null) {
+        assertDoesNotThrow(() -> access.validateExpression(exp), exp);
+        assertDoesNotThrow(() -> access.validateExpression(bytes, 1, bytes.length - 1), exp);
+      } else {
+        var actual = assertThrows(expected.getClass(), () -> access.validateExpression(exp), exp);
+        assertEquals(expected.getMessage(), actual.getMessage(), exp);
+        // the offsets in errors for bytes count bytes, so compare to checking the bytes
+        var result = access.newValidationResult();
+        assertFalse(access.check(bytes, 1, bytes.length - 1, result), exp);
+        actual = assertThrows(expected.getClass(),
+            () -> access.validateExpression(bytes, 1, bytes.length - 1), exp);
+        if (actual instanceof InvalidAccessExpressionException) {
+          assertEquals(result.getIndex(), ((InvalidAccessExpressionException) actual).getIndex(),
+              exp);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testValidationCallsCustomValidator() {
+    var seen = new ArrayList<String>();
+    var access = Access.builder().authorizationValidator((auth, quoting) -> {
+      seen.add(auth + ":" + quoting);
+      return !auth.toString().equals("X");
+    }).build();
+    access.validateExpression("A&(\"B\"|C)");
+    assertEquals(List.of("A:BASIC", "B:ANY", "C:BASIC"), seen);
+    seen.clear();
+    access.validateExpression("A&(\"B\"|C)".getBytes(UTF_8), 0, 9);
+    assertEquals(List.of("A:BASIC", "B:ANY", "C:BASIC"), seen);
+    assertThrows(InvalidAuthorizationException.class, () -> access.validateExpression("A|X"));
+    assertThrows(InvalidAuthorizationException.class,
+        () -> access.validateExpression("A|X".getBytes(UTF_8), 0, 3));
+  }
+
+  @Test
+  public void testDeeplyNested() {
+    // parsing and evaluating do not recurse, so this should not overflow the stack
+    int depth = 100_000;
+    var exp = "(".repeat(depth) + "A&\"B\"".concat(")".repeat(depth)) + "|C";
+    var access = Access.builder().build();
+
+    access.validateExpression(exp);
+    access.validateExpression(exp.getBytes(UTF_8), 0, exp.length());
+    assertTrue(access.check(exp).isValid());
+
+    var auths = new HashSet<String>();
+    access.findAuthorizations(exp, auths::add);
+    assertEquals(Set.of("A", "B", "C"), auths);
+
+    assertTrue(access.newEvaluator(Set.of("A", "B")).canAccess(exp));
+    assertTrue(access.newEvaluator(Set.of("C")).canAccess(exp.getBytes(UTF_8), 0, exp.length()));
+    assertFalse(access.newEvaluator(Set.of("A")).canAccess(exp));
+    var multi = access.newEvaluator(List.of(Set.of("A", "B", "D"), Set.of("B", "C")));
+    assertTrue(multi.canAccess(exp));
+    multi = access.newEvaluator(List.of(Set.of("A", "B"), Set.of("A")));
+    assertFalse(multi.canAccess(exp));
+
+    // compiling does not recurse either
+    assertTrue(access.newEvaluator(Set.of("A", "B")).canAccess(access.newExpression(exp)));
+    assertFalse(access.newEvaluator(Set.of("A")).canAccess(access.compile(exp)));
+    var group = access.newGroupEvaluator(List.of(Set.of("A", "B"), Set.of("A"), Set.of("C")));
+    assertEquals(BitSet.valueOf(new long[] {0b101}), group.whoCanAccess(exp));
+    var bulk = access.newBulkEvaluator(requested -> CompletableFuture.completedFuture(Set.of("C")),
+        Runnable::run);
+    assertEquals(List.of(true), bulk.canAccess(List.of(exp)).join());
+
+    var parsed = access.newParsedExpression(exp);
+    assertEquals(ParsedAccessExpression.ExpressionType.OR, parsed.getType());
+    var and = parsed.getChildren().get(0);
+    assertEquals(ParsedAccessExpression.ExpressionType.AND, and.getType());
+    assertEquals("A&\"B\"", and.getExpression());
+    assertEquals("C", parsed.getChildren().get(1).getExpression());
+
+    // an unclosed paren at the bottom is found after all the opening parens
+    var unclosed = "(".repeat(depth) + "A".concat(")".repeat(depth - 1));
+    var e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression(unclosed));
+    assertEquals(unclosed.length(), e.getIndex());
+  }
+
+  @Test
+  public void testLimits() {
+    var access = Access.builder().maxExpressionDepth(2).maxExpressionLength(10).build();
+
+    access.validateExpression("((A|B)&C)");
+    access.validateExpression("A&B&C&D&E");
+    assertTrue(access.newEvaluator(Set.of("A", "C")).canAccess("((A|B)&C)"));
+
+    var e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression("(((A)))"));
+    assertEquals(2, e.getIndex());
+    assertTrue(e.getMessage().contains("maximum depth of 2"), e::getMessage);
+    for (Executable executable : List.<Executable>of(
+        () -> access.newExpression("(((A)))").getExpression(),
+        () -> access.newParsedExpression("(((A)))"), () -> access.compile("(((A)))"),
+        () -> access.findAuthorizations("(((A)))", auth -> {}),
+        () -> access.newEvaluator(Set.of("A")).canAccess("(((A)))"),
+        () -> access.newEvaluator(Set.of("A")).canAccess("(((A)))".getBytes(UTF_8), 0, 7),
+        () -> access.newTrieEvaluator(Set.of("A")).canAccess("(((A)))"),
+        () -> access.newEvaluator(List.of(Set.of("A"), Set.of("B"))).canAccess("(((A)))"),
+        () -> access.newGroupEvaluator(List.of(Set.of("A"))).whoCanAccess("(((A)))"))) {
+      assertEquals(2, assertThrows(InvalidAccessExpressionException.class, executable).getIndex());
+    }
+
+    e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression("A&B&C&D&E&F"));
+    assertEquals(10, e.getIndex());
+    assertTrue(e.getMessage().contains("maximum length of 10"), e::getMessage);
+    e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression("A&B&C&D&E&F".getBytes(UTF_8), 0, 11));
+    assertEquals(10, e.getIndex());
+    assertEquals("A&B&C&D&E&F", e.getPattern());
+    assertThrows(InvalidAccessExpressionException.class,
+        () -> access.newEvaluator(Set.of("A")).canAccess("A&B&C&D&E&F"));
+    // only the start of a large expression is put in the exception
+    var large = "九".repeat(100_000);
+    e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression(large));
+    assertEquals("九".repeat(64).concat("..."), e.getPattern());
+    e = assertThrows(InvalidAccessExpressionException.class,
+        () -> access.validateExpression(large.getBytes(UTF_8), 0, 300_000));
+    assertEquals("九".repeat(21).concat("..."), e.getPattern());
+    assertTrue(e.getMessage().contains("Length 300000 is longer"), e::getMessage);
+
+    var result = access.check("(((A)))");
+    assertEquals(ErrorKind.MAX_DEPTH_EXCEEDED, result.getErrorKind());
+    assertEquals(2, result.getIndex());
+    result = access.check("A&B&C&D&E&F");
+    assertEquals(ErrorKind.MAX_LENGTH_EXCEEDED, result.getErrorKind());
+    assertEquals(10, result.getIndex());
+    assertFalse(access.check("A&B&C&D&E&F".getBytes(UTF_8), 0, 11, result));
+    assertEquals(ErrorKind.MAX_LENGTH_EXCEEDED, result.getErrorKind());
+
+    // a depth of zero allows no parentheses
+    var flat = Access.builder().maxExpressionDepth(0).build();
+    flat.validateExpression("A&B");
+    assertThrows(InvalidAccessExpressionException.class, () -> flat.validateExpression("(A)"));
+
+    assertThrows(IllegalArgumentException.class, () -> Access.builder().maxExpressionDepth(-1));
+    assertThrows(IllegalArgumentException.class, () -> Access.builder().maxExpressionLength(-1));
+  }
+
   @Test
   public void testEqualsHashcode() {
     var access = Access.builder().build();
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.it;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.BulkAccessEvaluator;
+import org.apache.accumulo.access.GroupAccessEvaluator;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.apache.accumulo.access.testdata.AdversarialExpressions;
+import org.apache.accumulo.access.testdata.AdversarialExpressions.Kind;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that hostile expressions from {@link AdversarialExpressions} are handled correctly and in
+ * time linear in their length. The time for an expression that is sixteen times longer should be
+ * about sixteen times more, if parsing were quadratic it would be 256 times more. The bound allows
+ * for noise and for the longer expression not fitting in a CPU cache.
+ */
+public class AdversarialExpressionIT {
+
+  private static final int SHORT_LENGTH = 20_000;
+  private static final int LONG_LENGTH = SHORT_LENGTH * 16;
+  private static final double MAX_GROWTH = 16 * 4;
+  private static final int ROUNDS = 10;
+
+  private final Access access = Access.builder().build();
+  private final AccessEvaluator evaluator = access.newEvaluator(Set.of("a", "a0"));
+
+  private void parseAll(Kind kind, String expression) {
+    List<Runnable> operations = new ArrayList<>();
+    Consumer<String> ignore = auth -> {};
+    GroupAccessEvaluator groupEvaluator =
+        access.newGroupEvaluator(List.of(Set.of("a"), Set.of("a0")));
+    BulkAccessEvaluator bulkEvaluator =
+        access.newBulkEvaluator(auths -> CompletableFuture.completedFuture(auths), Runnable::run);
+    operations.add(() -> access.validateExpression(expression));
+    operations.add(() -> evaluator.canAccess(expression));
+    operations.add(() -> access.newParsedExpression(expression));
+    operations.add(() -> access.findAuthorizations(expression, ignore));
+    operations.add(() -> evaluator.canAccess(access.newExpression(expression)));
+    operations.add(() -> access.compile(expression));
+    operations.add(() -> evaluator.canAccess(access.compile(expression)));
+    operations.add(() -> groupEvaluator.whoCanAccess(expression));
+    operations.add(() -> bulkEvaluator.canAccess(List.of(expression)).join());
+    for (var operation : operations) {
+      if (kind.isValid()) {
+        operation.run();
+      } else {
+        var e = assertThrows(InvalidAccessExpressionException.class, operation::run, kind::name);
+        // All of the input is parsed before the error is found. An unclosed quote is reported where
+        // the quote starts.
+        int expected = kind == Kind.UNCLOSED_QUOTE_AT_END ? expression.lastIndexOf("|\"") + 1
+            : expression.length() - 4;
+        assertTrue(e.getIndex() >= expected,
+            () -> kind + " failed at " + e.getIndex() + " of " + expression.length());
+      }
+    }
+  }
+
+  /**
+   * Returns the fewest nanoseconds it took to parse the expression in any round.
+   */
+  private long time(Kind kind, String expression) {
+    long min = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      parseAll(kind, expression);
+      min = Math.min(min, System.nanoTime() - start);
+    }
+    return min;
+  }
+
+  @Test
+  public void testExpectedResults() {
+    for (Kind kind : Kind.values()) {
+      for (int length : new int[] {1, 2, 3, 10, 1000}) {
+        parseAll(kind, AdversarialExpressions.generate(kind, length));
+      }
+    }
+    var nested = access.newParsedExpression(AdversarialExpressions.generate(Kind.DEEP_NESTING, 99));
+    assertEquals("a", nested.getExpression().replace("(", "").replace(")", ""));
+    assertTrue(evaluator.canAccess(AdversarialExpressions.generate(Kind.WIDE_OR, 1000)));
+    var sameOperator = AdversarialExpressions.generate(Kind.DEEP_SAME_OPERATOR, 1000);
+    assertFalse(evaluator.canAccess(access.compile(sameOperator)));
+    assertTrue(access.newEvaluator(Set.of("a", "b0", "b1", "b2", "b3"))
+        .canAccess(access.compile(AdversarialExpressions.generate(Kind.DEEP_SAME_OPERATOR, 24))));
+  }
+
+  @Test
+  public void testLinearTime() {
+    for (Kind kind : Kind.values()) {
+      String shortExpression = AdversarialExpressions.generate(kind, SHORT_LENGTH);
+      String longExpression = AdversarialExpressions.generate(kind, LONG_LENGTH);
+      // warm up so that both lengths are timed with compiled code
+      for (int i = 0; i < 20; i++) {
+        parseAll(kind, shortExpression);
+        parseAll(kind, longExpression);
+      }
+      long shortTime = time(kind, shortExpression);
+      long longTime = time(kind, longExpression);
+      double growth = (double) longTime / Math.max(1, shortTime);
+      System.out.printf("%-25s %8.2f ns/char %8.2f ns/char growth %6.2f%n", kind,
+          (double) shortTime / shortExpression.length(),
+          (double) longTime / longExpression.length(), growth);
+      assertTrue(growth <= MAX_GROWTH, () -> kind + " took " + growth + " times longer for "
+          + longExpression.length() + " chars than for " + shortExpression.length() + " chars");
+    }
+  }
+
+  private long timeCompile(String expression) {
+    long min = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      evaluator.canAccess(access.compile(expression));
+      min = Math.min(min, System.nanoTime() - start);
+    }
+    return min;
+  }
+
+  @Test
+  public void testCompileLinearTime() {
+    // the jumps of each level land on the jump that ends the level around it
+    String shortExpression = AdversarialExpressions.generate(Kind.DEEP_SAME_OPERATOR, SHORT_LENGTH);
+    String longExpression = AdversarialExpressions.generate(Kind.DEEP_SAME_OPERATOR, LONG_LENGTH);
+    // only warm up with the short expression, so a regression fails in minutes rather than hours
+    for (int i = 0; i < 20; i++) {
+      timeCompile(shortExpression);
+    }
+    long shortTime = timeCompile(shortExpression);
+    long longTime = timeCompile(longExpression);
+    double growth = (double) longTime / Math.max(1, shortTime);
+    assertTrue(growth <= MAX_GROWTH, () -> "compiling took " + growth + " times longer for "
+        + longExpression.length() + " chars than for " + shortExpression.length() + " chars");
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.it;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.AccessEvaluator;
+import org.apache.accumulo.access.CompiledAccessExpression;
+import org.apache.accumulo.access.ValidationResult;
+import org.apache.accumulo.access.testdata.TestDataLoader;
+import org.apache.accumulo.access.testdata.TestDataLoader.ExpectedResult;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the operations that are designed not to allocate do not allocate, by measuring the
+ * bytes allocated by the current thread while running each operation over the expressions in the
+ * test data. Failsafe runs this against the packaged jar and the figures for each operation are
+ * written to {@code target/allocation-report.txt}, so they can be compared between releases.
+ *
+ * <p>
+ * Evaluating or validating an expression that does not contain quotes and is ASCII should not
+ * allocate, for one set of authorizations or many. Checking an expression that is not valid with
+ * {@link Access#check(String, ValidationResult)} should not allocate either. Other expressions may
+ * allocate when an authorization is unescaped or decoded, and finding authorizations always
+ * allocates a string for each authorization, so for those the bytes allocated are only bounded by
+ * the size of the expression. Allocation is only zero once the JIT compiler has removed the objects
+ * that do not escape, so each operation is warmed up first and the smallest of several measurements
+ * is used.
+ */
+public class AllocationIT {
+
+  private static final int WARMUP_ITERATIONS = 20_000;
+  private static final int ITERATIONS = 1_000;
+  private static final int ROUNDS = 10;
+
+  // bytes that may be allocated per byte of an expression that allocates, this allows for a string
+  // or wrapper for every authorization
+  private static final int BYTES_PER_EXPRESSION_BYTE = 16;
+  private static final int BYTES_PER_EXPRESSION = 64;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static final class Expressions {
+    final String description;
+    final String kind;
+    final AccessEvaluator evaluator;
+    final List<String> strings = new ArrayList<>();
+    final List<byte[]> bytes = new ArrayList<>();
+    final List<CompiledAccessExpression> compiled = new ArrayList<>();
+    long size = 0;
+
+    Expressions(String description, String kind, AccessEvaluator evaluator) {
+      this.description = description;
+      this.kind = kind;
+      this.evaluator = evaluator;
+    }
+
+    void add(Access access, String expression, boolean valid) {
+      strings.add(expression);
+      bytes.add(expression.getBytes(UTF_8));
+      if (valid) {
+        compiled.add(access.compile(expression));
+      }
+      size += expression.getBytes(UTF_8).length;
+    }
+  }
+
+  private final List<String> report = new ArrayList<>();
+
+  /**
+   * Returns the fewest bytes allocated by one run of the operation in any round. The operations
+   * loop over the expressions by index, an iterator is only removed if the whole loop is inlined.
+   */
+  private static double measure(Runnable operation) {
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      operation.run();
+    }
+    long min = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS && min > 0; round++) {
+      long before = THREADS.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < ITERATIONS; i++) {
+        operation.run();
+      }
+      min = Math.min(min, THREADS.getThreadAllocatedBytes(threadId) - before);
+    }
+    return (double) min / ITERATIONS;
+  }
+
+  private void check(String operation, Expressions expressions, boolean allocates, Runnable run) {
+    double perRun = measure(run);
+    double perExpression = expressions.strings.isEmpty() ? 0 : perRun / expressions.strings.size();
+    var line = String.format("%-20s %-55s %-30s %8.1f bytes/op", operation, expressions.description,
+        expressions.kind, perExpression);
+    System.out.println(line);
+    report.add(line);
+    if (allocates) {
+      double bound = BYTES_PER_EXPRESSION * expressions.strings.size()
+          + BYTES_PER_EXPRESSION_BYTE * expressions.size;
+      assertTrue(perRun <= bound, () -> operation + " allocated " + perRun + " bytes for "
+          + expressions.strings + " which is more than " + bound);
+    } else {
+      assertEquals(0.0, perRun, () -> operation + " allocated for " + expressions.strings);
+    }
+  }
+
+  @Test
+  public void testAllocation() throws Exception {
+    assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+
+    try {
+      checkTestData();
+    } finally {
+      // the report is written even when a check fails, so the failing figure can be seen
+      var dir = Path.of(System.getProperty("project.build.directory", "target"));
+      Files.createDirectories(dir);
+      Files.write(dir.resolve("allocation-report.txt"), report, UTF_8);
+    }
+  }
+
+  private void checkTestData() throws Exception {
+    var access = Access.builder().build();
+    Consumer<String> ignore = auth -> {};
+    var result = access.newValidationResult();
+
+    for (var testSet : TestDataLoader.readTestData()) {
+      var auths = testSet.getAuths();
+      AccessEvaluator evaluator;
+      String sets;
+      if (auths.length == 1) {
+        evaluator = access.newEvaluator(Set.of(auths[0]));
+        sets = "";
+      } else {
+        evaluator = access.newEvaluator(Stream.of(auths).map(Set::of).collect(toList()));
+        sets = ", " + auths.length + " sets";
+      }
+      var simple = new Expressions(testSet.getDescription(), "simple" + sets, evaluator);
+      var other =
+          new Expressions(testSet.getDescription(), "quoted or non ASCII" + sets, evaluator);
+      var invalidSimple = new Expressions(testSet.getDescription(), "invalid simple", evaluator);
+      var invalidOther =
+          new Expressions(testSet.getDescription(), "invalid quoted or non ASCII", evaluator);
+      for (var tests : testSet.getTests()) {
+        boolean valid = tests.getExpectedResult() != ExpectedResult.ERROR;
+        for (var expression : tests.getExpressions()) {
+          boolean isSimple =
+              !expression.contains("\"") && expression.chars().allMatch(c -> c < 128);
+          if (valid) {
+            (isSimple ? simple : other).add(access, expression, true);
+          } else {
+            (isSimple ? invalidSimple : invalidOther).add(access, expression, false);
+          }
+        }
+      }
+
+      for (var expressions : List.of(simple, other)) {
+        if (expressions.strings.isEmpty()) {
+          continue;
+        }
+        boolean allocates = expressions == other;
+        check("canAccess(String)", expressions, allocates, () -> {
+          for (int i = 0; i < expressions.strings.size(); i++) {
+            var expression = expressions.strings.get(i);
+            expressions.evaluator.canAccess(expression);
+          }
+        });
+        check("canAccess(byte[])", expressions, allocates, () -> {
+          for (int i = 0; i < expressions.bytes.size(); i++) {
+            var expression = expressions.bytes.get(i);
+            expressions.evaluator.canAccess(expression);
+          }
+        });
+        check("canAccess(compiled)", expressions, false, () -> {
+          for (int i = 0; i < expressions.compiled.size(); i++) {
+            var expression = expressions.compiled.get(i);
+            expressions.evaluator.canAccess(expression);
+          }
+        });
+        check("validate(String)", expressions, allocates, () -> {
+          for (int i = 0; i < expressions.strings.size(); i++) {
+            var expression = expressions.strings.get(i);
+            access.validateExpression(expression);
+          }
+        });
+        check("validate(byte[])", expressions, allocates, () -> {
+          for (int i = 0; i < expressions.bytes.size(); i++) {
+            var expression = expressions.bytes.get(i);
+            access.validateExpression(expression, 0, expression.length);
+          }
+        });
+        check("findAuthorizations", expressions, true, () -> {
+          for (int i = 0; i < expressions.strings.size(); i++) {
+            var expression = expressions.strings.get(i);
+            access.findAuthorizations(expression, ignore);
+          }
+        });
+      }
+
+      // validating an expression that is not valid allocates an exception, checking it does not
+      for (var expressions : List.of(invalidSimple, invalidOther)) {
+        if (expressions.strings.isEmpty()) {
+          continue;
+        }
+        boolean allocates = expressions == invalidOther;
+        check("check(String)", expressions, allocates, () -> {
+          for (int i = 0; i < expressions.strings.size(); i++) {
+            var expression = expressions.strings.get(i);
+            assertFalse(access.check(expression, result));
+          }
+        });
+        check("check(byte[])", expressions, allocates, () -> {
+          for (int i = 0; i < expressions.bytes.size(); i++) {
+            var expression = expressions.bytes.get(i);
+            assertFalse(access.check(expression, 0, expression.length, result));
+          }
+        });
+      }
+    }
+  }
+}
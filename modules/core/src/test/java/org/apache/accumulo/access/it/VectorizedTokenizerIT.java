@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.it;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.apache.accumulo.access.Access;
+import org.apache.accumulo.access.InvalidAccessExpressionException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests evaluating expressions with long authorizations using the multi-release jar. Failsafe runs
+ * this against the packaged jar with the {@code jdk.incubator.vector} module added, so on Java 21
+ * or later the tokenizers scan using the vector API. This test is in a package that is not in the
+ * jar because the packages in the jar are sealed.
+ */
+public class VectorizedTokenizerIT {
+
+  private static final String AUTH_CHARS =
+      "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_-:./";
+
+  private static String randomAuth(SplittableRandom random, int len) {
+    var sb = new StringBuilder(len);
+    for (int i = 0; i < len; i++) {
+      sb.append(AUTH_CHARS.charAt(random.nextInt(AUTH_CHARS.length())));
+    }
+    return sb.toString();
+  }
+
+  private static void validateBytes(Access access, String expression) {
+    byte[] bytes = expression.getBytes(UTF_8);
+    access.validateExpression(bytes, 0, bytes.length);
+  }
+
+  @Test
+  public void testMultiReleaseJar() {
+    assumeTrue(Runtime.version().feature() >= 21);
+    var resource = Access.class.getClassLoader()
+        .getResource("org/apache/accumulo/access/impl/CharScanner.class");
+    assertNotNull(resource);
+    assumeTrue(resource.getProtocol().equals("jar"), "not run from the jar");
+    assertTrue(resource.toString().contains("META-INF/versions/21/"), resource::toString);
+    assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+  }
+
+  @Test
+  public void testLongAuthorizations() {
+    var access = Access.builder().build();
+    var random = new SplittableRandom(42);
+
+    for (int trial = 0; trial < 2_000; trial++) {
+      Set<String> auths = new HashSet<>();
+      List<String> tokens = new ArrayList<>();
+      boolean expected = false;
+      int numTokens = 1 + random.nextInt(4);
+      for (int t = 0; t < numTokens; t++) {
+        String auth = randomAuth(random, 1 + random.nextInt(200));
+        boolean authorized = random.nextBoolean();
+        if (authorized) {
+          auths.add(auth);
+        }
+        expected |= authorized;
+        tokens.add(random.nextInt(4) == 0 ? access.quote(auth + "\"九\\") : auth);
+        if (authorized && tokens.get(t).startsWith("\"")) {
+          auths.add(auth + "\"九\\");
+        }
+      }
+      String expression = String.join("|", tokens);
+      var evaluator = access.newEvaluator(auths);
+      assertEquals(expected, evaluator.canAccess(expression), expression);
+      assertEquals(expected, evaluator.canAccess(expression.getBytes(UTF_8)), expression);
+      assertEquals(expected, access.newTrieEvaluator(auths).canAccess(expression), expression);
+
+      // an invalid char anywhere in an unquoted authorization ends the authorization early, so the
+      // expression is not valid
+      String auth = randomAuth(random, 2 + random.nextInt(200));
+      int pos = 1 + random.nextInt(auth.length() - 1);
+      String invalid =
+          auth.substring(0, pos) + "#九 ".charAt(random.nextInt(3)) + auth.substring(pos);
+      assertThrows(InvalidAccessExpressionException.class, () -> evaluator.canAccess(invalid),
+          invalid);
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> evaluator.canAccess(invalid.getBytes(UTF_8)), invalid);
+
+      // an unclosed quote or bad escape after a long run of quoted chars
+      String unclosed = "\"" + auth;
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> access.validateExpression(unclosed), unclosed);
+      assertThrows(InvalidAccessExpressionException.class, () -> validateBytes(access, unclosed),
+          unclosed);
+      String badEscape = "\"" + auth.substring(0, pos) + "\\a" + auth.substring(pos) + "\"";
+      assertThrows(InvalidAccessExpressionException.class,
+          () -> access.validateExpression(badEscape), badEscape);
+      assertThrows(InvalidAccessExpressionException.class, () -> validateBytes(access, badEscape),
+          badEscape);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.testdata;
+
+/**
+ * Hostile access expressions of any length, such as labels from an external feed that were crafted
+ * to make parsing slow. Each kind stresses one part of parsing, and the invalid kinds only fail at
+ * the very end so that all of the input is parsed before the error is found. Parsing and evaluating
+ * every kind should take time linear in its length.
+ */
+public final class AdversarialExpressions {
+
+  public enum Kind {
+    /**
+     * A single quoted authorization where every char is escaped, such as {@code "\"\\\"\\"}.
+     */
+    LONG_QUOTED_ESCAPES(true),
+    /**
+     * Many short quoted authorizations with escapes, such as {@code "a\""|"a\\"|"a\""}.
+     */
+    MANY_QUOTED_ESCAPES(true),
+    /**
+     * A single authorization nested in parentheses, such as {@code (((a)))}.
+     */
+    DEEP_NESTING(true),
+    /**
+     * Nested parentheses with alternating operators, such as {@code ((a|b)&c)|d}.
+     */
+    DEEP_ALTERNATING(true),
+    /**
+     * Nested parentheses with the same operator and an operand at each level, such as
+     * {@code ((a&b0)&b1)&b2}. Each level ends where the levels inside it end, which stresses
+     * compiling expressions.
+     */
+    DEEP_SAME_OPERATOR(true),
+    /**
+     * A single operator with as many operands as fit, such as {@code a0|a1|a2}.
+     */
+    WIDE_OR(true),
+    /**
+     * A wide list of operands where the last operator is different, such as {@code a0|a1|a2&a3}.
+     */
+    MIXED_OPERATORS_AT_END(false),
+    /**
+     * A wide list of operands followed by a quoted authorization full of escapes that is never
+     * closed, such as {@code a0|a1|"\"\\}.
+     */
+    UNCLOSED_QUOTE_AT_END(false),
+    /**
+     * A quoted authorization full of escapes that ends with an invalid escape, such as
+     * {@code "\"\\\a"}.
+     */
+    INVALID_ESCAPE_AT_END(false),
+    /**
+     * Deeply nested parentheses where the last one is not closed, such as {@code (((a))}.
+     */
+    UNCLOSED_PAREN_AT_END(false);
+
+    private final boolean valid;
+
+    Kind(boolean valid) {
+      this.valid = valid;
+    }
+
+    public boolean isValid() {
+      return valid;
+    }
+  }
+
+  private AdversarialExpressions() {}
+
+  /**
+   * Generates an expression of the given kind that is about the given number of chars long.
+   */
+  public static String generate(Kind kind, int length) {
+    if (length < 1) {
+      throw new IllegalArgumentException("length must be positive : " + length);
+    }
+    var sb = new StringBuilder(length + 16);
+    switch (kind) {
+      case LONG_QUOTED_ESCAPES:
+        sb.append('"');
+        appendEscapes(sb, length);
+        sb.append('"');
+        break;
+      case MANY_QUOTED_ESCAPES:
+        for (int i = 0; sb.length() < length; i++) {
+          if (i > 0) {
+            sb.append('|');
+          }
+          sb.append(i % 2 == 0 ? "\"a\\\"\"" : "\"a\\\\\"");
+        }
+        break;
+      case DEEP_NESTING: {
+        int depth = Math.max(1, (length - 1) / 2);
+        sb.append("(".repeat(depth)).append('a').append(")".repeat(depth));
+        break;
+      }
+      case DEEP_ALTERNATING: {
+        // every level adds a '(', an operator, an authorization, and a ')'
+        int depth = Math.max(1, length / 4);
+        sb.append("(".repeat(depth)).append('a');
+        for (int i = 0; i < depth; i++) {
+          sb.append(i % 2 == 0 ? '|' : '&').append((char) ('b' + i % 24)).append(')');
+        }
+        break;
+      }
+      case DEEP_SAME_OPERATOR: {
+        // every level adds a '(', an operator, an authorization of up to three chars, and a ')'
+        int depth = Math.max(1, length / 6);
+        sb.append("(".repeat(depth)).append('a');
+        for (int i = 0; i < depth; i++) {
+          sb.append("&b").append(Integer.toString(i % 1296, 36)).append(')');
+        }
+        break;
+      }
+      case WIDE_OR:
+        appendWideOr(sb, length);
+        break;
+      case MIXED_OPERATORS_AT_END:
+        appendWideOr(sb, length);
+        sb.append("&z");
+        break;
+      case UNCLOSED_QUOTE_AT_END:
+        appendWideOr(sb, length / 2);
+        sb.append("|\"");
+        appendEscapes(sb, length - sb.length());
+        break;
+      case INVALID_ESCAPE_AT_END:
+        sb.append('"');
+        appendEscapes(sb, length);
+        sb.append("\\a\"");
+        break;
+      case UNCLOSED_PAREN_AT_END: {
+        int depth = Math.max(1, (length - 1) / 2);
+        sb.append("(".repeat(depth)).append('a').append(")".repeat(depth - 1));
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown kind : " + kind);
+    }
+    return sb.toString();
+  }
+
+  private static void appendEscapes(StringBuilder sb, int length) {
+    int end = sb.length() + Math.max(2, length);
+    while (sb.length() < end) {
+      sb.append((sb.length() & 2) == 0 ? "\\\"" : "\\\\");
+    }
+  }
+
+  private static void appendWideOr(StringBuilder sb, int length) {
+    int end = sb.length() + length;
+    // at least two operands, so that there is an operator
+    for (int i = 0; sb.length() < end || i < 2; i++) {
+      if (i > 0) {
+        sb.append('|');
+      }
+      sb.append('a').append(Integer.toString(i, 36));
+    }
+  }
+}
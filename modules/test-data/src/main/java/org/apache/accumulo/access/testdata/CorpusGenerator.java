@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.access.testdata;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates large corpora of access expressions that look like production data, with long
+ * namespaced authorizations such as {@code ns3:k7x-q2p_0.1k}, nested parentheses, wide lists of
+ * operands, quoted authorizations, and a Zipf distribution of how often each expression is seen.
+ *
+ * <p>
+ * A corpus is a fixed number of distinct expressions, and a stream of ranks that picks which
+ * distinct expression is seen next. Every distinct expression, authorization, and rank is derived
+ * only from the seed and its index, so the same configuration always produces the same corpus and
+ * nothing needs to be held in memory. Streams can be as long as needed and may be processed in
+ * parallel.
+ *
+ * <pre>
+ * {@code
+ * var generator = CorpusGenerator.builder().distinctExpressions(100_000).maxDepth(4).build();
+ * Set<String> auths = generator.authorizations(0.5);
+ * generator.expressions(1_000_000).forEach(expression -> ...);
+ * }
+ * </pre>
+ */
+public final class CorpusGenerator {
+
+  // The chars of an authorization that do not need quoting. Unquoted authorizations may also
+  // contain uppercase letters, '.', and ':', but ':' separates the namespace and '.' separates the
+  // index that makes each authorization unique.
+  private static final String BASIC_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789_-/";
+  // each quoted authorization contains one of these, the last two need escaping
+  private static final String[] QUOTED_CHARS = {" ", "#", "é", "九", "\"", "\\"};
+
+  // distinguishes the random values used for different purposes that are derived from one seed
+  private static final long AUTHORIZATION_SALT = 0x5851f42d4c957f2dL;
+  private static final long EXPRESSION_SALT = 0x14057b7ef767814fL;
+  private static final long RANK_SALT = 0x2545f4914f6cdd1dL;
+  private static final long SELECTION_SALT = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+  private final int authorizationCount;
+  private final int tokenLength;
+  private final int namespaces;
+  private final int maxDepth;
+  private final int fanOut;
+  private final int maxOperands;
+  private final double quotingRatio;
+  private final int distinctExpressions;
+  private final double skew;
+
+  private CorpusGenerator(Builder builder) {
+    this.seed = builder.seed;
+    this.authorizationCount = builder.authorizations;
+    this.tokenLength = builder.tokenLength;
+    this.namespaces = builder.namespaces;
+    this.maxDepth = builder.maxDepth;
+    this.fanOut = builder.fanOut;
+    this.maxOperands = builder.maxOperands;
+    this.quotingRatio = builder.quotingRatio;
+    this.distinctExpressions = builder.distinctExpressions;
+    this.skew = builder.skew;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    private long seed = 42;
+    private int authorizations = 1_000;
+    private int tokenLength = 24;
+    private int namespaces = 8;
+    private int maxDepth = 2;
+    private int fanOut = 4;
+    private int maxOperands = 32;
+    private double quotingRatio = 0.05;
+    private int distinctExpressions = 10_000;
+    private double skew = 1.0;
+
+    private Builder() {}
+
+    /**
+     * The seed that everything generated is derived from, defaults to 42.
+     */
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * The number of distinct authorizations that expressions are made of, defaults to 1000.
+     */
+    public Builder authorizations(int authorizations) {
+      this.authorizations = requirePositive("authorizations", authorizations);
+      return this;
+    }
+
+    /**
+     * The length of an authorization in chars including its namespace, not counting quotes and
+     * escapes, defaults to 24. Authorizations are longer when needed to hold their namespace and
+     * the index that makes each one unique.
+     */
+    public Builder tokenLength(int tokenLength) {
+      this.tokenLength = requirePositive("tokenLength", tokenLength);
+      return this;
+    }
+
+    /**
+     * The number of namespaces that authorizations are spread across, or zero for authorizations
+     * without a namespace, defaults to 8.
+     */
+    public Builder namespaces(int namespaces) {
+      if (namespaces < 0) {
+        throw new IllegalArgumentException("namespaces must not be negative : " + namespaces);
+      }
+      this.namespaces = namespaces;
+      return this;
+    }
+
+    /**
+     * How deeply parentheses are nested in every expression, defaults to 2. With zero expressions
+     * only have a single operator and no parentheses. Expressions are only nested this deep when
+     * {@link #maxOperands(int)} allows it, nesting one level deeper needs one more authorization.
+     */
+    public Builder maxDepth(int maxDepth) {
+      if (maxDepth < 0) {
+        throw new IllegalArgumentException("maxDepth must not be negative : " + maxDepth);
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * The most operands of a single operator, defaults to 4. Each operator has between two and this
+     * many operands, with one every expression is a single authorization.
+     */
+    public Builder fanOut(int fanOut) {
+      this.fanOut = requirePositive("fanOut", fanOut);
+      return this;
+    }
+
+    /**
+     * The most authorizations in one expression, defaults to 32. This bounds the size of every
+     * expression, so the depth and fan out can be set independently.
+     */
+    public Builder maxOperands(int maxOperands) {
+      this.maxOperands = requirePositive("maxOperands", maxOperands);
+      return this;
+    }
+
+    /**
+     * The fraction of authorizations that contain chars that must be quoted, defaults to 0.05.
+     */
+    public Builder quotingRatio(double quotingRatio) {
+      if (!(quotingRatio >= 0 && quotingRatio <= 1)) {
+        throw new IllegalArgumentException("quotingRatio must be in [0,1] : " + quotingRatio);
+      }
+      this.quotingRatio = quotingRatio;
+      return this;
+    }
+
+    /**
+     * The number of distinct expressions in the corpus, defaults to 10000.
+     */
+    public Builder distinctExpressions(int distinctExpressions) {
+      this.distinctExpressions = requirePositive("distinctExpressions", distinctExpressions);
+      return this;
+    }
+
+    /**
+     * The exponent of the Zipf distribution of how often each distinct expression is seen, defaults
+     * to 1. With zero every distinct expression is equally likely, larger values make the first
+     * expressions more frequent.
+     */
+    public Builder skew(double skew) {
+      if (!(skew >= 0) || Double.isInfinite(skew)) {
+        throw new IllegalArgumentException("skew must not be negative : " + skew);
+      }
+      this.skew = skew;
+      return this;
+    }
+
+    public CorpusGenerator build() {
+      return new CorpusGenerator(this);
+    }
+
+    private static int requirePositive(String name, int value) {
+      if (value < 1) {
+        throw new IllegalArgumentException(name + " must be positive : " + value);
+      }
+      return value;
+    }
+  }
+
+  public int getDistinctExpressions() {
+    return distinctExpressions;
+  }
+
+  public int getAuthorizationCount() {
+    return authorizationCount;
+  }
+
+  /**
+   * Returns the authorization with the given index, unquoted.
+   */
+  public String authorization(int index) {
+    var random = random(AUTHORIZATION_SALT, checkIndex(index, authorizationCount));
+    var sb = new StringBuilder(tokenLength + 1);
+    if (namespaces > 0) {
+      sb.append("ns").append(random.nextInt(namespaces)).append(':');
+    }
+    int quotedAt = -1;
+    // the index makes authorizations unique even when they are too short for random chars to be
+    String suffix = "." + Integer.toString(index, 36);
+    int length = Math.max(tokenLength, sb.length() + suffix.length());
+    if (random.nextDouble() < quotingRatio) {
+      quotedAt = sb.length() + random.nextInt(length - sb.length() - suffix.length() + 1);
+    }
+    while (sb.length() < length - suffix.length()) {
+      if (sb.length() == quotedAt) {
+        sb.append(QUOTED_CHARS[random.nextInt(QUOTED_CHARS.length)]);
+      } else {
+        sb.append(BASIC_CHARS.charAt(random.nextInt(BASIC_CHARS.length())));
+      }
+    }
+    if (quotedAt >= sb.length()) {
+      sb.append(QUOTED_CHARS[random.nextInt(QUOTED_CHARS.length)]);
+    }
+    return sb.append(suffix).toString();
+  }
+
+  /**
+   * Returns a subset of the authorizations, each authorization is in the subset with the given
+   * probability. The same fraction always returns the same subset.
+   */
+  public Set<String> authorizations(double fraction) {
+    Set<String> authorizations = new HashSet<>();
+    for (int i = 0; i < authorizationCount; i++) {
+      if (unit(mix(seed ^ SELECTION_SALT, i)) < fraction) {
+        authorizations.add(authorization(i));
+      }
+    }
+    return authorizations;
+  }
+
+  /**
+   * Returns the distinct expression with the given rank, lower ranks are seen more often.
+   */
+  public String expression(int rank) {
+    var random = random(EXPRESSION_SALT, checkIndex(rank, distinctExpressions));
+    var sb = new StringBuilder();
+    appendExpression(sb, random);
+    return sb.toString();
+  }
+
+  /**
+   * Returns the ranks of the distinct expressions seen by a stream of the given number of
+   * expressions, following a Zipf distribution.
+   */
+  public IntStream ranks(long count) {
+    long rankSeed = seed ^ RANK_SALT;
+    return LongStream.range(0, count).mapToInt(i -> rank(unit(mix(rankSeed, i))));
+  }
+
+  /**
+   * Returns a stream of the given number of expressions, each expression is generated when it is
+   * needed.
+   */
+  public Stream<String> expressions(long count) {
+    return ranks(count).mapToObj(this::expression);
+  }
+
+  /**
+   * Appends an expression without recursing, so that any depth can be generated. Each open group of
+   * operands is a frame on a stack. The first operand of a group is always nested, so expressions
+   * are nested as deep as the maximum depth, and the other operands are nested half the time. Each
+   * operand needs at least one authorization, so a group is only opened, and only given as many
+   * operands, as the authorizations left after the operands still to come allow.
+   */
+  private void appendExpression(StringBuilder sb, SplittableRandom random) {
+    if (fanOut < 2 || maxOperands < 2) {
+      appendAuthorization(sb, random);
+      return;
+    }
+    // the deepest group has two authorizations, so nesting is also bounded by the operands
+    int frames = Math.min(maxDepth, maxOperands - 2) + 1;
+    char[] operators = new char[frames];
+    // the operands of each group that are not appended yet
+    int[] remaining = new int[frames];
+    boolean[] started = new boolean[frames];
+
+    int top = 0;
+    operators[0] = random.nextBoolean() ? '&' : '|';
+    remaining[0] = operands(random, maxOperands, frames - 1);
+    // the operands of all open groups that are not appended yet
+    int pending = remaining[0];
+    int appended = 0;
+    while (top >= 0) {
+      if (remaining[top] == 0) {
+        if (top > 0) {
+          sb.append(')');
+        }
+        top--;
+        continue;
+      }
+      boolean first = !started[top];
+      if (!first) {
+        sb.append(operators[top]);
+      }
+      started[top] = true;
+      remaining[top]--;
+      pending--;
+      // the authorizations this operand may use, leaving one for every operand still to come
+      int available = maxOperands - appended - pending;
+      if (top + 1 < frames && available >= 2 && (first || random.nextBoolean())) {
+        sb.append('(');
+        top++;
+        operators[top] = random.nextBoolean() ? '&' : '|';
+        remaining[top] = operands(random, available, frames - 1 - top);
+        started[top] = false;
+        pending += remaining[top];
+      } else {
+        appendAuthorization(sb, random);
+        appended++;
+      }
+    }
+  }
+
+  /**
+   * Picks how many operands a group has. A group with n operands that still has to nest k levels
+   * deeper needs at least n+k authorizations, so the group leaves enough for its first operand to
+   * reach the maximum depth. The first operands are appended first, so this always holds for them.
+   * Other operands that are nested may have too few authorizations left to reach the maximum depth,
+   * those groups have two operands and are nested as deep as they can be.
+   */
+  private int operands(SplittableRandom random, int available, int levelsBelow) {
+    return 2 + random.nextInt(Math.min(fanOut, Math.max(2, available - levelsBelow)) - 1);
+  }
+
+  private void appendAuthorization(StringBuilder sb, SplittableRandom random) {
+    String authorization = authorization(random.nextInt(authorizationCount));
+    boolean needsQuotes = false;
+    for (int i = 0; i < authorization.length() && !needsQuotes; i++) {
+      char c = authorization.charAt(i);
+      needsQuotes = BASIC_CHARS.indexOf(c) < 0 && c != ':' && c != '.';
+    }
+    if (needsQuotes) {
+      sb.append('"');
+      for (int i = 0; i < authorization.length(); i++) {
+        char c = authorization.charAt(i);
+        if (c == '"' || c == '\\') {
+          sb.append('\\');
+        }
+        sb.append(c);
+      }
+      sb.append('"');
+    } else {
+      sb.append(authorization);
+    }
+  }
+
+  /**
+   * Maps a uniform value in [0,1) to a rank in [0,distinctExpressions) by inverting the
+   * distribution function of a continuous power law, which is close to a Zipf distribution and does
+   * not need a table of weights.
+   */
+  private int rank(double u) {
+    double n = distinctExpressions + 1.0;
+    double x;
+    if (Math.abs(skew - 1.0) < 1e-9) {
+      x = Math.exp(u * Math.log(n));
+    } else {
+      double e = 1.0 - skew;
+      x = Math.pow((Math.pow(n, e) - 1.0) * u + 1.0, 1.0 / e);
+    }
+    return Math.min(Math.max((int) x - 1, 0), distinctExpressions - 1);
+  }
+
+  private SplittableRandom random(long salt, int index) {
+    return new SplittableRandom(mix(seed ^ salt, index));
+  }
+
+  private static int checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+    return index;
+  }
+
+  /**
+   * Mixes a seed and an index into a well distributed value using the SplitMix64 finalizer.
+   */
+  private static long mix(long seed, long index) {
+    long z = seed + (index + 1) * 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static double unit(long value) {
+    return (value >>> 11) * 0x1.0p-53;
+  }
+}